@@ -0,0 +1,367 @@
+package com.example.pricecomparator.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.example.pricecomparator.models.Discount;
+
+// Binary, columnar copy of the parsed CSV files, so a restart does not have to parse text again.
+// Layout (big-endian):
+//   header       magic, format version
+//   dictionary   every distinct string once (store, category, brand, unit, ids, names, file names);
+//                each is a byte length and UTF-8 bytes, a length of -1 stands for null
+//   files        per file: name id, size/modification stamp, row count; product files first, then discount files
+//   products     one column per field: int dictionary ids, double[] quantity and price
+//   discounts    int dictionary ids, double[] quantity and percentage, int epoch days for from/to
+//   trailer      CRC32 of everything before it
+// The file is memory-mapped when read and columns are copied out with bulk gets.
+// Each file keeps the stamp it was parsed from, so only files that changed since have to be parsed again.
+public final class CatalogFile {
+    private static final int MAGIC = 0x50435346; // "PCSF"
+    private static final int FORMAT_VERSION = 2;
+    private static final int NULL_LENGTH = -1;
+
+    private CatalogFile() {
+    }
+
+    // Writes the product and discount files of a snapshot, with the stamp of every file.
+    // The data is written to a temporary file first and moved into place, so a crash never leaves a half-written file.
+    public static void write(Path target, CatalogSnapshot snapshot, Map<String, Long> stamps) throws IOException {
+        Map<String, ProductTable> productFiles = withStamps(snapshot.getProductFiles(), stamps);
+        Map<String, List<Discount>> discountFiles = withStamps(snapshot.getDiscountFiles(), stamps);
+        Dictionary dictionary = new Dictionary();
+
+        // collect the columns first, so every string has its id before the dictionary is written
+        ProductTable products = ProductTable.concat(snapshot.getDictionary(), productFiles.values());
+        int[][] productStrings = new int[7][products.size()];
+        double[] productQuantity = new double[products.size()];
+        double[] productPrice = new double[products.size()];
+        for (int row = 0; row < products.size(); row++) {
+            productStrings[0][row] = dictionary.id(products.productId(row));
+            productStrings[1][row] = dictionary.id(products.name(row));
+            productStrings[2][row] = dictionary.id(products.category(row));
+            productStrings[3][row] = dictionary.id(products.brand(row));
+            productStrings[4][row] = dictionary.id(products.unit(row));
+            productStrings[5][row] = dictionary.id(products.currency(row));
+            productStrings[6][row] = dictionary.id(products.store(row));
+            productQuantity[row] = products.quantity(row);
+            productPrice[row] = products.price(row);
+        }
+
+        List<Discount> discounts = flatten(discountFiles);
+        int[][] discountStrings = new int[6][discounts.size()];
+        double[] discountQuantity = new double[discounts.size()];
+        double[] discountPercentage = new double[discounts.size()];
+        int[] fromDays = new int[discounts.size()];
+        int[] toDays = new int[discounts.size()];
+        for (int i = 0; i < discounts.size(); i++) {
+            Discount d = discounts.get(i);
+            discountStrings[0][i] = dictionary.id(d.getProductId());
+            discountStrings[1][i] = dictionary.id(d.getProductName());
+            discountStrings[2][i] = dictionary.id(d.getBrand());
+            discountStrings[3][i] = dictionary.id(d.getPackageUnit());
+            discountStrings[4][i] = dictionary.id(d.getProductCategory());
+            discountStrings[5][i] = dictionary.id(d.getStore());
+            discountQuantity[i] = d.getPackageQuantity();
+            discountPercentage[i] = d.getPercentageOfDiscount();
+            fromDays[i] = d.getFromDay();
+            toDays[i] = d.getToDay();
+        }
+        for (String fileName : productFiles.keySet()) {
+            dictionary.id(fileName);
+        }
+        for (String fileName : discountFiles.keySet()) {
+            dictionary.id(fileName);
+        }
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            out.writeInt(dictionary.values.size());
+            for (String value : dictionary.values) {
+                if (value == null) {
+                    out.writeInt(NULL_LENGTH);
+                    continue;
+                }
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            writeFiles(out, rowCounts(productFiles, ProductTable::size), stamps, dictionary);
+            writeFiles(out, rowCounts(discountFiles, List::size), stamps, dictionary);
+
+            for (int[] column : productStrings) {
+                writeInts(out, column);
+            }
+            writeDoubles(out, productQuantity);
+            writeDoubles(out, productPrice);
+
+            for (int[] column : discountStrings) {
+                writeInts(out, column);
+            }
+            writeDoubles(out, discountQuantity);
+            writeDoubles(out, discountPercentage);
+            writeInts(out, fromDays);
+            writeInts(out, toDays);
+
+            out.flush();
+            // the checksum covers everything written so far
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a file written by write(); throws IOException if it is truncated, corrupt or from another format version.
+    // Product strings are added to the given dictionary and the product columns are translated to its codes.
+    public static Contents read(Path source, StringDictionary strings) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            if (channel.size() < 16) {
+                throw new IOException("Catalog file is truncated: " + source);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            int bodyLength = buffer.limit() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodyLength));
+            if (crc.getValue() != buffer.getLong(bodyLength)) {
+                throw new IOException("Catalog file checksum does not match: " + source);
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a catalog file of format version " + FORMAT_VERSION + ": " + source);
+            }
+
+            try {
+                return decode(buffer, strings);
+            } catch (RuntimeException e) {
+                throw new IOException("Catalog file is corrupt: " + source, e);
+            }
+        }
+    }
+
+    private static Contents decode(ByteBuffer buffer, StringDictionary strings) {
+        String[] dictionary = new String[buffer.getInt()];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = buffer.getInt();
+            if (length == NULL_LENGTH) {
+                continue; // dictionary[i] stays null
+            }
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            dictionary[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        Map<String, Long> stamps = new HashMap<>();
+        Map<String, Integer> productCounts = readFiles(buffer, dictionary, stamps);
+        Map<String, Integer> discountCounts = readFiles(buffer, dictionary, stamps);
+        int productRows = productCounts.values().stream().mapToInt(Integer::intValue).sum();
+        int discountRows = discountCounts.values().stream().mapToInt(Integer::intValue).sum();
+
+        int[][] productStrings = new int[7][];
+        for (int c = 0; c < productStrings.length; c++) {
+            productStrings[c] = readInts(buffer, productRows);
+        }
+        double[] productQuantity = readDoubles(buffer, productRows);
+        double[] productPrice = readDoubles(buffer, productRows);
+
+        int[][] discountStrings = new int[6][];
+        for (int c = 0; c < discountStrings.length; c++) {
+            discountStrings[c] = readInts(buffer, discountRows);
+        }
+        double[] discountQuantity = readDoubles(buffer, discountRows);
+        double[] discountPercentage = readDoubles(buffer, discountRows);
+        int[] fromDays = readInts(buffer, discountRows);
+        int[] toDays = readInts(buffer, discountRows);
+
+        // file dictionary index -> code in the live dictionary; the columns are then translated without string lookups
+        int[] codes = new int[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            codes[i] = strings.code(dictionary[i]);
+        }
+        for (int[] column : productStrings) {
+            for (int row = 0; row < column.length; row++) {
+                column[row] = codes[column[row]];
+            }
+        }
+
+        Map<String, ProductTable> productFiles = new LinkedHashMap<>();
+        int row = 0;
+        for (Map.Entry<String, Integer> file : productCounts.entrySet()) {
+            int end = row + file.getValue();
+            productFiles.put(file.getKey(), ProductTable.of(strings,
+                Arrays.copyOfRange(productStrings[0], row, end),
+                Arrays.copyOfRange(productStrings[1], row, end),
+                Arrays.copyOfRange(productStrings[2], row, end),
+                Arrays.copyOfRange(productStrings[3], row, end),
+                Arrays.copyOfRange(productStrings[4], row, end),
+                Arrays.copyOfRange(productStrings[5], row, end),
+                Arrays.copyOfRange(productStrings[6], row, end),
+                Arrays.copyOfRange(productQuantity, row, end),
+                Arrays.copyOfRange(productPrice, row, end)));
+            row = end;
+        }
+
+        Map<String, List<Discount>> discountFiles = new LinkedHashMap<>();
+        row = 0;
+        for (Map.Entry<String, Integer> file : discountCounts.entrySet()) {
+            List<Discount> discounts = new ArrayList<>(file.getValue());
+            for (int end = row + file.getValue(); row < end; row++) {
+                discounts.add(new Discount(
+                    dictionary[discountStrings[0][row]],
+                    dictionary[discountStrings[1][row]],
+                    dictionary[discountStrings[2][row]],
+                    discountQuantity[row],
+                    dictionary[discountStrings[3][row]],
+                    dictionary[discountStrings[4][row]],
+                    fromDays[row],
+                    toDays[row],
+                    discountPercentage[row],
+                    dictionary[discountStrings[5][row]]));
+            }
+            discountFiles.put(file.getKey(), discounts);
+        }
+
+        return new Contents(productFiles, discountFiles, stamps);
+    }
+
+    // The parsed files restored from a catalog file, with the stamp each file had when it was parsed
+    public static final class Contents {
+        private final Map<String, ProductTable> productFiles;
+        private final Map<String, List<Discount>> discountFiles;
+        private final Map<String, Long> stamps;
+
+        private Contents(Map<String, ProductTable> productFiles, Map<String, List<Discount>> discountFiles,
+                         Map<String, Long> stamps) {
+            this.productFiles = productFiles;
+            this.discountFiles = discountFiles;
+            this.stamps = Collections.unmodifiableMap(stamps);
+        }
+
+        public Map<String, ProductTable> getProductFiles() {
+            return productFiles;
+        }
+
+        public Map<String, List<Discount>> getDiscountFiles() {
+            return discountFiles;
+        }
+
+        public int getFileCount() {
+            return stamps.size();
+        }
+
+        // True if the file was stored with exactly this stamp, i.e. it has not changed since
+        public boolean isCurrent(String fileName, Long stamp) {
+            return stamp != null && stamp.equals(stamps.get(fileName));
+        }
+    }
+
+    private static <T> Map<String, T> withStamps(Map<String, T> files, Map<String, Long> stamps) {
+        // a file without a stamp cannot be validated on restart, so it is left out and parsed again
+        Map<String, T> stamped = new LinkedHashMap<>(files);
+        stamped.keySet().retainAll(stamps.keySet());
+        return stamped;
+    }
+
+    private static <T> List<T> flatten(Map<String, List<T>> files) {
+        List<T> rows = new ArrayList<>();
+        files.values().forEach(rows::addAll);
+        return rows;
+    }
+
+    private static void writeFiles(DataOutputStream out, Map<String, Integer> rowCounts, Map<String, Long> stamps,
+                                   Dictionary dictionary) throws IOException {
+        out.writeInt(rowCounts.size());
+        for (Map.Entry<String, Integer> file : rowCounts.entrySet()) {
+            out.writeInt(dictionary.id(file.getKey()));
+            out.writeLong(stamps.get(file.getKey()));
+            out.writeInt(file.getValue());
+        }
+    }
+
+    private static <T> Map<String, Integer> rowCounts(Map<String, T> files, ToIntFunction<T> size) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        files.forEach((name, rows) -> counts.put(name, size.applyAsInt(rows)));
+        return counts;
+    }
+
+    private static Map<String, Integer> readFiles(ByteBuffer buffer, String[] dictionary, Map<String, Long> stamps) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        int files = buffer.getInt();
+        for (int i = 0; i < files; i++) {
+            String fileName = dictionary[buffer.getInt()];
+            stamps.put(fileName, buffer.getLong());
+            counts.put(fileName, buffer.getInt());
+        }
+        return counts;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] column) throws IOException {
+        for (int value : column) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] column) throws IOException {
+        for (double value : column) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] column = new int[count];
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return column;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] column = new double[count];
+        buffer.asDoubleBuffer().get(column);
+        buffer.position(buffer.position() + count * Double.BYTES);
+        return column;
+    }
+
+    // Assigns consecutive ids to distinct strings, in order of first use; null gets an id of its own,
+    // so a restored field is null exactly when the parsed one was (and never "")
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.pricecomparator.catalog;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.pricecomparator.models.Discount;
+import com.example.pricecomparator.models.Product;
+
+// Immutable, versioned view of every product and discount file in the data directory.
+// A snapshot is built once and never modified; CatalogService swaps in a new one when the files change,
+// so readers always see a consistent set of products without any locking.
+// A snapshot for one changed file reuses what that file does not affect: a discount file keeps the product table
+// and its indexes, and updates only its own keys in the discount index and its own price history segment.
+// A new product file is appended: its rows are added to the lookups of the productIds, categories and brands it
+// has, and the discount index is kept. Replacing or removing a product file shifts the rows of every later file,
+// so the product table and its indexes are rebuilt from the parsed files (no file is read again).
+public final class CatalogSnapshot {
+    private static final int[] EMPTY_ROWS = new int[0];
+
+    private final long version;
+    private final Instant loadedAt;
+    private final StringDictionary dictionary;
+    private final Map<String, ProductTable> productFiles; // file name -> products parsed from it
+    private final ProductTable products; // all product files joined, in file order
+    private final Map<String, int[]> rowsById; // lower-case productId -> rows of its offers from every store/date
+    private final ProductIndex productIndex;
+    private final Map<String, List<Discount>> discountFiles; // file name -> discounts parsed from it
+    private final DiscountIndex discountIndex;
+    private final Map<String, PriceHistoryStore.Segment> historySegments; // discount file name -> its history entries
+    private volatile PriceHistoryStore priceHistory; // derived lazily
+    private volatile CheapestOfferTable cheapestOffers; // derived lazily for the last day asked for
+    private volatile DiscountTimeline discountTimeline; // derived lazily
+
+    private CatalogSnapshot(long version, StringDictionary dictionary, Map<String, ProductTable> productFiles,
+                            ProductTable products, Map<String, int[]> rowsById, ProductIndex productIndex,
+                            Map<String, List<Discount>> discountFiles, DiscountIndex discountIndex,
+                            Map<String, PriceHistoryStore.Segment> historySegments) {
+        this.version = version;
+        this.loadedAt = Instant.now();
+        this.dictionary = dictionary;
+        this.productFiles = Collections.unmodifiableMap(new LinkedHashMap<>(productFiles));
+        this.products = products;
+        this.rowsById = rowsById;
+        this.productIndex = productIndex;
+        this.discountFiles = Collections.unmodifiableMap(new LinkedHashMap<>(discountFiles));
+        this.discountIndex = discountIndex;
+        this.historySegments = historySegments;
+    }
+
+    // Builds a snapshot from the parsed product and discount files (iteration order of the maps is kept).
+    // All product tables must use the given dictionary.
+    public static CatalogSnapshot of(long version, StringDictionary dictionary, Map<String, ProductTable> productFiles,
+                                     Map<String, List<Discount>> discountFiles) {
+        ProductTable products = ProductTable.concat(dictionary, productFiles.values());
+        return new CatalogSnapshot(version, dictionary, productFiles, products, indexById(products, 0),
+            ProductIndex.build(products), discountFiles, DiscountIndex.build(discountFiles),
+            PriceHistoryStore.segments(productFiles, discountFiles));
+    }
+
+    public static CatalogSnapshot empty() {
+        return of(0, new StringDictionary(), Map.of(), Map.of());
+    }
+
+    // Returns a new snapshot where one product file is added or replaced; the other files are reused as parsed
+    public CatalogSnapshot withProductFile(long version, String fileName, ProductTable products) {
+        Map<String, ProductTable> files = new LinkedHashMap<>(productFiles);
+        boolean appended = files.put(fileName, products) == null;
+        return withProductFiles(version, fileName, files, appended);
+    }
+
+    // Returns a new snapshot where one discount file is added or replaced
+    public CatalogSnapshot withDiscountFile(long version, String fileName, List<Discount> discounts) {
+        Map<String, List<Discount>> files = new LinkedHashMap<>(discountFiles);
+        files.put(fileName, discounts);
+        return withDiscountFiles(version, fileName, files);
+    }
+
+    // Returns a new snapshot without the given product or discount file
+    public CatalogSnapshot withoutFile(long version, String fileName) {
+        if (discountFiles.containsKey(fileName)) {
+            Map<String, List<Discount>> files = new LinkedHashMap<>(discountFiles);
+            files.remove(fileName);
+            return withDiscountFiles(version, fileName, files);
+        }
+        if (productFiles.containsKey(fileName)) {
+            Map<String, ProductTable> files = new LinkedHashMap<>(productFiles);
+            files.remove(fileName);
+            return withProductFiles(version, fileName, files, false);
+        }
+        return new CatalogSnapshot(version, dictionary, productFiles, products, rowsById, productIndex,
+            discountFiles, discountIndex, historySegments);
+    }
+
+    // files are the product files after the change of fileName; the discount index is kept as it is
+    private CatalogSnapshot withProductFiles(long version, String fileName, Map<String, ProductTable> files,
+                                             boolean appended) {
+        ProductTable joined;
+        Map<String, int[]> joinedRowsById;
+        ProductIndex joinedIndex;
+        if (appended) {
+            joined = ProductTable.concat(dictionary, List.of(products, files.get(fileName)));
+            joinedRowsById = new HashMap<>(rowsById);
+            indexById(joined, products.size()).forEach((id, rows) -> joinedRowsById.merge(id, rows, CatalogSnapshot::concat));
+            joinedIndex = productIndex.withAppendedRows(joined, products.size());
+        } else {
+            joined = ProductTable.concat(dictionary, files.values());
+            joinedRowsById = indexById(joined, 0);
+            joinedIndex = ProductIndex.build(joined);
+        }
+        // the history segments priced from this product file are computed again
+        Map<String, PriceHistoryStore.Segment> segments = new HashMap<>(historySegments);
+        discountFiles.forEach((discountFile, discounts) -> {
+            if (fileName.equals(PriceHistoryStore.productFileOf(discountFile))) {
+                putSegment(segments, discountFile, PriceHistoryStore.segment(discountFile, discounts, files));
+            }
+        });
+        return new CatalogSnapshot(version, dictionary, files, joined, joinedRowsById, joinedIndex,
+            discountFiles, discountIndex, segments);
+    }
+
+    // files are the discount files after the change of fileName; the product side is kept as it is
+    private CatalogSnapshot withDiscountFiles(long version, String fileName, Map<String, List<Discount>> files) {
+        List<Discount> replacement = files.get(fileName);
+        Map<String, PriceHistoryStore.Segment> segments = new HashMap<>(historySegments);
+        putSegment(segments, fileName,
+            replacement == null ? null : PriceHistoryStore.segment(fileName, replacement, productFiles));
+        return new CatalogSnapshot(version, dictionary, productFiles, products, rowsById, productIndex, files,
+            discountIndex.withFile(files, fileName, discountFiles.get(fileName), replacement), segments);
+    }
+
+    private static void putSegment(Map<String, PriceHistoryStore.Segment> segments, String fileName,
+                                   PriceHistoryStore.Segment segment) {
+        if (segment == null) {
+            segments.remove(fileName);
+        } else {
+            segments.put(fileName, segment);
+        }
+    }
+
+    public boolean containsFile(String fileName) {
+        return productFiles.containsKey(fileName) || discountFiles.containsKey(fileName);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public Map<String, ProductTable> getProductFiles() {
+        return productFiles;
+    }
+
+    // All products from all files, in file order, as columns
+    public ProductTable getProductTable() {
+        return products;
+    }
+
+    // All products from all files, in file order; Product objects are created as the list is read
+    public List<Product> getProducts() {
+        return products.asList();
+    }
+
+    // Rows in getProductTable() with the given productId, matched case-insensitively
+    public int[] findRowsByProductId(String productId) {
+        if (productId == null) {
+            return EMPTY_ROWS;
+        }
+        return rowsById.getOrDefault(key(productId), EMPTY_ROWS);
+    }
+
+    // All offers (every store and date) for a productId, matched case-insensitively
+    public List<Product> findByProductId(String productId) {
+        int[] rows = findRowsByProductId(productId);
+        List<Product> offers = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            offers.add(products.product(row));
+        }
+        return offers;
+    }
+
+    // Category and brand indexes over getProductTable()
+    public ProductIndex getProductIndex() {
+        return productIndex;
+    }
+
+    public Map<String, List<Discount>> getDiscountFiles() {
+        return discountFiles;
+    }
+
+    // Discounts by (store, productId), for active-discount lookups without any I/O
+    public DiscountIndex getDiscountIndex() {
+        return discountIndex;
+    }
+
+    // Cheapest offer per productId with the discounts active on the given day.
+    // Built on first use and kept until another day is asked for; a new snapshot starts without one,
+    // so the table always follows the current products and discounts.
+    public CheapestOfferTable getCheapestOffers(long epochDay) {
+        CheapestOfferTable offers = cheapestOffers;
+        if (offers == null || offers.getEpochDay() != epochDay) {
+            // two requests may build it at the same time; both results are equal, either one is kept
+            offers = CheapestOfferTable.build(products, discountIndex, epochDay);
+            cheapestOffers = offers;
+        }
+        return offers;
+    }
+
+    // Every discount by validity interval, for the discounts active on any day; built on first use
+    public DiscountTimeline getDiscountTimeline() {
+        DiscountTimeline timeline = discountTimeline;
+        if (timeline == null) {
+            // two requests may build it at the same time; both results are equal, either one is kept
+            timeline = DiscountTimeline.build(discountFiles);
+            discountTimeline = timeline;
+        }
+        return timeline;
+    }
+
+    // Daily base and discounted prices per (store, productId); joined from the per-file segments on first use
+    public PriceHistoryStore getPriceHistory() {
+        PriceHistoryStore history = priceHistory;
+        if (history == null) {
+            // two requests may build it at the same time; both results are equal, either one is kept
+            history = PriceHistoryStore.assemble(discountFiles, historySegments);
+            priceHistory = history;
+        }
+        return history;
+    }
+
+    private static String key(String productId) {
+        return productId.toLowerCase();
+    }
+
+    // lower-case productId -> its rows from the given row to the end of the table
+    private static Map<String, int[]> indexById(ProductTable products, int from) {
+        // lower-case each distinct id once, not once per row
+        Map<Integer, String> keys = new HashMap<>();
+        RowGroups<String> rows = new RowGroups<>();
+        for (int row = from; row < products.size(); row++) {
+            String id = keys.computeIfAbsent(products.productIdCode(row), code -> {
+                String productId = products.getDictionary().get(code);
+                return productId != null ? key(productId) : null;
+            });
+            if (id != null) {
+                rows.add(id, row);
+            }
+        }
+        return rows.build();
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] rows = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, rows, first.length, second.length);
+        return rows;
+    }
+}
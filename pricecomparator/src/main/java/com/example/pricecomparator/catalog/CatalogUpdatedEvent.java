@@ -0,0 +1,34 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.Set;
+
+// Published (as a Spring application event) after CatalogService swaps in a new snapshot.
+// Carries both snapshots so listeners can compare only what changed instead of rescanning the catalog.
+public final class CatalogUpdatedEvent {
+    private final CatalogSnapshot previous;
+    private final CatalogSnapshot current;
+    private final Set<String> changedFiles; // null after a full reload
+
+    public CatalogUpdatedEvent(CatalogSnapshot previous, CatalogSnapshot current, Set<String> changedFiles) {
+        this.previous = previous;
+        this.current = current;
+        this.changedFiles = changedFiles;
+    }
+
+    public CatalogSnapshot getPrevious() {
+        return previous;
+    }
+
+    public CatalogSnapshot getCurrent() {
+        return current;
+    }
+
+    // Product and discount files added, replaced or removed; null when every file was reloaded
+    public Set<String> getChangedFiles() {
+        return changedFiles;
+    }
+
+    public boolean isFullReload() {
+        return changedFiles == null;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// The cheapest offer of every productId on one day, after the discount active that day.
+// Built once per snapshot and day (CatalogSnapshot.getCheapestOffers), so pricing a basket line is one
+// hash lookup instead of comparing every offer and looking up its discount again.
+// It also keeps the cheapest offer of every productId in each store that sells it, which is what a basket
+// plan limited to a few stores chooses from (StorePlanner).
+// Equal prices keep the first offer in table order, like Stream.min over the offers.
+public final class CheapestOfferTable {
+    private final long epochDay;
+    private final Map<String, Integer> slots; // lower-case productId -> slot
+    private final int[] rows; // slot -> row in the product table
+    private final double[] unitPrices; // slot -> price after the discount
+    private final int[] offerStart; // slot -> first store offer of the slot; offers of slot s end at offerStart[s + 1]
+    private final int[] offerStores; // store offer -> store dictionary code
+    private final int[] offerRows; // store offer -> row in the product table
+    private final double[] offerPrices; // store offer -> price after the discount
+
+    private CheapestOfferTable(long epochDay, Map<String, Integer> slots, int[] rows, double[] unitPrices,
+                               int[] offerStart, int[] offerStores, int[] offerRows, double[] offerPrices) {
+        this.epochDay = epochDay;
+        this.slots = slots;
+        this.rows = rows;
+        this.unitPrices = unitPrices;
+        this.offerStart = offerStart;
+        this.offerStores = offerStores;
+        this.offerRows = offerRows;
+        this.offerPrices = offerPrices;
+    }
+
+    public static CheapestOfferTable build(ProductTable products, DiscountIndex discounts, long epochDay) {
+        Map<String, Integer> slots = new HashMap<>();
+        Map<Integer, Integer> slotByCode = new HashMap<>(); // dictionary code -> slot, so each id is lower-cased once
+        int[] rows = new int[16];
+        double[] unitPrices = new double[16];
+        StoreOffers storeOffers = new StoreOffers();
+
+        for (int row = 0; row < products.size(); row++) {
+            String productId = products.productId(row);
+            if (productId == null) {
+                continue;
+            }
+            double unitPrice = discounts.discountedPrice(products, row, epochDay);
+            Integer slot = slotByCode.get(products.productIdCode(row));
+            if (slot == null) {
+                String key = productId.toLowerCase();
+                slot = slots.get(key);
+                if (slot == null) {
+                    // first offer of this productId: take the next free slot
+                    slot = slots.size();
+                    slots.put(key, slot);
+                    if (slot == rows.length) {
+                        rows = Arrays.copyOf(rows, slot * 2);
+                        unitPrices = Arrays.copyOf(unitPrices, slot * 2);
+                    }
+                    rows[slot] = row;
+                    unitPrices[slot] = unitPrice;
+                }
+                slotByCode.put(products.productIdCode(row), slot);
+            }
+
+            if (unitPrice < unitPrices[slot]) {
+                rows[slot] = row;
+                unitPrices[slot] = unitPrice;
+            }
+            storeOffers.offer(slot, products.storeCode(row), row, unitPrice);
+        }
+
+        return storeOffers.build(epochDay, slots, Arrays.copyOf(rows, slots.size()),
+            Arrays.copyOf(unitPrices, slots.size()));
+    }
+
+    // The day whose discounts are applied
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    // Slot of the productId (matched case-insensitively), or -1 if no store sells it
+    public int find(String productId) {
+        Integer slot = productId != null ? slots.get(productId.toLowerCase()) : null;
+        return slot != null ? slot : -1;
+    }
+
+    // Row of the cheapest offer in the snapshot's product table
+    public int row(int slot) {
+        return rows[slot];
+    }
+
+    // Price of the cheapest offer after its discount
+    public double unitPrice(int slot) {
+        return unitPrices[slot];
+    }
+
+    // Number of distinct productIds
+    public int size() {
+        return rows.length;
+    }
+
+    // Store offers of a slot are the indexes from firstOffer(slot) (inclusive) to endOffer(slot) (exclusive),
+    // one per store, in the order the stores first list the product
+    public int firstOffer(int slot) {
+        return offerStart[slot];
+    }
+
+    public int endOffer(int slot) {
+        return offerStart[slot + 1];
+    }
+
+    // Dictionary code of the store making the offer (see ProductTable.storeCode)
+    public int offerStore(int offer) {
+        return offerStores[offer];
+    }
+
+    // Row of the store's cheapest offer in the snapshot's product table
+    public int offerRow(int offer) {
+        return offerRows[offer];
+    }
+
+    // Price of the store's cheapest offer after its discount
+    public double offerPrice(int offer) {
+        return offerPrices[offer];
+    }
+
+    // Collects the cheapest offer per (slot, store) while the rows are scanned, then groups them by slot
+    private static final class StoreOffers {
+        private final Map<Long, Integer> byKey = new HashMap<>(); // slot << 32 | store code -> offer
+        private int size;
+        private int[] slots = new int[16];
+        private int[] stores = new int[16];
+        private int[] rows = new int[16];
+        private double[] prices = new double[16];
+
+        private void offer(int slot, int store, int row, double price) {
+            long key = (long) slot << 32 | (store & 0xffffffffL);
+            Integer offer = byKey.get(key);
+            if (offer == null) {
+                if (size == slots.length) {
+                    slots = Arrays.copyOf(slots, size * 2);
+                    stores = Arrays.copyOf(stores, size * 2);
+                    rows = Arrays.copyOf(rows, size * 2);
+                    prices = Arrays.copyOf(prices, size * 2);
+                }
+                byKey.put(key, size);
+                slots[size] = slot;
+                stores[size] = store;
+                rows[size] = row;
+                prices[size] = price;
+                size++;
+            } else if (price < prices[offer]) {
+                rows[offer] = row;
+                prices[offer] = price;
+            }
+        }
+
+        // counting sort by slot, keeping the order offers were first seen within a slot
+        private CheapestOfferTable build(long epochDay, Map<String, Integer> slotsById, int[] cheapestRows,
+                                         double[] cheapestPrices) {
+            int[] start = new int[cheapestRows.length + 1];
+            for (int i = 0; i < size; i++) {
+                start[slots[i] + 1]++;
+            }
+            for (int s = 0; s < cheapestRows.length; s++) {
+                start[s + 1] += start[s];
+            }
+            int[] next = Arrays.copyOf(start, cheapestRows.length);
+            int[] sortedStores = new int[size];
+            int[] sortedRows = new int[size];
+            double[] sortedPrices = new double[size];
+            for (int i = 0; i < size; i++) {
+                int to = next[slots[i]]++;
+                sortedStores[to] = stores[i];
+                sortedRows[to] = rows[i];
+                sortedPrices[to] = prices[i];
+            }
+            return new CheapestOfferTable(epochDay, slotsById, cheapestRows, cheapestPrices, start, sortedStores,
+                sortedRows, sortedPrices);
+        }
+    }
+}
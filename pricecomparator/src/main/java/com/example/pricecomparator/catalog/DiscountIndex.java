@@ -0,0 +1,230 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.pricecomparator.models.Discount;
+
+// Lookup table for discounts, keyed by (store, productId).
+// Each key holds its discounts sorted by start day, so finding the discount active on a given day
+// is one hash lookup plus a binary search over the validity intervals.
+// When one discount file changes, withFile() rebuilds only the keys that file touches and shares the rest.
+public final class DiscountIndex {
+    private static final DiscountIndex EMPTY = new DiscountIndex(Map.of(), Map.of());
+
+    private final Map<String, Intervals> byKey;
+    private final Map<String, Double> maxByFile; // file name -> largest percentage in it
+    private final double maxPercentage;
+
+    private DiscountIndex(Map<String, Intervals> byKey, Map<String, Double> maxByFile) {
+        this.byKey = byKey;
+        this.maxByFile = maxByFile;
+        this.maxPercentage = maxByFile.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+    }
+
+    public static DiscountIndex empty() {
+        return EMPTY;
+    }
+
+    // Builds the index from already parsed discount files (file name -> discounts), in file order
+    public static DiscountIndex build(Map<String, List<Discount>> discountFiles) {
+        Map<String, Group> grouped = new HashMap<>();
+        Map<String, Double> maxByFile = new HashMap<>();
+        discountFiles.forEach((fileName, discounts) -> {
+            for (Discount d : discounts) {
+                grouped.computeIfAbsent(key(d.getStore(), d.getProductId()), k -> new Group()).add(d, fileName);
+            }
+            maxByFile.put(fileName, maxPercentage(discounts));
+        });
+
+        Map<String, Integer> positions = positions(discountFiles);
+        Map<String, Intervals> byKey = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((key, group) -> byKey.put(key, new Intervals(group, positions)));
+        return new DiscountIndex(byKey, maxByFile);
+    }
+
+    // The index after one file was added, replaced or removed. discountFiles are all files after the change,
+    // in file order; previous and replacement are the file's discounts before and after (null when absent).
+    // Only the keys with a discount in previous or replacement are rebuilt; every other key keeps its intervals.
+    public DiscountIndex withFile(Map<String, List<Discount>> discountFiles, String fileName,
+                                  List<Discount> previous, List<Discount> replacement) {
+        Map<String, Group> added = new HashMap<>();
+        if (replacement != null) {
+            for (Discount d : replacement) {
+                added.computeIfAbsent(key(d.getStore(), d.getProductId()), k -> new Group()).add(d, fileName);
+            }
+        }
+        Set<String> keys = new HashSet<>(added.keySet());
+        if (previous != null) {
+            for (Discount d : previous) {
+                keys.add(key(d.getStore(), d.getProductId()));
+            }
+        }
+
+        Map<String, Integer> positions = positions(discountFiles);
+        Map<String, Intervals> next = new HashMap<>(byKey);
+        for (String key : keys) {
+            // the other files' discounts of the key, still in (start day, file order), then the new ones
+            Group group = new Group();
+            Intervals current = byKey.get(key);
+            if (current != null) {
+                for (int i = 0; i < current.discounts.length; i++) {
+                    if (!current.files[i].equals(fileName)) {
+                        group.add(current.discounts[i], current.files[i]);
+                    }
+                }
+            }
+            Group fromFile = added.get(key);
+            if (fromFile != null) {
+                group.addAll(fromFile);
+            }
+            if (group.isEmpty()) {
+                next.remove(key);
+            } else {
+                next.put(key, new Intervals(group, positions));
+            }
+        }
+
+        Map<String, Double> maxByFile = new HashMap<>(this.maxByFile);
+        maxByFile.remove(fileName);
+        if (replacement != null) {
+            maxByFile.put(fileName, maxPercentage(replacement));
+        }
+        return new DiscountIndex(next, maxByFile);
+    }
+
+    // Returns the discount active on the given day for this store and product, or null.
+    // A discount is active from its fromDay (inclusive) until its toDay (exclusive).
+    // When several discounts overlap, the one that started most recently wins.
+    public Discount findActive(String store, String productId, long epochDay) {
+        if (store == null || productId == null) {
+            return null;
+        }
+        Intervals intervals = byKey.get(key(store, productId));
+        return intervals == null ? null : intervals.findActive(epochDay);
+    }
+
+    // Price of a product table row after the discount active on that day (same formula as
+    // DiscountService.getDiscountedPrice)
+    public double discountedPrice(ProductTable products, int row, long epochDay) {
+        Discount discount = findActive(products.store(row), products.productId(row), epochDay);
+        double price = products.price(row);
+        return discount == null ? price : price * (1 - discount.getPercentageOfDiscount() / 100.0);
+    }
+
+    // The largest discount percentage of any day; no discounted price can be lower than price * (1 - max / 100)
+    public double getMaxPercentage() {
+        return maxPercentage;
+    }
+
+    // Number of distinct (store, productId) keys
+    public int size() {
+        return byKey.size();
+    }
+
+    private static String key(String store, String productId) {
+        return store.toLowerCase() + '|' + productId.toLowerCase();
+    }
+
+    private static double maxPercentage(List<Discount> discounts) {
+        double max = 0;
+        for (Discount d : discounts) {
+            max = Math.max(max, d.getPercentageOfDiscount());
+        }
+        return max;
+    }
+
+    private static Map<String, Integer> positions(Map<String, List<Discount>> discountFiles) {
+        Map<String, Integer> positions = new HashMap<>(discountFiles.size() * 2);
+        for (String fileName : discountFiles.keySet()) {
+            positions.put(fileName, positions.size());
+        }
+        return positions;
+    }
+
+    // Discounts of one key with the file each comes from, in the order they were added
+    private static final class Group {
+        private final List<Discount> discounts = new ArrayList<>();
+        private final List<String> files = new ArrayList<>();
+
+        void add(Discount discount, String fileName) {
+            discounts.add(discount);
+            files.add(fileName);
+        }
+
+        void addAll(Group other) {
+            discounts.addAll(other.discounts);
+            files.addAll(other.files);
+        }
+
+        boolean isEmpty() {
+            return discounts.isEmpty();
+        }
+    }
+
+    // Discounts of one (store, productId) key, sorted by start day, then file order, then row.
+    // maxTo[i] is the latest end day among entries 0..i, which lets the backward scan stop early.
+    private static final class Intervals {
+        private final int[] from;
+        private final int[] to;
+        private final int[] maxTo;
+        private final Discount[] discounts;
+        private final String[] files; // file each discount comes from, so a changed file can be taken out
+
+        // The group must list the discounts of each file in row order; a stable sort keeps that order
+        Intervals(Group group, Map<String, Integer> positions) {
+            int n = group.discounts.size();
+            Integer[] order = new Integer[n];
+            int[] filePositions = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+                filePositions[i] = positions.get(group.files.get(i));
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(i -> group.discounts.get(i).getFromDay())
+                .thenComparingInt(i -> filePositions[i]));
+
+            from = new int[n];
+            to = new int[n];
+            maxTo = new int[n];
+            discounts = new Discount[n];
+            files = new String[n];
+            for (int i = 0; i < n; i++) {
+                discounts[i] = group.discounts.get(order[i]);
+                files[i] = group.files.get(order[i]);
+                from[i] = discounts[i].getFromDay();
+                to[i] = discounts[i].getToDay();
+                maxTo[i] = i == 0 ? to[i] : Math.max(maxTo[i - 1], to[i]);
+            }
+        }
+
+        Discount findActive(long day) {
+            // last entry that started on or before the day
+            int lo = 0;
+            int hi = from.length - 1;
+            int last = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (from[mid] <= day) {
+                    last = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+
+            // walk back until no earlier entry can still be running
+            for (int i = last; i >= 0 && maxTo[i] > day; i--) {
+                if (to[i] > day) {
+                    return discounts[i];
+                }
+            }
+            return null;
+        }
+    }
+}
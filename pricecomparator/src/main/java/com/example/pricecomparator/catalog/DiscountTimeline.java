@@ -0,0 +1,218 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.pricecomparator.models.Discount;
+
+// Every discount of every file as its validity interval [fromDay, toDay) in epoch days, in a static interval tree:
+// the discounts sorted by start day form an implicit balanced tree (the middle of each range is its root) where
+// every node also knows the latest end day of its subtree. The discounts active on a day are found by visiting
+// only subtrees that can still contain one, O(log n + active) for any day, past or future.
+// The best-global ranking of a day (best discount per productId, highest first) is kept for the last few days
+// asked for (least recently used evicted first, so today's stays while it is being asked for), so it is computed
+// once per day and per snapshot (a new snapshot starts without any).
+public final class DiscountTimeline {
+    private static final int MAX_RANKINGS = 8;
+
+    private final Discount[] discounts; // sorted by start day
+    private final String[] files; // file each discount comes from
+    private final int[] sequence; // position -> index of the discount in file order
+    private final int[] positionOf; // index in file order -> position
+    private final int[] from;
+    private final int[] to; // exclusive
+    private final int[] maxTo; // maxTo[mid] = latest end day in the subtree rooted at mid
+    // epoch day -> ranking, in access order; guarded by itself
+    private final Map<Long, Ranking> rankings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Ranking> eldest) {
+            return size() > MAX_RANKINGS;
+        }
+    };
+
+    private DiscountTimeline(Discount[] discounts, String[] files, int[] sequence, int[] from, int[] to) {
+        this.discounts = discounts;
+        this.files = files;
+        this.sequence = sequence;
+        this.positionOf = new int[sequence.length];
+        for (int position = 0; position < sequence.length; position++) {
+            positionOf[sequence[position]] = position;
+        }
+        this.from = from;
+        this.to = to;
+        this.maxTo = new int[discounts.length];
+        buildMaxTo(0, discounts.length);
+    }
+
+    // Builds the tree from the parsed discount files (file name -> discounts), in file order
+    public static DiscountTimeline build(Map<String, List<Discount>> discountFiles) {
+        List<Discount> all = new ArrayList<>();
+        List<String> allFiles = new ArrayList<>();
+        discountFiles.forEach((fileName, discounts) -> {
+            for (Discount discount : discounts) {
+                all.add(discount);
+                allFiles.add(fileName);
+            }
+        });
+
+        int n = all.size();
+        int[] starts = new int[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            starts[i] = all.get(i).getFromDay();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(starts[a], starts[b]));
+
+        Discount[] discounts = new Discount[n];
+        String[] files = new String[n];
+        int[] sequence = new int[n];
+        int[] from = new int[n];
+        int[] to = new int[n];
+        for (int i = 0; i < n; i++) {
+            int source = order[i];
+            discounts[i] = all.get(source);
+            files[i] = allFiles.get(source);
+            sequence[i] = source;
+            from[i] = starts[source];
+            to[i] = discounts[i].getToDay();
+        }
+        return new DiscountTimeline(discounts, files, sequence, from, to);
+    }
+
+    // Number of discounts in the tree
+    public int size() {
+        return discounts.length;
+    }
+
+    // Positions (see discount(), file()) of the discounts active on the day, in file order
+    public int[] activeOn(long epochDay) {
+        Positions found = new Positions();
+        collect(0, discounts.length, epochDay, found);
+        int[] active = Arrays.copyOf(found.positions, found.size);
+        for (int i = 0; i < active.length; i++) {
+            active[i] = sequence[active[i]];
+        }
+        Arrays.sort(active);
+        for (int i = 0; i < active.length; i++) {
+            active[i] = positionOf[active[i]];
+        }
+        return active;
+    }
+
+    public Discount discount(int position) {
+        return discounts[position];
+    }
+
+    // Name of the file the discount was read from
+    public String file(int position) {
+        return files[position];
+    }
+
+    // The best discount of every productId active on the day, highest percentage first.
+    // A productId with several active discounts keeps the highest one, the first in file order on ties;
+    // equal percentages are ranked in file order.
+    public Ranking bestPerProduct(long epochDay) {
+        Ranking ranking;
+        synchronized (rankings) {
+            ranking = rankings.get(epochDay);
+        }
+        if (ranking == null) {
+            // built outside the lock; two requests may build it at the same time; both results are equal,
+            // either one is kept
+            ranking = rank(epochDay);
+            synchronized (rankings) {
+                rankings.put(epochDay, ranking);
+            }
+        }
+        return ranking;
+    }
+
+    private Ranking rank(long epochDay) {
+        Map<String, Integer> best = new HashMap<>(); // productId -> position
+        for (int position : activeOn(epochDay)) {
+            Discount discount = discounts[position];
+            best.merge(discount.getProductId(), position, (kept, candidate) ->
+                discounts[candidate].getPercentageOfDiscount() > discounts[kept].getPercentageOfDiscount() ? candidate : kept);
+        }
+        int[] positions = best.values().stream()
+            .sorted((a, b) -> {
+                int byPercentage = Double.compare(discounts[b].getPercentageOfDiscount(), discounts[a].getPercentageOfDiscount());
+                return byPercentage != 0 ? byPercentage : Integer.compare(sequence[a], sequence[b]);
+            })
+            .mapToInt(Integer::intValue)
+            .toArray();
+        return new Ranking(epochDay, positions);
+    }
+
+    // Adds the discounts of the subtree [lo, hi) active on the day
+    private void collect(int lo, int hi, long day, Positions out) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxTo[mid] <= day) {
+            return; // everything in this subtree ended before the day
+        }
+        collect(lo, mid, day, out);
+        if (from[mid] <= day) {
+            if (to[mid] > day) {
+                out.add(mid);
+            }
+            collect(mid + 1, hi, day, out);
+        }
+        // otherwise the right subtree starts even later than mid, after the day
+    }
+
+    private int buildMaxTo(int lo, int hi) {
+        if (lo >= hi) {
+            return Integer.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        maxTo[mid] = Math.max(to[mid], Math.max(buildMaxTo(lo, mid), buildMaxTo(mid + 1, hi)));
+        return maxTo[mid];
+    }
+
+    private static final class Positions {
+        private int[] positions = new int[16];
+        private int size;
+
+        private void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    // The best discount per productId on one day, as positions in the timeline
+    public final class Ranking {
+        private final long epochDay;
+        private final int[] positions;
+
+        private Ranking(long epochDay, int[] positions) {
+            this.epochDay = epochDay;
+            this.positions = positions;
+        }
+
+        public long getEpochDay() {
+            return epochDay;
+        }
+
+        public int size() {
+            return positions.length;
+        }
+
+        public Discount discount(int rank) {
+            return discounts[positions[rank]];
+        }
+
+        public String file(int rank) {
+            return files[positions[rank]];
+        }
+    }
+}
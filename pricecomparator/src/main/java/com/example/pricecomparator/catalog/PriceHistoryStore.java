@@ -0,0 +1,363 @@
+package com.example.pricecomparator.catalog;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.pricecomparator.models.Discount;
+
+// Daily price history per (store, productId), built from the discount files and the product file of the same
+// store and date (lidl_discounts_2025-05-01.csv + lidl_2025-05-01.csv). Each discount file is first turned into a
+// Segment (its discounts with their base prices); the store joins the segments of all files.
+// Each series keeps its points in primitive arrays sorted by day, so a date range is two binary searches.
+// Every entry also has a sequence number, its position in file order (discount file, then row), which
+// lets a full export walk all entries in that order without sorting and resume from any position.
+// Discounts without a base price on that day (no product file, or the product is not in it) are left out.
+public final class PriceHistoryStore {
+    private static final PriceHistoryStore EMPTY = new PriceHistoryStore(Map.of(), List.of(), new int[0], new int[0]);
+
+    private final Map<String, List<Series>> byProductId; // productId (as written in the discount file) -> one series per store
+    private final List<Series> series; // every series, in the order it first appears in the files
+    private final int[] seriesBySequence; // sequence -> position in series
+    private final int[] indexBySequence; // sequence -> index inside that series
+
+    private PriceHistoryStore(Map<String, List<Series>> byProductId, List<Series> series, int[] seriesBySequence,
+                              int[] indexBySequence) {
+        this.byProductId = byProductId;
+        this.series = series;
+        this.seriesBySequence = seriesBySequence;
+        this.indexBySequence = indexBySequence;
+    }
+
+    public static PriceHistoryStore empty() {
+        return EMPTY;
+    }
+
+    // Discount files are read in map order; entry sequence numbers follow that order and the rows in each file
+    public static PriceHistoryStore build(Map<String, ProductTable> productFiles, Map<String, List<Discount>> discountFiles) {
+        return assemble(discountFiles, segments(productFiles, discountFiles));
+    }
+
+    // The segment of every discount file that has a product file of the same store and date
+    public static Map<String, Segment> segments(Map<String, ProductTable> productFiles,
+                                                Map<String, List<Discount>> discountFiles) {
+        Map<String, Segment> segments = new HashMap<>();
+        discountFiles.forEach((fileName, discounts) -> {
+            Segment segment = segment(fileName, discounts, productFiles);
+            if (segment != null) {
+                segments.put(fileName, segment);
+            }
+        });
+        return segments;
+    }
+
+    // The entries one discount file contributes, or null when there is no product file of the same store and date
+    public static Segment segment(String fileName, List<Discount> discounts, Map<String, ProductTable> productFiles) {
+        FileKey key = FileKey.parse(fileName);
+        ProductTable products = key == null ? null : productFiles.get(key.productFile());
+        if (products == null) {
+            return null;
+        }
+        Map<String, Double> basePrices = firstPriceById(products);
+        List<Discount> kept = new ArrayList<>();
+        double[] prices = new double[discounts.size()];
+        for (Discount discount : discounts) {
+            Double basePrice = discount.getProductId() == null ? null : basePrices.get(discount.getProductId().toLowerCase());
+            if (basePrice != null) {
+                prices[kept.size()] = basePrice;
+                kept.add(discount);
+            }
+        }
+        return new Segment(key.store, (int) LocalDate.parse(key.date).toEpochDay(), kept.toArray(new Discount[0]),
+            Arrays.copyOf(prices, kept.size()));
+    }
+
+    // Name of the product file whose prices a discount file's segment uses, or null if the name has no store and date
+    public static String productFileOf(String discountFileName) {
+        FileKey key = FileKey.parse(discountFileName);
+        return key == null ? null : key.productFile();
+    }
+
+    // Joins the segments of the discount files (in map order) into one store; files without a segment are skipped
+    public static PriceHistoryStore assemble(Map<String, List<Discount>> discountFiles, Map<String, Segment> segments) {
+        Map<String, Map<String, Series.Builder>> builders = new LinkedHashMap<>(); // productId -> store -> builder
+        List<Series.Builder> order = new ArrayList<>();
+        int sequence = 0;
+
+        for (String fileName : discountFiles.keySet()) {
+            Segment segment = segments.get(fileName);
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < segment.discounts.length; i++) {
+                Discount discount = segment.discounts[i];
+                Series.Builder builder = builders
+                    .computeIfAbsent(discount.getProductId(), id -> new LinkedHashMap<>())
+                    .computeIfAbsent(segment.store, store -> {
+                        Series.Builder created = new Series.Builder(store, discount.getProductId());
+                        order.add(created);
+                        return created;
+                    });
+                builder.add(segment.day, sequence++, segment.basePrices[i], discount);
+            }
+        }
+
+        if (order.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, List<Series>> byProductId = new HashMap<>();
+        List<Series> series = new ArrayList<>(order.size());
+        int[] seriesBySequence = new int[sequence];
+        int[] indexBySequence = new int[sequence];
+        for (Series.Builder builder : order) {
+            Series built = builder.build();
+            for (int i = 0; i < built.size(); i++) {
+                seriesBySequence[built.sequences[i]] = series.size();
+                indexBySequence[built.sequences[i]] = i;
+            }
+            series.add(built);
+            byProductId.computeIfAbsent(built.productId, id -> new ArrayList<>()).add(built);
+        }
+        return new PriceHistoryStore(byProductId, Collections.unmodifiableList(series), seriesBySequence, indexBySequence);
+    }
+
+    // Series of the productId (matched exactly), one per store; all series when productId is null
+    public Collection<Series> find(String productId) {
+        if (productId == null) {
+            return series;
+        }
+        return byProductId.getOrDefault(productId, List.of());
+    }
+
+    public int seriesCount() {
+        return series.size();
+    }
+
+    // Number of entries; sequence numbers run from 0 to size() - 1
+    public int size() {
+        return seriesBySequence.length;
+    }
+
+    // The series holding the entry with the given sequence number
+    public Series seriesAt(int sequence) {
+        return series.get(seriesBySequence[sequence]);
+    }
+
+    // Index of the entry with the given sequence number inside seriesAt(sequence)
+    public int indexAt(int sequence) {
+        return indexBySequence[sequence];
+    }
+
+    // productId -> first price in the product file, matched case-insensitively like the old file lookup
+    private static Map<String, Double> firstPriceById(ProductTable products) {
+        Map<String, Double> prices = new HashMap<>(products.size() * 2);
+        for (int row = 0; row < products.size(); row++) {
+            String productId = products.productId(row);
+            if (productId != null) {
+                prices.putIfAbsent(productId.toLowerCase(), products.price(row));
+            }
+        }
+        return prices;
+    }
+
+    // store and date of a discount file named <store>_discounts_<YYYY-MM-DD>.csv
+    private static final class FileKey {
+        private final String store;
+        private final String date;
+
+        private FileKey(String store, String date) {
+            this.store = store;
+            this.date = date;
+        }
+
+        private static FileKey parse(String fileName) {
+            String[] parts = fileName.split("_");
+            if (parts.length != 3 || !parts[1].equals("discounts") || !parts[2].endsWith(".csv")) {
+                return null;
+            }
+            String date = parts[2].substring(0, parts[2].length() - ".csv".length());
+            try {
+                LocalDate.parse(date);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+            return new FileKey(parts[0].toLowerCase(), date);
+        }
+
+        private String productFile() {
+            return store + "_" + date + ".csv";
+        }
+    }
+
+    // The discounts of one discount file that have a base price, with that price, in row order.
+    // Kept per file by the snapshot, so a changed file only recomputes its own segment.
+    public static final class Segment {
+        private final String store;
+        private final int day;
+        private final Discount[] discounts;
+        private final double[] basePrices;
+
+        private Segment(String store, int day, Discount[] discounts, double[] basePrices) {
+            this.store = store;
+            this.day = day;
+            this.discounts = discounts;
+            this.basePrices = basePrices;
+        }
+    }
+
+    // The history of one product in one store. Index i is the i-th entry by day; entries on the same day
+    // (the product listed twice in a file) keep file order.
+    public static final class Series {
+        private final String store;
+        private final String productId;
+        private final int[] days; // epoch days, ascending
+        private final int[] sequences; // position across all discount files, for merging series in file order
+        private final double[] basePrices;
+        private final double[] effectivePrices;
+        private final double[] percentages;
+        private final Discount[] discounts; // name, brand and category shown with each entry
+
+        private Series(String store, String productId, int[] days, int[] sequences, double[] basePrices,
+                       double[] effectivePrices, double[] percentages, Discount[] discounts) {
+            this.store = store;
+            this.productId = productId;
+            this.days = days;
+            this.sequences = sequences;
+            this.basePrices = basePrices;
+            this.effectivePrices = effectivePrices;
+            this.percentages = percentages;
+            this.discounts = discounts;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public int size() {
+            return days.length;
+        }
+
+        // First index whose day is on or after the given day (size() if none)
+        public int fromIndex(long epochDay) {
+            int lo = 0;
+            int hi = days.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] < epochDay) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // First index whose day is after the given day (size() if none)
+        public int toIndex(long epochDay) {
+            int lo = 0;
+            int hi = days.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] <= epochDay) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        public long day(int i) {
+            return days[i];
+        }
+
+        public int sequence(int i) {
+            return sequences[i];
+        }
+
+        public double basePrice(int i) {
+            return basePrices[i];
+        }
+
+        public double effectivePrice(int i) {
+            return effectivePrices[i];
+        }
+
+        public double percentage(int i) {
+            return percentages[i];
+        }
+
+        public Discount discount(int i) {
+            return discounts[i];
+        }
+
+        private static final class Builder {
+            private final String store;
+            private final String productId;
+            private final List<Discount> discounts = new ArrayList<>();
+            private int size;
+            private int[] days = new int[4];
+            private int[] sequences = new int[4];
+            private double[] basePrices = new double[4];
+
+            private Builder(String store, String productId) {
+                this.store = store;
+                this.productId = productId;
+            }
+
+            private void add(long day, int sequence, double basePrice, Discount discount) {
+                if (size == days.length) {
+                    days = Arrays.copyOf(days, size * 2);
+                    sequences = Arrays.copyOf(sequences, size * 2);
+                    basePrices = Arrays.copyOf(basePrices, size * 2);
+                }
+                days[size] = (int) day;
+                sequences[size] = sequence;
+                basePrices[size] = basePrice;
+                discounts.add(discount);
+                size++;
+            }
+
+            // Files usually come in date order already; otherwise the entries are put in (day, sequence) order
+            private Series build() {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> days[a] != days[b]
+                    ? Integer.compare(days[a], days[b])
+                    : Integer.compare(sequences[a], sequences[b]));
+
+                int[] sortedDays = new int[size];
+                int[] sortedSequences = new int[size];
+                double[] sortedBasePrices = new double[size];
+                double[] effectivePrices = new double[size];
+                double[] percentages = new double[size];
+                Discount[] sortedDiscounts = new Discount[size];
+                for (int i = 0; i < size; i++) {
+                    int from = order[i];
+                    Discount discount = discounts.get(from);
+                    sortedDays[i] = days[from];
+                    sortedSequences[i] = sequences[from];
+                    sortedBasePrices[i] = basePrices[from];
+                    percentages[i] = discount.getPercentageOfDiscount();
+                    effectivePrices[i] = basePrices[from] * (1 - percentages[i] / 100.0);
+                    sortedDiscounts[i] = discount;
+                }
+                return new Series(store, productId, sortedDays, sortedSequences, sortedBasePrices, effectivePrices,
+                    percentages, sortedDiscounts);
+            }
+        }
+    }
+}
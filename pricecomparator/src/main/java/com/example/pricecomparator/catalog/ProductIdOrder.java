@@ -0,0 +1,76 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// The rows of a ProductTable sorted by lower-case productId (rows without one are left out); equal ids keep
+// table order. Two orders can be merge-joined on productId with one pass over each, instead of hashing one
+// side on every comparison. Built once per table (ProductTable.byProductId) and immutable.
+public final class ProductIdOrder {
+    private final int[] rows;
+    private final String[] keys; // keys[i] is the lower-case productId of rows[i]
+
+    private ProductIdOrder(int[] rows, String[] keys) {
+        this.rows = rows;
+        this.keys = keys;
+    }
+
+    // Sorts the distinct ids, then places the rows by the rank of their id (counting sort), so the cost is
+    // a sort of the distinct ids plus two passes over the rows
+    static ProductIdOrder build(ProductTable products) {
+        Map<Integer, String> keyByCode = new HashMap<>(); // lower-case each distinct id once
+        for (int row = 0; row < products.size(); row++) {
+            int code = products.productIdCode(row);
+            if (!keyByCode.containsKey(code)) {
+                String productId = products.getDictionary().get(code);
+                keyByCode.put(code, productId != null ? productId.toLowerCase() : null);
+            }
+        }
+        String[] distinct = keyByCode.values().stream().filter(key -> key != null).distinct().sorted().toArray(String[]::new);
+        Map<String, Integer> rankByKey = new HashMap<>(distinct.length * 2);
+        for (int rank = 0; rank < distinct.length; rank++) {
+            rankByKey.put(distinct[rank], rank);
+        }
+
+        int[] rankOfRow = new int[products.size()];
+        int[] start = new int[distinct.length + 1];
+        int count = 0;
+        for (int row = 0; row < products.size(); row++) {
+            String key = keyByCode.get(products.productIdCode(row));
+            rankOfRow[row] = key != null ? rankByKey.get(key) : -1;
+            if (key != null) {
+                start[rankOfRow[row] + 1]++;
+                count++;
+            }
+        }
+        for (int rank = 0; rank < distinct.length; rank++) {
+            start[rank + 1] += start[rank];
+        }
+        int[] rows = new int[count];
+        String[] keys = new String[count];
+        for (int row = 0; row < products.size(); row++) {
+            int rank = rankOfRow[row];
+            if (rank >= 0) {
+                int to = start[rank]++;
+                rows[to] = row;
+                keys[to] = distinct[rank];
+            }
+        }
+        return new ProductIdOrder(rows, keys);
+    }
+
+    // Number of rows with a productId
+    public int size() {
+        return rows.length;
+    }
+
+    // Row in the product table at this position of the order
+    public int row(int position) {
+        return rows[position];
+    }
+
+    // Lower-case productId at this position; ascending in position
+    public String key(int position) {
+        return keys[position];
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntToDoubleFunction;
+
+import com.example.pricecomparator.models.Product;
+
+// Secondary indexes over a ProductTable, built with the snapshot:
+//   category          -> rows sorted by price per base unit (best-value queries read a prefix)
+//   category          -> rows sorted by value per unit (price / base quantity, before discounts)
+//   category + brand  -> rows sorted by value per unit (same-brand substitutes)
+// Equal keys keep table order, so results match a stable sort over the whole table.
+// Rows appended at the end of the table (a new product file) are sorted on their own and merged into the lists
+// of the categories and brands they belong to (withAppendedRows); the other lists are shared.
+public final class ProductIndex {
+    private static final int[] NO_ROWS = new int[0];
+    private static final ProductIndex EMPTY = new ProductIndex(Map.of(), Map.of(), Map.of(), new double[0]);
+
+    private final Map<Integer, int[]> byPricePerBaseUnit;
+    private final Map<Integer, int[]> byValue;
+    private final Map<Integer, Map<String, int[]>> byBrandValue; // brand in lower case
+    private final double[] valuesPerUnit;
+
+    private ProductIndex(Map<Integer, int[]> byPricePerBaseUnit, Map<Integer, int[]> byValue,
+                         Map<Integer, Map<String, int[]>> byBrandValue, double[] valuesPerUnit) {
+        this.byPricePerBaseUnit = byPricePerBaseUnit;
+        this.byValue = byValue;
+        this.byBrandValue = byBrandValue;
+        this.valuesPerUnit = valuesPerUnit;
+    }
+
+    public static ProductIndex build(ProductTable products) {
+        return EMPTY.withAppendedRows(products, 0);
+    }
+
+    // The index of a table made of the rows this index covers followed by rows from..size()-1
+    public ProductIndex withAppendedRows(ProductTable products, int from) {
+        int size = products.size();
+        double[] values = Arrays.copyOf(valuesPerUnit, size);
+        for (int row = from; row < size; row++) {
+            double baseQuantity = Product.toBaseQuantity(products.unit(row), products.quantity(row));
+            values[row] = products.price(row) / (Double.isNaN(baseQuantity) ? 1.0 : baseQuantity);
+        }
+        IntToDoubleFunction pricePerBaseUnit = products::pricePerBaseUnit;
+        IntToDoubleFunction valuePerUnit = row -> values[row];
+
+        Map<Integer, int[]> nextByPricePerBaseUnit = new HashMap<>(byPricePerBaseUnit);
+        Map<Integer, int[]> nextByValue = new HashMap<>(byValue);
+        Map<Integer, Map<String, int[]>> nextByBrandValue = new HashMap<>(byBrandValue);
+        Map<Integer, String> brandKeys = new HashMap<>();
+
+        group(products, from, size).forEach((category, rows) -> {
+            // appended rows come after every existing row, so merging them second keeps table order on ties
+            nextByPricePerBaseUnit.put(category,
+                merge(byPricePerBaseUnit(category), sorted(rows, pricePerBaseUnit), pricePerBaseUnit));
+            int[] valueRows = sorted(rows, valuePerUnit);
+            nextByValue.put(category, merge(byValue(category), valueRows, valuePerUnit));
+
+            // split the value order by brand; every brand list stays sorted
+            RowGroups<String> brands = new RowGroups<>();
+            for (int row : valueRows) {
+                brands.add(brandKeys.computeIfAbsent(products.brandCode(row), code -> brandKey(products.brand(row))), row);
+            }
+            Map<String, int[]> brandRows = new HashMap<>(byBrandValue.getOrDefault(category, Map.of()));
+            brands.build().forEach((brand, added) ->
+                brandRows.put(brand, merge(brandRows.getOrDefault(brand, NO_ROWS), added, valuePerUnit)));
+            nextByBrandValue.put(category, brandRows);
+        });
+
+        return new ProductIndex(nextByPricePerBaseUnit, nextByValue, nextByBrandValue, values);
+    }
+
+    // Rows of the category, cheapest price per base unit first
+    public int[] byPricePerBaseUnit(int categoryCode) {
+        return byPricePerBaseUnit.getOrDefault(categoryCode, NO_ROWS);
+    }
+
+    // Rows of the category, lowest value per unit first
+    public int[] byValue(int categoryCode) {
+        return byValue.getOrDefault(categoryCode, NO_ROWS);
+    }
+
+    // Rows of the category and brand (matched case-insensitively), lowest value per unit first
+    public int[] byBrandValue(int categoryCode, String brand) {
+        Map<String, int[]> brands = byBrandValue.get(categoryCode);
+        return brands == null ? NO_ROWS : brands.getOrDefault(brandKey(brand), NO_ROWS);
+    }
+
+    // Price divided by the quantity in kg, l or pieces, before any discount
+    public double valuePerUnit(int row) {
+        return valuesPerUnit[row];
+    }
+
+    private static String brandKey(String brand) {
+        return brand == null ? "" : brand.toLowerCase();
+    }
+
+    // category code -> its rows in [from, to), in table order
+    private static Map<Integer, int[]> group(ProductTable products, int from, int to) {
+        RowGroups<Integer> groups = new RowGroups<>();
+        for (int row = from; row < to; row++) {
+            groups.add(products.categoryCode(row), row);
+        }
+        return groups.build();
+    }
+
+    // Stable merge sort of row numbers by key, without boxing
+    private static int[] sorted(int[] rows, IntToDoubleFunction keys) {
+        int[] result = rows.clone();
+        int[] buffer = new int[rows.length];
+        for (int width = 1; width < result.length; width *= 2) {
+            for (int lo = 0; lo < result.length; lo += 2 * width) {
+                int mid = Math.min(lo + width, result.length);
+                int hi = Math.min(lo + 2 * width, result.length);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (i < mid && (j >= hi || Double.compare(keys.applyAsDouble(result[i]), keys.applyAsDouble(result[j])) <= 0)) {
+                        buffer[k] = result[i++];
+                    } else {
+                        buffer[k] = result[j++];
+                    }
+                }
+            }
+            int[] swap = result;
+            result = buffer;
+            buffer = swap;
+        }
+        return result;
+    }
+
+    // Merges two lists sorted by key; on equal keys the rows of first come before those of second.
+    // second is the few appended rows: each is placed by a binary search in first and the runs of first between
+    // them are block-copied, so a long list is not compared element by element.
+    private static int[] merge(int[] first, int[] second, IntToDoubleFunction keys) {
+        if (first.length == 0) {
+            return second;
+        }
+        int[] merged = new int[first.length + second.length];
+        int copied = 0; // rows of first already in merged
+        int k = 0;
+        for (int row : second) {
+            double key = keys.applyAsDouble(row);
+            // first index in first whose key is greater than the row's key
+            int lo = copied;
+            int hi = first.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (Double.compare(keys.applyAsDouble(first[mid]), key) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            System.arraycopy(first, copied, merged, k, lo - copied);
+            k += lo - copied;
+            copied = lo;
+            merged[k++] = row;
+        }
+        System.arraycopy(first, copied, merged, k, first.length - copied);
+        return merged;
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.example.pricecomparator.models.Product;
+
+// Columnar (struct-of-arrays) storage for product offers: every string column holds StringDictionary codes,
+// numbers are kept in primitive arrays. A row costs a few dozen bytes instead of a Product object with
+// its own strings, so this is how the catalog keeps products in memory.
+// Product objects are only created when a row leaves the service layer (product(row), asList()).
+// Immutable once built.
+public final class ProductTable {
+    private static final int UNMAPPED = -2; // not a code; NULL_CODE is -1
+
+    private final StringDictionary dictionary;
+    private final int size;
+
+    private final int[] productIds;
+    private final int[] names;
+    private final int[] categories;
+    private final int[] brands;
+    private final int[] units;
+    private final int[] currencies;
+    private final int[] stores;
+    private final double[] quantities;
+    private final double[] prices;
+    private final double[] pricesPerBaseUnit; // derived from price, quantity and unit when the row is added
+    private volatile ProductIdOrder productIdOrder; // derived on first use
+
+    ProductTable(StringDictionary dictionary, int size, int[] productIds, int[] names, int[] categories, int[] brands,
+                 int[] units, int[] currencies, int[] stores, double[] quantities, double[] prices,
+                 double[] pricesPerBaseUnit) {
+        this.dictionary = dictionary;
+        this.size = size;
+        this.productIds = productIds;
+        this.names = names;
+        this.categories = categories;
+        this.brands = brands;
+        this.units = units;
+        this.currencies = currencies;
+        this.stores = stores;
+        this.quantities = quantities;
+        this.prices = prices;
+        this.pricesPerBaseUnit = pricesPerBaseUnit;
+    }
+
+    // Wraps columns that already hold dictionary codes (e.g. read from a CatalogFile)
+    static ProductTable of(StringDictionary dictionary, int[] productIds, int[] names, int[] categories, int[] brands,
+                           int[] units, int[] currencies, int[] stores, double[] quantities, double[] prices) {
+        double[] pricesPerBaseUnit = new double[prices.length];
+        for (int row = 0; row < prices.length; row++) {
+            pricesPerBaseUnit[row] = Product.pricePerBaseUnit(prices[row], quantities[row], dictionary.get(units[row]));
+        }
+        return new ProductTable(dictionary, prices.length, productIds, names, categories, brands, units, currencies,
+            stores, quantities, prices, pricesPerBaseUnit);
+    }
+
+    public static Builder builder(StringDictionary dictionary) {
+        return new Builder(dictionary);
+    }
+
+    public static ProductTable empty(StringDictionary dictionary) {
+        return builder(dictionary).build();
+    }
+
+    // Joins tables that use the same dictionary, keeping their order; only primitive arrays are copied
+    public static ProductTable concat(StringDictionary dictionary, Collection<ProductTable> tables) {
+        int total = 0;
+        for (ProductTable table : tables) {
+            if (table.dictionary != dictionary) {
+                throw new IllegalArgumentException("Product tables must share one dictionary");
+            }
+            total += table.size;
+        }
+
+        Builder builder = new Builder(dictionary, total);
+        for (ProductTable table : tables) {
+            builder.addAll(table);
+        }
+        return builder.build();
+    }
+
+    // The same rows with every string column re-encoded for another dictionary, e.g. a fresh one that only holds
+    // the strings still in use; the numeric columns are shared, not copied
+    public ProductTable recode(StringDictionary target) {
+        int[] translation = new int[dictionary.size()]; // old code -> new code, UNMAPPED until first seen
+        Arrays.fill(translation, UNMAPPED);
+        return new ProductTable(target, size, recode(productIds, target, translation), recode(names, target, translation),
+            recode(categories, target, translation), recode(brands, target, translation), recode(units, target, translation),
+            recode(currencies, target, translation), recode(stores, target, translation), quantities, prices,
+            pricesPerBaseUnit);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    // Creates the Product for a row; meant for API responses, not for scanning
+    public Product product(int row) {
+        return new Product(
+            dictionary.get(productIds[row]),
+            dictionary.get(names[row]),
+            dictionary.get(categories[row]),
+            dictionary.get(brands[row]),
+            quantities[row],
+            dictionary.get(units[row]),
+            prices[row],
+            dictionary.get(currencies[row]),
+            dictionary.get(stores[row]));
+    }
+
+    // A read-only list view that creates a Product for each row as it is accessed
+    public List<Product> asList() {
+        return new ProductList();
+    }
+
+    public String productId(int row) {
+        return dictionary.get(productIds[row]);
+    }
+
+    public String name(int row) {
+        return dictionary.get(names[row]);
+    }
+
+    public String category(int row) {
+        return dictionary.get(categories[row]);
+    }
+
+    public String brand(int row) {
+        return dictionary.get(brands[row]);
+    }
+
+    public String store(int row) {
+        return dictionary.get(stores[row]);
+    }
+
+    public String unit(int row) {
+        return dictionary.get(units[row]);
+    }
+
+    public String currency(int row) {
+        return dictionary.get(currencies[row]);
+    }
+
+    public int productIdCode(int row) {
+        return productIds[row];
+    }
+
+    public int categoryCode(int row) {
+        return categories[row];
+    }
+
+    public int brandCode(int row) {
+        return brands[row];
+    }
+
+    public int storeCode(int row) {
+        return stores[row];
+    }
+
+    public double price(int row) {
+        return prices[row];
+    }
+
+    public double quantity(int row) {
+        return quantities[row];
+    }
+
+    public double pricePerBaseUnit(int row) {
+        return pricesPerBaseUnit[row];
+    }
+
+    // The rows sorted by productId, built on first use and kept with the table; an unchanged file keeps its
+    // table across snapshots, so the sort is paid once per ingested file
+    public ProductIdOrder byProductId() {
+        ProductIdOrder order = productIdOrder;
+        if (order == null) {
+            // two threads may build it at the same time; both results are equal, either one is kept
+            order = ProductIdOrder.build(this);
+            productIdOrder = order;
+        }
+        return order;
+    }
+
+    // Heap used by the columns (the shared dictionary is not included)
+    public long estimatedBytes() {
+        return 64L + 7L * (16 + 4L * size) + 3L * (16 + 8L * size);
+    }
+
+    private int[] recode(int[] column, StringDictionary target, int[] translation) {
+        int[] recoded = new int[size];
+        for (int row = 0; row < size; row++) {
+            int code = column[row];
+            if (code != StringDictionary.NULL_CODE && translation[code] == UNMAPPED) {
+                translation[code] = target.code(dictionary.get(code));
+            }
+            recoded[row] = code == StringDictionary.NULL_CODE ? code : translation[code];
+        }
+        return recoded;
+    }
+
+    private final class ProductList extends AbstractList<Product> implements RandomAccess {
+        @Override
+        public Product get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            return product(row);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // Collects rows, growing the columns as needed. Not thread-safe: one builder per file.
+    public static final class Builder {
+        private final StringDictionary dictionary;
+        private int size;
+        private int[] productIds;
+        private int[] names;
+        private int[] categories;
+        private int[] brands;
+        private int[] units;
+        private int[] currencies;
+        private int[] stores;
+        private double[] quantities;
+        private double[] prices;
+        private double[] pricesPerBaseUnit;
+
+        private Builder(StringDictionary dictionary) {
+            this(dictionary, 64);
+        }
+
+        private Builder(StringDictionary dictionary, int capacity) {
+            this.dictionary = dictionary;
+            productIds = new int[capacity];
+            names = new int[capacity];
+            categories = new int[capacity];
+            brands = new int[capacity];
+            units = new int[capacity];
+            currencies = new int[capacity];
+            stores = new int[capacity];
+            quantities = new double[capacity];
+            prices = new double[capacity];
+            pricesPerBaseUnit = new double[capacity];
+        }
+
+        public Builder add(String productId, String name, String category, String brand, double quantity,
+                           String unit, double price, String currency, String store) {
+            ensureCapacity(size + 1);
+            productIds[size] = dictionary.code(productId);
+            names[size] = dictionary.code(name);
+            categories[size] = dictionary.code(category);
+            brands[size] = dictionary.code(brand);
+            units[size] = dictionary.code(unit);
+            currencies[size] = dictionary.code(currency);
+            stores[size] = dictionary.code(store);
+            quantities[size] = quantity;
+            prices[size] = price;
+            pricesPerBaseUnit[size] = Product.pricePerBaseUnit(price, quantity, unit);
+            size++;
+            return this;
+        }
+
+        public Builder add(Product product) {
+            return add(product.getProductId(), product.getProductName(), product.getProductCategory(),
+                product.getBrand(), product.getPackageQuantity(), product.getPackageUnit(), product.getPrice(),
+                product.getCurrency(), product.getStore());
+        }
+
+        private void addAll(ProductTable table) {
+            ensureCapacity(size + table.size);
+            System.arraycopy(table.productIds, 0, productIds, size, table.size);
+            System.arraycopy(table.names, 0, names, size, table.size);
+            System.arraycopy(table.categories, 0, categories, size, table.size);
+            System.arraycopy(table.brands, 0, brands, size, table.size);
+            System.arraycopy(table.units, 0, units, size, table.size);
+            System.arraycopy(table.currencies, 0, currencies, size, table.size);
+            System.arraycopy(table.stores, 0, stores, size, table.size);
+            System.arraycopy(table.quantities, 0, quantities, size, table.size);
+            System.arraycopy(table.prices, 0, prices, size, table.size);
+            System.arraycopy(table.pricesPerBaseUnit, 0, pricesPerBaseUnit, size, table.size);
+            size += table.size;
+        }
+
+        // The builder must not be used after build(): when the columns are already full they are handed over as they are
+        public ProductTable build() {
+            return new ProductTable(dictionary, size, trim(productIds), trim(names), trim(categories), trim(brands),
+                trim(units), trim(currencies), trim(stores), trim(quantities), trim(prices), trim(pricesPerBaseUnit));
+        }
+
+        private int[] trim(int[] column) {
+            return column.length == size ? column : Arrays.copyOf(column, size);
+        }
+
+        private double[] trim(double[] column) {
+            return column.length == size ? column : Arrays.copyOf(column, size);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= productIds.length) {
+                return;
+            }
+            int grown = Math.max(capacity, productIds.length * 2);
+            productIds = Arrays.copyOf(productIds, grown);
+            names = Arrays.copyOf(names, grown);
+            categories = Arrays.copyOf(categories, grown);
+            brands = Arrays.copyOf(brands, grown);
+            units = Arrays.copyOf(units, grown);
+            currencies = Arrays.copyOf(currencies, grown);
+            stores = Arrays.copyOf(stores, grown);
+            quantities = Arrays.copyOf(quantities, grown);
+            prices = Arrays.copyOf(prices, grown);
+            pricesPerBaseUnit = Arrays.copyOf(pricesPerBaseUnit, grown);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Collects row numbers per key into int arrays (no boxed lists); rows keep the order they were added in
+final class RowGroups<K> {
+    private final Map<K, int[]> rows = new HashMap<>();
+    private final Map<K, Integer> counts = new HashMap<>();
+
+    void add(K key, int row) {
+        int count = counts.merge(key, 1, Integer::sum);
+        int[] keyRows = rows.get(key);
+        if (keyRows == null || keyRows.length < count) {
+            keyRows = keyRows == null ? new int[4] : Arrays.copyOf(keyRows, keyRows.length * 2);
+            rows.put(key, keyRows);
+        }
+        keyRows[count - 1] = row;
+    }
+
+    Map<K, int[]> build() {
+        Map<K, int[]> result = new HashMap<>(rows.size() * 2);
+        rows.forEach((key, keyRows) -> result.put(key, Arrays.copyOf(keyRows, counts.get(key))));
+        return result;
+    }
+}
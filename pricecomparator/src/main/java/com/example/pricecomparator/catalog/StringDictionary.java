@@ -0,0 +1,66 @@
+package com.example.pricecomparator.catalog;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Assigns a stable int code to every distinct string stored in a ProductTable (ids, names, categories, units, ...).
+// Codes are shared by all tables built with the same dictionary, so tables can be concatenated without remapping.
+// Append-only and thread-safe: files parsed in parallel add to it concurrently; lookups never lock.
+// Strings of replaced files are never removed, so CatalogService re-encodes the catalog with a fresh dictionary
+// once it holds more than twice the strings in use; a dictionary therefore stays within about twice what the
+// current files need (at least CatalogService.MIN_LIVE_STRINGS).
+public final class StringDictionary {
+    public static final int NULL_CODE = -1;
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[256];
+    private int size; // guarded by this
+
+    // Returns the code of the value, adding it if it is new
+    public int code(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            // the slot is written before the code is published through the map
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    // Returns the code of the value, or NULL_CODE if it was never added
+    public int find(String value) {
+        Integer code = value != null ? codes.get(value) : null;
+        return code != null ? code : NULL_CODE;
+    }
+
+    public String get(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    // Approximate heap used by the dictionary: the strings, their map entries and the value array
+    public long estimatedBytes() {
+        long bytes = 16L + 4L * values.length;
+        for (String value : codes.keySet()) {
+            bytes += 40 + value.length() + 48; // string + byte[] (Latin-1), map node with boxed code
+        }
+        return bytes;
+    }
+}
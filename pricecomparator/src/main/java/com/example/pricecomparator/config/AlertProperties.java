@@ -0,0 +1,29 @@
+package com.example.pricecomparator.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Settings for price alert storage and the feed of triggered alerts (prefix "alerts" in application.properties)
+@Data
+@ConfigurationProperties(prefix = "alerts")
+public class AlertProperties {
+
+    // triggered alerts kept for clients to read; older ones are dropped once it is full
+    private int feedCapacity = 10_000;
+
+    // an SSE connection is closed after this long; clients reconnect with Last-Event-ID
+    private long streamTimeoutMs = 30 * 60_000;
+
+    // an SSE comment is sent this often, so a stream whose client went away is noticed and closed
+    private long heartbeatMs = 15_000;
+
+    // longest a GET /alerts/notifications long-poll waits for new alerts
+    private long maxWaitMs = 30_000;
+
+    // directory for the alert log and snapshot (AlertStore); empty keeps alerts in memory only
+    private String storeDir = "";
+
+    // how often the alert log is compacted into the snapshot
+    private long compactIntervalMs = 300_000;
+}
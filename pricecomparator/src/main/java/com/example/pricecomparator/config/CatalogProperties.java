@@ -0,0 +1,45 @@
+package com.example.pricecomparator.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Settings for loading and refreshing the in-memory catalog (prefix "catalog" in application.properties)
+@Data
+@ConfigurationProperties(prefix = "catalog")
+public class CatalogProperties {
+
+    // directory with the store CSV files; when empty, the csv folder on the classpath is used
+    private String dataDir = "";
+
+    // how often the data directory is polled for changes when no file watcher is running
+    private long refreshIntervalMs = 60_000;
+
+    // binary copy of the parsed catalog, read at startup so only changed CSV files are parsed again; empty disables it
+    private String snapshotFile = "";
+
+    // GET /compare results kept for repeated (store, date) pairs; the least recently used are dropped beyond this
+    private int compareCacheSize = 256;
+
+    // memory for serialised GET responses kept by ResponseCache; least recently used are dropped beyond it
+    private long responseCacheBytes = 16 * 1024 * 1024;
+
+    private Watch watch = new Watch();
+
+    private Ingest ingest = new Ingest();
+
+    @Data
+    public static class Watch {
+        // use a WatchService to ingest new, modified and deleted files as soon as they appear
+        private boolean enabled = true;
+
+        // events for the same file arriving within this window are applied once
+        private long debounceMs = 500;
+    }
+
+    @Data
+    public static class Ingest {
+        // worker threads used to parse the files of a full load; 0 means one per available processor
+        private int threads = 0;
+    }
+}
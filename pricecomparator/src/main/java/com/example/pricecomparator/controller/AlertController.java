@@ -1,14 +1,21 @@
 package com.example.pricecomparator.controller;
 
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
 import com.example.pricecomparator.models.PriceAlert;
 import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.service.AlertFeed;
 import com.example.pricecomparator.service.AlertService;
-import com.example.pricecomparator.service.ProductService;
+import com.example.pricecomparator.service.CatalogService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -17,12 +24,17 @@ public class AlertController {
 
     private static final Logger log = LoggerFactory.getLogger(AlertController.class);
 
-    private final ProductService productService;
+    private final CatalogService catalogService;
     private final AlertService alertService; // use service instead of local storage
+    private final AlertFeed alertFeed; // alerts triggered by catalog updates
+    private final AlertProperties alertProperties;
 
-    public AlertController(ProductService productService, AlertService alertService) {
-        this.productService = productService;
+    public AlertController(CatalogService catalogService, AlertService alertService, AlertFeed alertFeed,
+                           AlertProperties alertProperties) {
+        this.catalogService = catalogService;
         this.alertService = alertService;
+        this.alertFeed = alertFeed;
+        this.alertProperties = alertProperties;
     }
 
     // POST /alerts — register a new alert
@@ -48,10 +60,75 @@ public class AlertController {
     }
 
 
-    // GET /alerts/check — load products from CSV and check which alerts are triggered
+    // GET /alerts/check — check which alerts are triggered by the current catalog snapshot, at each store's
+    // cheapest price after today's discounts (the same effective price the alert feed is evaluated on)
     @GetMapping("/check")
     public List<String> checkAlerts() {
-        List<Product> allProducts = productService.loadAllProductsFromCsvDirectory(); // read from files
-        return alertService.checkAlertsAgainstProducts(allProducts); // check alerts against products
+        return alertService.checkCatalog(catalogService.getSnapshot(), LocalDate.now().toEpochDay());
+    }
+
+    // GET /alerts/notifications?after=&limit=&waitMs= — long-poll for alerts triggered by catalog updates
+    // returns the notifications after the given sequence; with waitMs, waits that long (capped) when there are none yet
+    @GetMapping("/notifications")
+    public ResponseEntity<List<AlertNotificationDTO>> getNotifications(@RequestParam(defaultValue = "0") long after,
+                                                                       @RequestParam(defaultValue = "100") int limit,
+                                                                       @RequestParam(defaultValue = "0") long waitMs) {
+        if (limit < 0 || waitMs < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(alertFeed.await(after, limit, Math.min(waitMs, alertProperties.getMaxWaitMs())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.ok(alertFeed.after(after, limit));
+        }
+    }
+
+    // GET /alerts/stream — server-sent events, one "alert" event per triggered alert with its sequence as the id.
+    // Starts after ?after= or the Last-Event-ID header sent by a reconnecting client, otherwise with new alerts only.
+    @GetMapping("/stream")
+    public SseEmitter streamNotifications(@RequestParam(required = false) Long after,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = after != null ? after : lastEventId != null ? lastEventId : alertFeed.getLastSequence();
+        SseEmitter emitter = new SseEmitter(alertProperties.getStreamTimeoutMs());
+
+        Runnable unsubscribe = alertFeed.subscribe(from, new AlertFeed.Sink() {
+            @Override
+            public void accept(List<AlertNotificationDTO> batch) {
+                for (AlertNotificationDTO notification : batch) {
+                    send(SseEmitter.event()
+                        .id(String.valueOf(notification.getSequence()))
+                        .name("alert")
+                        .data(notification));
+                }
+            }
+
+            // an SSE comment, ignored by clients; writing it fails once the client is gone
+            @Override
+            public void heartbeat() {
+                send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            // the application is stopping: end the response so the web server does not wait for it
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+
+            private void send(SseEmitter.SseEventBuilder event) {
+                try {
+                    emitter.send(event);
+                } catch (IOException e) {
+                    // the client went away; the feed drops this subscriber
+                    emitter.completeWithError(e);
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        log.info("Alert stream opened after sequence {} ({} subscribers)", from, alertFeed.getSubscriberCount());
+        return emitter;
     }
 }
@@ -1,11 +1,20 @@
 package com.example.pricecomparator.controller;
 
+import com.example.pricecomparator.dto.BasketBatchRequestDTO;
+import com.example.pricecomparator.dto.BasketBatchResultDTO;
+import com.example.pricecomparator.dto.BasketPlanDTO;
 import com.example.pricecomparator.dto.BasketRequestItemDTO;
 import com.example.pricecomparator.dto.BasketResponseDTO;
 import com.example.pricecomparator.service.BasketService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import org.slf4j.Logger;
@@ -16,21 +25,39 @@ import org.slf4j.LoggerFactory;
 public class BasketController {
 
     private final BasketService basketService;
+    private final ObjectWriter resultLineWriter;
     private static final Logger log = LoggerFactory.getLogger(BasketController.class);
 
     // constructor to inject BasketService
-    public BasketController(BasketService basketService) {
+    public BasketController(BasketService basketService, ObjectMapper objectMapper) {
         this.basketService = basketService;
+        this.resultLineWriter = objectMapper.writerFor(BasketBatchResultDTO.class);
     }
 
     // POST /basket/optimise
     // accepts a basket with productIds + quantities, and returns the optimised list per store
+    // with ?maxStores= and/or ?storeCost= the basket is planned over at most that many stores, each store
+    // visited costing storeCost, instead of buying every product where it is cheapest
     @PostMapping("/optimise")
-    public ResponseEntity<Map<String, Object>> optimiseBasket(@RequestBody List<BasketRequestItemDTO> basketItems) {
+    public ResponseEntity<Map<String, Object>> optimiseBasket(@RequestBody List<BasketRequestItemDTO> basketItems,
+                                                              @RequestParam(required = false) Integer maxStores,
+                                                              @RequestParam(required = false) Double storeCost) {
         log.info("Received basket optimisation request with {} products", basketItems.size());
 
+        if (maxStores != null || storeCost != null) {
+            return planBasket(basketItems, maxStores, storeCost);
+        }
+
         // call the service to compute the best store combinations
-        List<BasketResponseDTO> baskets = basketService.getOptimisedBasket(basketItems);
+        List<BasketResponseDTO> baskets;
+        try {
+            baskets = basketService.getOptimisedBasket(basketItems);
+        } catch (IllegalArgumentException e) {
+            // null item, quantity not positive or too large => HTTP 400
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
 
         // create a response map to include both the data and user-friendly message
         Map<String, Object> response = new LinkedHashMap<>(); // use LinkedHashMap to preserve insertion order, so "recommendation" field always appears first in JSON response
@@ -50,4 +77,51 @@ public class BasketController {
         return ResponseEntity.ok(response);
 
     }
+
+    // the constrained mode of POST /basket/optimise
+    private ResponseEntity<Map<String, Object>> planBasket(List<BasketRequestItemDTO> basketItems, Integer maxStores,
+                                                           Double storeCost) {
+        BasketPlanDTO plan;
+        try {
+            plan = basketService.getPlannedBasket(basketItems, maxStores, storeCost);
+        } catch (IllegalArgumentException e) {
+            // maxStores < 1, negative storeCost, bad item or quantity => HTTP 400
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (plan.getBaskets().isEmpty()) {
+            response.put("recommendation", "No products found in the system that match your basket.");
+        } else {
+            response.put("recommendation", "Your basket has been planned across " + plan.getBaskets().size() + " store(s). Check details below:");
+        }
+        response.put("baskets", plan.getBaskets());
+        response.put("itemsCost", plan.getItemsCost());
+        response.put("storesCost", plan.getStoresCost());
+        response.put("totalCost", plan.getTotalCost());
+        response.put("unavailableProducts", plan.getUnavailableProducts());
+        return ResponseEntity.ok(response);
+    }
+
+    // POST /basket/optimise/batch
+    // accepts many baskets (basketId + items) in one call and optimises them against one catalog snapshot.
+    // Results are written as NDJSON, one line per basket in request order, while the remaining baskets are
+    // still being optimised. A basket with invalid input gets a line with an error, the others are unaffected.
+    @PostMapping("/optimise/batch")
+    public ResponseEntity<StreamingResponseBody> optimiseBaskets(@RequestBody List<BasketBatchRequestDTO> baskets) {
+        log.info("Received batch optimisation request with {} baskets", baskets.size());
+
+        StreamingResponseBody body = out -> basketService.optimiseBaskets(baskets, result -> {
+            try {
+                out.write(resultLineWriter.writeValueAsBytes(result));
+                out.write('\n');
+            } catch (IOException e) {
+                // the client went away; stop the batch
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
@@ -2,57 +2,60 @@ package com.example.pricecomparator.controller;
 
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.pricecomparator.dto.CompareDTO;
-import com.example.pricecomparator.models.Product;
-import com.example.pricecomparator.service.ProductService;
 import com.example.pricecomparator.service.CompareService;
-import com.example.pricecomparator.service.FileService;
 
 @RestController
 @RequestMapping("/compare") //path
 public class CompareController {
-    private final ProductService productService;
+    private static final Logger log = LoggerFactory.getLogger(CompareController.class);
+
     private final CompareService comparatorService;
-    private final FileService fileService;
 
-    public CompareController(ProductService productService, CompareService compareService, FileService fileService) {
-        this.productService = productService;
+    public CompareController(CompareService compareService) {
         this.comparatorService = compareService;
-        this.fileService = fileService;
     }
-    
+
+    // Compares the product files of both (store, date) pairs from the in-memory catalog; no CSV is read here.
+    // Repeated comparisons are served from the service's cache until one of the two files changes.
     @GetMapping("/{store1}/{date1}/{store2}/{date2}")
-    public List<CompareDTO> compareProducts(
+    public ResponseEntity<?> compareProducts(
         @PathVariable String store1,
         @PathVariable String date1,
         @PathVariable String store2,
         @PathVariable String date2
     ) {
-        // build filenames for both stores
-        List<String> store1Files = fileService.getFileNames("csv", store1, date1);
-        List<String> store2Files = fileService.getFileNames("csv", store2, date2);
-
-        if (store1Files.isEmpty() || store2Files.isEmpty()) {
-            throw new RuntimeException(
-                "No CSV found for " + store1 + "/" + date1 + " or " + store2 + "/" + date2);
+        try {
+            return ResponseEntity.ok(comparatorService.compareProducts(store1, date1, store2, date2));
+        } catch (IllegalArgumentException e) {
+            // no product file for one of the pairs => HTTP 404
+            log.warn("Cannot compare {}/{} with {}/{}: {}", store1, date1, store2, date2, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
         }
+    }
 
-        String file1 = store1Files.get(0);
-        String file2 = store2Files.get(0);
-
-        // load products from both files using ProductService
-        List<Product> productsStore1 = productService.loadProductsFromCsv(file1);
-        List<Product> productsStore2 = productService.loadProductsFromCsv(file2);
-
-        System.out.println("Loaded " + productsStore1.size() + " products from " + file1);
-        System.out.println("Loaded " + productsStore2.size() + " products from " + file2);
-
-        // compare
-        return comparatorService.compareProducts(productsStore1, productsStore2);
+    // GET /compare/matrix/{date}?stores=lidl,kaufland
+    // prices of every product across the stores with a product file for the date (all of them when stores is
+    // not given), with min, max, spread and the cheapest store per product
+    @GetMapping("/matrix/{date}")
+    public ResponseEntity<?> compareStores(
+        @PathVariable String date,
+        @RequestParam(required = false) List<String> stores
+    ) {
+        try {
+            return ResponseEntity.ok(comparatorService.compareStores(date, stores));
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot compare stores on {}: {}", date, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
+        }
     }
 }
@@ -1,21 +1,33 @@
 package com.example.pricecomparator.controller;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.example.pricecomparator.models.Discount;
 import com.example.pricecomparator.dto.DiscountBestGlobalDTO;
 import com.example.pricecomparator.dto.PriceHistoryDTO;
+import com.example.pricecomparator.dto.PriceHistoryEntryDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.pricecomparator.service.DiscountService;
 
@@ -24,35 +36,69 @@ import com.example.pricecomparator.service.DiscountService;
 public class DiscountsController {
 
     private final DiscountService discountService;
+    private final ResponseCache responseCache;
+    private final ObjectWriter historyLineWriter;
     private static final Logger log = LoggerFactory.getLogger(DiscountService.class);
 
     // Constructor
-    public DiscountsController(DiscountService discountService) {
+    public DiscountsController(DiscountService discountService, ResponseCache responseCache, ObjectMapper objectMapper) {
         this.discountService = discountService;
+        this.responseCache = responseCache;
+        this.historyLineWriter = objectMapper.writerFor(PriceHistoryEntryDTO.class);
     }
 
-    // GET /discounts/{store}/{date}
-    // Loads discount data for a specific store and date
+    // GET /discounts/{store}/{date}?limit={}
+    // Returns the discounts of the store's discount file for that date, as held by the catalog.
+    // With a limit, returns only the `limit` highest discounts, highest first.
+    // Served from the response cache (with an ETag) until the catalog changes.
     @GetMapping("/{store}/{date}")
-    public List<Discount> getAllDiscounts(
+    public ResponseEntity<?> getAllDiscounts(
         @PathVariable String store,
-        @PathVariable String date
+        @PathVariable String date,
+        @RequestParam(required = false) Integer limit,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        log.info("API call: GET /discounts/{}/{}", store, date);
-        String fileName = String.format("csv/%s_discounts_%s.csv", store, date);
-        return discountService.loadDiscountFromCsv(fileName);
+        log.info("API call: GET /discounts/{}/{}?limit={}", store, date, limit);
+        return responseCache.serve("/discounts/" + store + "/" + date + "?limit=" + limit, ifNoneMatch, () -> {
+            List<Discount> discounts = discountService.getDiscounts(store, date);
+            try {
+                return ResponseEntity.ok(limit == null ? discounts : discountService.selectBestDiscounts(discounts, limit));
+            } catch (IllegalArgumentException e) {
+                // negative limit => HTTP 400 (not cached)
+                return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+            }
+        });
     }
 
-    // GET /discounts/best-global
+    // GET /discounts/best-global?limit={}
     // Returns a list of all products with the highest current percentage discounts across all stores,
     // filtered to include only active discounts (valid today), and sorted in descending order by discount value.
+    // The optional limit keeps only the first `limit` products.
+    // The optional asOf (YYYY-MM-DD) returns the discounts active on that day instead of today.
+    // Served from the response cache (with an ETag) until the catalog changes or the day ends.
     @GetMapping("/best-global")
-    public ResponseEntity<?> getGlobalBestDiscounts() {
-        log.info("API call: GET /discounts/best-global");
+    public ResponseEntity<?> getGlobalBestDiscounts(
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(required = false) String asOf,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        log.info("API call: GET /discounts/best-global?limit={}&asOf={}", limit, asOf);
+        LocalDate day;
+        try {
+            day = asOf == null ? LocalDate.now() : LocalDate.parse(asOf);
+        } catch (DateTimeParseException e) {
+            // invalid asOf => HTTP 400
+            return ResponseEntity.badRequest().body("Error: Invalid asOf date. Use the YYYY-MM-DD format");
+        }
+        // which discounts are active depends on the day
+        return responseCache.serve("/discounts/best-global?limit=" + limit + "&day=" + day, ifNoneMatch,
+            () -> globalBestDiscounts(limit, day));
+    }
 
+    private ResponseEntity<?> globalBestDiscounts(Integer limit, LocalDate day) {
         try {
-            // load all active discounts (deduplicated per product, keeping the highest one)
-            List<DiscountBestGlobalDTO> discounts = discountService.getGlobalTopDiscounts("csv");
+            // load all discounts active on the day (deduplicated per product, keeping the highest one)
+            List<DiscountBestGlobalDTO> discounts = discountService.getGlobalTopDiscounts("csv", limitOrAll(limit), day);
 
             // if no discounts are found, return HTTP 204 No Content
             if (discounts.isEmpty()) {
@@ -64,6 +110,9 @@ public class DiscountsController {
             log.info("Returning {} active global discounts", discounts.size());
             return ResponseEntity.ok(discounts);
 
+        } catch (IllegalArgumentException e) {
+            // negative limit => HTTP 400
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         } catch (IllegalStateException e) {
             // If CSV files are missing or something fails during processing, return HTTP 500
             log.error("Error loading discounts: {}", e.getMessage());
@@ -72,14 +121,14 @@ public class DiscountsController {
         }
     }
 
-    // GET /discounts/new
-    // Returns all discount entries from files uploaded in the last 24h
+    // GET /discounts/new?limit={}
+    // Returns all discount entries from files uploaded in the last 24h (the first `limit` ones if a limit is given)
     @GetMapping("/new")
-    public ResponseEntity<List<Discount>> getNewDiscounts() {
-        log.info("API call: GET /discounts/new");
+    public ResponseEntity<List<Discount>> getNewDiscounts(@RequestParam(required = false) Integer limit) {
+        log.info("API call: GET /discounts/new?limit={}", limit);
 
         try {
-            List<Discount> discounts = discountService.getNewDiscounts("csv");
+            List<Discount> discounts = discountService.getNewDiscounts("csv", limitOrAll(limit));
             
             // if there are no new discounts => HTTP 204
             if(discounts.isEmpty()) {
@@ -88,6 +137,10 @@ public class DiscountsController {
             }
             // if there are new discounts => returns list + status 200
             return ResponseEntity.ok(discounts);
+            // negative limit => HTTP 400
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid limit for new discounts: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
             // if there is other error => HTTP 500
         } catch (Exception e) {
             log.error("Unexpected error while retrieving new discounts: {}", e.getMessage());
@@ -113,4 +166,57 @@ public class DiscountsController {
         // call service method with all provided filters
         return discountService.getPriceHistory(productId, store, brand, category, from, to);
     }
+
+    // GET /discounts/price-history/stream?productId={}&store={}&brand={}&category={}&from={}&to={}&cursor={}&limit={}
+    // Same filters as /price-history, written as NDJSON (one JSON object per line) while the entries are produced,
+    // so a large export is never held in memory. Every line carries a cursor; passing it back continues after
+    // that line, and limit caps the number of lines in one response.
+    // A cursor from before the catalog last changed => HTTP 410, a malformed cursor, date or limit => HTTP 400
+    @GetMapping("/price-history/stream")
+    public ResponseEntity<StreamingResponseBody> streamPriceHistory(
+            @RequestParam(required = false) String productId,
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,    // resume after this entry
+            @RequestParam(required = false) Integer limit     // maximum number of lines
+    ) {
+        log.info("API call: GET /discounts/price-history/stream?productId={}&store={}&brand={}&category={}&from={}&to={}&cursor={}&limit={}",
+                productId, store, brand, category, from, to, cursor, limit);
+
+        Stream<PriceHistoryEntryDTO> entries;
+        try {
+            if (limit != null && limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative: " + limit);
+            }
+            entries = discountService.streamPriceHistory(productId, store, brand, category, from, to, cursor);
+        } catch (IllegalArgumentException e) {
+            return errorBody(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return errorBody(HttpStatus.GONE, e.getMessage());
+        }
+
+        Stream<PriceHistoryEntryDTO> page = limit != null ? entries.limit(limit) : entries;
+        StreamingResponseBody body = out -> {
+            Iterator<PriceHistoryEntryDTO> lines = page.iterator();
+            while (lines.hasNext()) {
+                out.write(historyLineWriter.writeValueAsBytes(lines.next()));
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> errorBody(HttpStatus status, String message) {
+        log.warn("Price history stream rejected: {}", message);
+        byte[] body = ("Error: " + message).getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(out -> out.write(body));
+    }
+
+    // No limit parameter means the whole list
+    private static int limitOrAll(Integer limit) {
+        return limit == null ? Integer.MAX_VALUE : limit;
+    }
 }
@@ -10,10 +10,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,39 +27,45 @@ public class ProductsController {
 
     @Autowired
     private final ProductService productService;
+    private final ResponseCache responseCache;
 
     // Constructor for injecting ProductService
-    public ProductsController(ProductService productService) {
+    public ProductsController(ProductService productService, ResponseCache responseCache) {
         this.productService = productService;
+        this.responseCache = responseCache;
     }
 
     // GET /products/{store}/{date}
-    // Loads product data for a specific store and date from a corresponding CSV file.
+    // Returns the products of the store's CSV file for that date, as held by the catalog.
+    // Served from the response cache (with an ETag) until the catalog changes.
     @GetMapping("/{store}/{date}")
-    public List<Product> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @PathVariable String store,
-            @PathVariable String date) {
+            @PathVariable String date,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         log.info("API call: GET /products/{}/{}", store, date);
 
-        // Construct file path from store and date
-        String fileName = String.format("csv/%s_%s.csv", store, date);
-        log.debug("Loading products from file: {}", fileName);
-
-        // Load products from the specified CSV file
-        return productService.loadProductsFromCsv(fileName);
+        return responseCache.serve("/products/" + store + "/" + date, ifNoneMatch,
+                () -> ResponseEntity.ok(productService.getProducts(store, date)));
     }
 
     // GET /products/best-value?category=&top=5
     // Returns a list of top N products with the best value per unit
     // for a specific category, sorted in ascending order of unit price.
+    // Served from the response cache (with an ETag) until the catalog changes.
     @GetMapping("/best-value")
-    public ResponseEntity<BestValueRecommendationDTO> getBestValueProducts(
+    public ResponseEntity<?> getBestValueProducts(
             @RequestParam String category,
-            @RequestParam(defaultValue = "5") int top) {
+            @RequestParam(defaultValue = "5") int top,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         log.info("API call: GET /products/best-value?category={}&top={}", category, top);
+        return responseCache.serve("/products/best-value?category=" + category + "&top=" + top, ifNoneMatch,
+                () -> bestValue(category, top));
+    }
 
+    private ResponseEntity<BestValueRecommendationDTO> bestValue(String category, int top) {
         // Retrieve the top N products by lowest price per base unit
         List<Product> bestValueProducts = productService.getBestValueProductsByCategory(category, top);
 
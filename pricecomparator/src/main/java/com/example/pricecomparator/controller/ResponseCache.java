@@ -0,0 +1,173 @@
+package com.example.pricecomparator.controller;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.service.CatalogService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Keeps the serialised JSON of GET responses that only change when the catalog does, keyed by the request.
+// Each entry carries the catalog version it was built from and a strong ETag (that version plus a checksum of
+// the bytes): while the catalog version is unchanged the bytes are sent as they are, without calling the
+// controller or serialising again, and a request whose If-None-Match holds the ETag gets 304 Not Modified.
+// A new catalog version makes every entry stale, so they are all dropped the first time it is seen.
+// Entries are evicted least recently used first once their bytes exceed catalog.response-cache-bytes.
+@Component
+public class ResponseCache {
+
+    private final CatalogService catalogService;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // guarded by itself
+    private long bytes; // guarded by entries
+    private long version = -1; // catalog version of the entries, guarded by entries
+
+    public ResponseCache(CatalogService catalogService, ObjectMapper objectMapper, CatalogProperties properties,
+                         MeterRegistry meterRegistry) {
+        this.catalogService = catalogService;
+        this.objectMapper = objectMapper;
+        this.maxBytes = properties.getResponseCacheBytes();
+        this.hits = counter(meterRegistry, "hit", "GET responses sent from the cache");
+        this.misses = counter(meterRegistry, "miss", "GET responses built and serialised by the controller");
+        this.notModified = counter(meterRegistry, "not_modified", "GET requests answered with 304 Not Modified");
+    }
+
+    // Returns the cached response for the key, or calls the handler and caches what it returns when it succeeded.
+    // The key must identify everything the response depends on besides the catalog (path, parameters, and the
+    // day for responses that depend on today's date). Error responses are passed through and not cached.
+    public ResponseEntity<?> serve(String key, String ifNoneMatch, Supplier<ResponseEntity<?>> handler) {
+        // read before the handler runs: a response built from a newer snapshot is at worst tagged as older
+        long catalogVersion = catalogService.getSnapshot().getVersion();
+        Entry entry;
+        synchronized (entries) {
+            if (catalogVersion != version) {
+                entries.clear();
+                bytes = 0;
+                version = catalogVersion;
+            }
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            ResponseEntity<?> response = handler.get();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                return response;
+            }
+            entry = newEntry(catalogVersion, response);
+            store(key, entry);
+        }
+
+        if (matches(ifNoneMatch, entry.etag)) {
+            notModified.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.etag).cacheControl(CacheControl.noCache()).build();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(entry.status).eTag(entry.etag).cacheControl(CacheControl.noCache());
+        if (entry.body == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(entry.body);
+    }
+
+    // Bytes of serialised responses currently kept
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    private Entry newEntry(long catalogVersion, ResponseEntity<?> response) {
+        byte[] body = null;
+        CRC32 checksum = new CRC32();
+        if (response.getBody() != null) {
+            try {
+                body = objectMapper.writeValueAsBytes(response.getBody());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialise the response", e);
+            }
+            checksum.update(body);
+        }
+        String etag = "\"" + catalogVersion + "-" + Long.toHexString(checksum.getValue()) + "\"";
+        return new Entry(catalogVersion, response.getStatusCode().value(), etag, body);
+    }
+
+    private void store(String key, Entry entry) {
+        long size = entry.size(key);
+        if (size > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (entry.version != version) {
+                return; // the catalog changed while the response was built
+            }
+            Entry previous = entries.put(key, entry);
+            bytes += size - (previous != null ? previous.size(key) : 0);
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                bytes -= evicted.getValue().size(evicted.getKey());
+                eldest.remove();
+            }
+        }
+    }
+
+    // If-None-Match holds a list of ETags or "*"; a weak W/ prefix is ignored (weak comparison, RFC 9110)
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder("response.cache").tag("result", result).description(description).register(meterRegistry);
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final int status;
+        private final String etag;
+        private final byte[] body; // null for responses without a body (204)
+
+        private Entry(long version, int status, String etag, byte[] body) {
+            this.version = version;
+            this.status = status;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        // approximate heap used: the bytes, the key and ETag strings and the objects around them
+        private long size(String key) {
+            return (body != null ? body.length : 0) + 2L * (key.length() + etag.length()) + 128;
+        }
+    }
+}
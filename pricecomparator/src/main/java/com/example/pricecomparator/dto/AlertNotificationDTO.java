@@ -0,0 +1,21 @@
+// DTO used to deliver a triggered price alert to clients of the alert feed (SSE or long-poll)
+
+package com.example.pricecomparator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertNotificationDTO {
+    private long sequence; // position in the feed, assigned when published; resume with ?after=
+    private long catalogVersion; // snapshot whose prices triggered the alert
+    private String productId;
+    private String productName;
+    private String store;
+    private double price; // effective price, after the discount active that day
+    private double targetPrice;
+    private String message;
+}
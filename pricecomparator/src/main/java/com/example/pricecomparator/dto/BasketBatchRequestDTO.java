@@ -0,0 +1,17 @@
+// DTO used to receive one basket of a batch optimisation request
+
+package com.example.pricecomparator.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketBatchRequestDTO {
+    private String basketId; // chosen by the client, echoed back with the result
+    private List<BasketRequestItemDTO> items;
+}
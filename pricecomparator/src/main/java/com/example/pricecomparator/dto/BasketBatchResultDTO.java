@@ -0,0 +1,20 @@
+// DTO used to return the result of one basket of a batch, written as one NDJSON line
+
+package com.example.pricecomparator.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketBatchResultDTO {
+    private int index; // position of the basket in the request
+    private String basketId;
+    private List<BasketResponseDTO> baskets; // optimised baskets per store, empty when nothing matched
+    private double totalPrice; // sum over all stores
+    private String error; // set instead of baskets when this basket was rejected
+}
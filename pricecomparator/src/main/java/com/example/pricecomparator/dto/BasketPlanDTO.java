@@ -0,0 +1,20 @@
+// DTO used to return a basket planned over a limited number of stores or with a cost per store visited
+
+package com.example.pricecomparator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketPlanDTO {
+    private List<BasketResponseDTO> baskets; // one per store in the plan
+    private double itemsCost; // products, after discounts
+    private double storesCost; // storeCost times the number of stores
+    private double totalCost;
+    private List<String> unavailableProducts; // not sold by any store, or by none of the stores the plan may use
+}
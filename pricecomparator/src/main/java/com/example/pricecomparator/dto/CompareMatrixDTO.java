@@ -0,0 +1,18 @@
+// DTO used to return the prices of every product across several stores on one date
+
+package com.example.pricecomparator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompareMatrixDTO {
+    private String date;
+    private List<String> stores; // the stores compared, in column order
+    private List<CompareMatrixRowDTO> products; // ordered by productId
+}
@@ -0,0 +1,23 @@
+// DTO used for one product of a store comparison matrix
+// includes the price in every store selling it and which store is cheapest
+
+package com.example.pricecomparator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompareMatrixRowDTO {
+    private String productId;
+    private String productName;
+    private Map<String, Double> prices; // store -> price, only stores selling the product, in column order
+    private double minPrice;
+    private double maxPrice;
+    private double spread; // maxPrice - minPrice
+    private String cheapestStore; // first store in column order with minPrice
+}
@@ -0,0 +1,18 @@
+// DTO used for one line of the streamed price history: the entry plus the cursor to resume after it
+
+package com.example.pricecomparator.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryEntryDTO {
+    private String cursor; // pass as ?cursor= to continue after this entry
+    @JsonUnwrapped
+    private PriceHistoryDTO entry; // written as top-level fields next to the cursor
+}
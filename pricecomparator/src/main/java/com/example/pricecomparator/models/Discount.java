@@ -1,5 +1,8 @@
 package com.example.pricecomparator.models;
 
+import com.example.pricecomparator.util.EpochDays;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +12,8 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonPropertyOrder({"productId", "productName", "brand", "packageQuantity", "packageUnit", "productCategory",
+                    "fromDate", "toDate", "percentageOfDiscount", "store"})
 public class Discount {
     private String productId;
     private String productName;
@@ -16,8 +21,28 @@ public class Discount {
     private double packageQuantity;
     private String packageUnit;
     private String productCategory;
-    private Date fromDate;
-    private Date toDate;
+    // validity in days since 1970-01-01: active from fromDay (inclusive) until toDay (exclusive)
+    @JsonIgnore
+    private int fromDay;
+    @JsonIgnore
+    private int toDay;
     private double percentageOfDiscount;
     private String store;
+
+    // fromDate and toDate are only views for the JSON API, as the midnight of the day in the default time zone
+    public Date getFromDate() {
+        return EpochDays.toDate(fromDay);
+    }
+
+    public void setFromDate(Date fromDate) {
+        this.fromDay = EpochDays.of(fromDate);
+    }
+
+    public Date getToDate() {
+        return EpochDays.toDate(toDay);
+    }
+
+    public void setToDate(Date toDate) {
+        this.toDay = EpochDays.of(toDate);
+    }
 }
@@ -18,9 +18,14 @@ public class Product {
     private String currency;
     private String store;
 
-        public double getPricePerBaseUnit() {
-        double quantity = this.packageQuantity;
-        String unit = this.packageUnit != null ? this.packageUnit.toLowerCase() : "";
+    public double getPricePerBaseUnit() {
+        return pricePerBaseUnit(price, packageQuantity, packageUnit);
+    }
+
+    // Price per kilogram or liter; shared with the columnar product table
+    public static double pricePerBaseUnit(double price, double packageQuantity, String packageUnit) {
+        double quantity = packageQuantity;
+        String unit = packageUnit != null ? packageUnit.toLowerCase() : "";
 
         // convert to base units
         if(unit.equals("g")) {
@@ -33,12 +38,28 @@ public class Product {
             return Double.MAX_VALUE; // avoid division by 0
         }
 
-        double result = this.price / quantity;
+        double result = price / quantity;
 
         return result;
 
     }
 
+    // Converts a package quantity to kilograms, liters or pieces (pcs/buc count as one unit).
+    // Returns NaN for units it does not know.
+    public static double toBaseQuantity(String unit, double quantity) {
+        switch (unit.toLowerCase()) {
+            case "mg": return quantity / 1_000_000;
+            case "g":  return quantity / 1_000;
+            case "kg": return quantity;
+            case "ml": return quantity / 1_000;
+            case "l":  return quantity;
+            case "cl": return quantity / 100;
+            case "pcs":
+            case "buc": return 1.0;
+            default: return Double.NaN;
+        }
+    }
+
     public double getUnitValue() {
         return getPricePerBaseUnit();
     }
@@ -0,0 +1,72 @@
+package com.example.pricecomparator.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.pricecomparator.catalog.CatalogUpdatedEvent;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
+
+import jakarta.annotation.PreDestroy;
+
+// Evaluates price alerts whenever product or discount files are ingested and queues the ones that fire
+// on the alert feed, so clients are told about price drops without calling GET /alerts/check.
+// The event carries both immutable snapshots, so the evaluation is handed to a single evaluator thread and the
+// ingesting thread (which holds the CatalogService lock) returns at once. One thread keeps the updates in order.
+@Component
+public class AlertEvaluator {
+    private static final Logger log = LoggerFactory.getLogger(AlertEvaluator.class);
+
+    private final AlertService alertService;
+    private final AlertFeed alertFeed;
+    private final ExecutorService evaluator = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "alert-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AlertEvaluator(AlertService alertService, AlertFeed alertFeed) {
+        this.alertService = alertService;
+        this.alertFeed = alertFeed;
+    }
+
+    @EventListener
+    public void onCatalogUpdated(CatalogUpdatedEvent event) {
+        try {
+            evaluator.execute(() -> evaluate(event));
+        } catch (RejectedExecutionException e) {
+            log.debug("Shutting down; not evaluating price alerts for catalog v{}", event.getCurrent().getVersion());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        evaluator.shutdown();
+        try {
+            evaluator.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void evaluate(CatalogUpdatedEvent event) {
+        long start = System.nanoTime();
+        try {
+            List<AlertNotificationDTO> triggered = alertService.checkCatalogUpdate(event, LocalDate.now().toEpochDay());
+            alertFeed.publish(triggered);
+            log.info("Catalog v{}: {} price alerts triggered ({} us)", event.getCurrent().getVersion(), triggered.size(),
+                (System.nanoTime() - start) / 1000);
+        } catch (RuntimeException e) {
+            // the next update is evaluated normally; the catalog itself is not affected
+            log.error("Cannot evaluate price alerts for catalog v{}", event.getCurrent().getVersion(), e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.pricecomparator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
+
+import jakarta.annotation.PreDestroy;
+
+// Bounded in-process queue of triggered alerts. Every notification gets the next sequence number and the
+// last `feedCapacity` of them are kept in a ring; when it is full the oldest are dropped, so a slow or absent
+// client can never make the ingest side block or run out of memory.
+// Clients read from their own position instead of removing entries, so many can follow the same feed:
+// long-poll clients pass the last sequence they saw, and subscribers (SSE) are pushed new entries
+// from a single dispatcher thread, in sequence order, without ever blocking the publisher.
+// Subscribers also get a heartbeat every `heartbeatMs`, so one whose client went away fails and is dropped, and
+// all of them are closed when the application stops, before the web server waits for open requests to finish.
+@Component
+public class AlertFeed implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(AlertFeed.class);
+
+    // entries handed to a subscriber per call
+    private static final int DISPATCH_BATCH = 256;
+
+    private final AlertNotificationDTO[] ring;
+    private long lastSequence; // guarded by this; sequences start at 1
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "alert-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+    private volatile boolean stopped; // subscribers are closed at once after stop()
+
+    public AlertFeed(AlertProperties properties) {
+        if (properties.getFeedCapacity() <= 0) {
+            throw new IllegalArgumentException("alerts.feed-capacity must be positive");
+        }
+        if (properties.getHeartbeatMs() <= 0) {
+            throw new IllegalArgumentException("alerts.heartbeat-ms must be positive");
+        }
+        this.ring = new AlertNotificationDTO[properties.getFeedCapacity()];
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, properties.getHeartbeatMs(), properties.getHeartbeatMs(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    // Appends the notifications, assigning their sequence numbers, and wakes up waiting readers
+    public void publish(List<AlertNotificationDTO> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (AlertNotificationDTO notification : notifications) {
+                notification.setSequence(++lastSequence);
+                ring[(int) (lastSequence % ring.length)] = notification;
+            }
+            notifyAll();
+        }
+        for (Subscriber subscriber : subscribers) {
+            dispatch(subscriber);
+        }
+    }
+
+    // Sequence of the newest notification, 0 if none was published yet
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    // Up to `limit` notifications with a sequence above `after`, oldest first.
+    // Entries already dropped from the ring are skipped; the first sequence returned shows the gap.
+    public synchronized List<AlertNotificationDTO> after(long after, int limit) {
+        long first = Math.max(after + 1, lastSequence - ring.length + 1);
+        long last = Math.min(lastSequence, first + limit - 1);
+        List<AlertNotificationDTO> result = new ArrayList<>((int) Math.max(0, last - first + 1));
+        for (long sequence = Math.max(first, 1); sequence <= last; sequence++) {
+            result.add(ring[(int) (sequence % ring.length)]);
+        }
+        return result;
+    }
+
+    // Like after(), but waits up to timeoutMs for a notification when there is none yet (long-poll)
+    public synchronized List<AlertNotificationDTO> await(long after, int limit, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (lastSequence <= after && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return after(after, limit);
+    }
+
+    // Pushes every notification after `after`, and all later ones, to the sink on the dispatcher thread.
+    // A sink that throws is unsubscribed. Returns the action that unsubscribes.
+    public Runnable subscribe(long after, Sink sink) {
+        if (stopped) {
+            sink.close();
+            return () -> { };
+        }
+        Subscriber subscriber = new Subscriber(after, sink);
+        subscribers.add(subscriber);
+        dispatch(subscriber);
+        if (stopped && subscribers.remove(subscriber)) {
+            sink.close(); // stop() ran while it was being added
+        }
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void start() {
+        stopped = false;
+        running = true;
+    }
+
+    // Runs in the default phase, so before the web server's graceful shutdown, which would otherwise wait
+    // for every open stream until it times out
+    @Override
+    public void stop() {
+        stopped = true;
+        running = false;
+        for (Subscriber subscriber : subscribers) {
+            if (subscribers.remove(subscriber)) {
+                try {
+                    subscriber.sink.close();
+                } catch (RuntimeException e) {
+                    log.debug("Cannot close alert feed subscriber: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @PreDestroy
+    public void close() {
+        stop();
+        dispatcher.shutdownNow();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.sink.heartbeat();
+            } catch (RuntimeException e) {
+                log.debug("Dropping alert feed subscriber after a failed heartbeat: {}", e.getMessage());
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    private void dispatch(Subscriber subscriber) {
+        dispatcher.execute(() -> {
+            List<AlertNotificationDTO> batch;
+            while (subscribers.contains(subscriber) && !(batch = after(subscriber.position, DISPATCH_BATCH)).isEmpty()) {
+                try {
+                    subscriber.sink.accept(batch);
+                } catch (RuntimeException e) {
+                    log.debug("Dropping alert feed subscriber: {}", e.getMessage());
+                    subscribers.remove(subscriber);
+                    return;
+                }
+                subscriber.position = batch.get(batch.size() - 1).getSequence();
+            }
+        });
+    }
+
+    // Receives a subscriber's notifications on the dispatcher thread; accept or heartbeat throwing unsubscribes it
+    @FunctionalInterface
+    public interface Sink {
+        void accept(List<AlertNotificationDTO> batch);
+
+        // called every alerts.heartbeat-ms, so a client that went away is noticed even when nothing is published
+        default void heartbeat() {
+        }
+
+        // called once for every subscriber still there when the feed stops
+        default void close() {
+        }
+    }
+
+    // position is only read and written on the dispatcher thread
+    private static final class Subscriber {
+        private final Sink sink;
+        private long position; // last sequence handed to the sink
+
+        private Subscriber(long after, Sink sink) {
+            this.position = after;
+            this.sink = sink;
+        }
+    }
+}
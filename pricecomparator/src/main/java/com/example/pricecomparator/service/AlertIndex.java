@@ -0,0 +1,144 @@
+package com.example.pricecomparator.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.pricecomparator.models.PriceAlert;
+
+// Price alerts indexed by productId and store (both matched case-insensitively), with the target prices of
+// each (productId, store) kept sorted. An alert fires when the price is at or below its target, so the alerts
+// firing for a price are a suffix of the sorted targets: finding them is two hash lookups and a binary search,
+// however many alerts exist for other products or with lower targets.
+// Alerts without a store are kept under the productId for any store.
+// Safe for concurrent use: productIds are spread over STRIPES maps, each guarded by its own lock, so
+// registrations and checks for different products run in parallel. Lookups copy the matching alerts out
+// under the lock and never expose the internal arrays.
+final class AlertIndex {
+
+    private static final int STRIPES = 64; // power of two
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    AlertIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void add(PriceAlert alert) {
+        if (alert.getProductId() == null) {
+            return; // can never match a product
+        }
+        String productId = alert.getProductId().toLowerCase();
+        Stripe stripe = stripeOf(productId);
+        synchronized (stripe) {
+            ProductAlerts product = stripe.byProductId.computeIfAbsent(productId, id -> new ProductAlerts());
+            if (alert.getStore() == null) {
+                product.anyStore.add(alert);
+            } else {
+                product.byStore.computeIfAbsent(alert.getStore().toLowerCase(), store -> new Targets()).add(alert);
+            }
+        }
+    }
+
+    // Alerts whose target is at or above the price: any-store alerts first, then the store's,
+    // each by ascending target and in registration order for equal targets
+    List<PriceAlert> triggered(String productId, String store, double price) {
+        return triggeredBetween(productId, store, price, Double.POSITIVE_INFINITY);
+    }
+
+    // Alerts that start firing when the price drops from previousPrice to price: targets in [price, previousPrice).
+    // Nothing starts firing when the price did not drop.
+    List<PriceAlert> triggeredBetween(String productId, String store, double price, double previousPrice) {
+        if (productId == null || !(price < previousPrice)) {
+            return List.of();
+        }
+        String key = productId.toLowerCase();
+        Stripe stripe = stripeOf(key);
+        List<PriceAlert> triggered = new ArrayList<>();
+        synchronized (stripe) {
+            ProductAlerts product = stripe.byProductId.get(key);
+            if (product == null) {
+                return List.of();
+            }
+            product.anyStore.collect(price, previousPrice, triggered);
+            Targets storeTargets = store != null ? product.byStore.get(store.toLowerCase()) : null;
+            if (storeTargets != null) {
+                storeTargets.collect(price, previousPrice, triggered);
+            }
+        }
+        return triggered;
+    }
+
+    private Stripe stripeOf(String productId) {
+        int h = productId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private final Map<String, ProductAlerts> byProductId = new HashMap<>(); // lower-case productId
+    }
+
+    private static final class ProductAlerts {
+        private final Targets anyStore = new Targets();
+        private final Map<String, Targets> byStore = new HashMap<>(); // lower-case store
+    }
+
+    // Alerts sorted by target price, only used under the stripe's lock.
+    // New alerts are appended and the array is re-sorted on the next lookup;
+    // the sort is stable and merges the sorted prefix with the appended run, so bulk registration stays cheap.
+    private static final class Targets {
+        private static final Comparator<PriceAlert> BY_TARGET = Comparator.comparingDouble(PriceAlert::getTargetPrice);
+
+        private PriceAlert[] alerts = new PriceAlert[2];
+        private double[] targets = new double[2]; // targets[i] == alerts[i].getTargetPrice() once sorted
+        private int size;
+        private int sorted; // alerts[0..sorted) are in target order
+
+        private void add(PriceAlert alert) {
+            if (size == alerts.length) {
+                alerts = Arrays.copyOf(alerts, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            alerts[size++] = alert;
+        }
+
+        // appends the alerts with price <= target < upper to the list
+        private void collect(double price, double upper, List<PriceAlert> out) {
+            sort();
+            int to = upper == Double.POSITIVE_INFINITY ? size : firstAtLeast(upper);
+            for (int i = firstAtLeast(price); i < to; i++) {
+                out.add(alerts[i]);
+            }
+        }
+
+        private void sort() {
+            if (sorted == size) {
+                return;
+            }
+            Arrays.sort(alerts, 0, size, BY_TARGET);
+            for (int i = 0; i < size; i++) {
+                targets[i] = alerts[i].getTargetPrice();
+            }
+            sorted = size;
+        }
+
+        private int firstAtLeast(double price) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (targets[mid] < price) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
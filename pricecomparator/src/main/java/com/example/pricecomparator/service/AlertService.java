@@ -1,53 +1,208 @@
 package com.example.pricecomparator.service;
 
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.CatalogUpdatedEvent;
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
+import com.example.pricecomparator.models.Discount;
 import com.example.pricecomparator.models.PriceAlert;
 import com.example.pricecomparator.models.Product;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Service
 public class AlertService {
 
-    // In-memory list that holds all registered price alerts
-    private final List<PriceAlert> alerts = new ArrayList<>();
+    // In-memory log of all registered price alerts, in registration order.
+    // POST /alerts adds to it on request threads while other requests read it, so it is a lock-free queue
+    // and readers get a snapshot copy instead of iterating the live collection.
+    private final Queue<PriceAlert> alerts = new ConcurrentLinkedQueue<>();
 
-    // Registers a new price alert into the list
+    // The same alerts by productId and store, with sorted targets, so a check only looks at alerts that can fire.
+    // Striped by productId, so registrations and checks run in parallel.
+    private final AlertIndex index = new AlertIndex();
+
+    // Durable copy of the alerts (a no-op when alerts.store-dir is not set)
+    private final AlertStore store;
+
+    public AlertService(AlertStore store) {
+        this.store = store;
+        for (PriceAlert alert : store.recover()) {
+            index.add(alert);
+            alerts.add(alert);
+        }
+    }
+
+    // Registers a new price alert; safe to call from many threads.
+    // Returns once the alert is stored, so an acknowledged alert survives a crash.
     public void registerPriceAlert(PriceAlert alert) {
+        store.append(alert);
+        index.add(alert);
         alerts.add(alert);
     }
 
     // Returns all currently registered alerts (for GET /alerts or testing/debug)
+    // as a snapshot: alerts registered while the copy is made may or may not be in it
     public List<PriceAlert> getAllAlerts() {
-        return alerts;
+        return List.copyOf(alerts);
     }
 
     // Checks if any of the current alerts are triggered by the provided product list
+    // Each product looks up its own alerts in the index, so the check is linear in the products
+    // (plus the alerts that fire), not in alerts x products.
     public List<String> checkAlertsAgainstProducts(List<Product> products) {
         List<String> triggered = new ArrayList<>();
 
-        // iterate through each registered alert
-        for (PriceAlert alert : alerts) {
+        for (Product p : products) {
+            // validate match: same productId, optional store match, price <= target
+            for (PriceAlert alert : index.triggered(p.getProductId(), p.getStore(), p.getPrice())) {
+                triggered.add(message(p, alert)); // add to results
+            }
+        }
+
+        return triggered; // return all matched alerts
+    }
+
+    // Alerts that fire on the whole catalog (GET /alerts/check): every productId is taken at each store's
+    // effective price, its cheapest offer after the discount active on epochDay, the same price the catalog
+    // updates are evaluated on, so the check agrees with what the feed reports for the same snapshot
+    public List<String> checkCatalog(CatalogSnapshot snapshot, long epochDay) {
+        ProductTable products = snapshot.getProductTable();
+        DiscountIndex discounts = snapshot.getDiscountIndex();
+        Map<String, StorePrice> cheapest = new LinkedHashMap<>(); // "productid;store" (lower case) -> cheapest offer
+        for (int row = 0; row < products.size(); row++) {
+            if (products.productId(row) == null || products.store(row) == null) {
+                continue;
+            }
+            double price = discounts.discountedPrice(products, row, epochDay);
+            String key = products.productId(row).toLowerCase() + ';' + products.store(row).toLowerCase();
+            StorePrice offer = cheapest.get(key);
+            if (offer == null || price < offer.price) {
+                cheapest.put(key, new StorePrice(row, price));
+            }
+        }
+
+        List<String> triggered = new ArrayList<>();
+        for (StorePrice offer : cheapest.values()) {
+            Product product = products.product(offer.row);
+            product.setPrice(offer.price);
+            for (PriceAlert alert : index.triggered(product.getProductId(), product.getStore(), offer.price)) {
+                triggered.add(message(product, alert));
+            }
+        }
+        return triggered;
+    }
+
+    // Checks a single price update: only the alerts whose target lies between the new price (inclusive) and
+    // the previous price start firing, alerts that already fired at the previous price are not repeated
+    public List<String> checkPriceChange(Product product, double previousPrice) {
+        List<String> triggered = new ArrayList<>();
+        for (PriceAlert alert : index.triggeredBetween(product.getProductId(), product.getStore(), product.getPrice(), previousPrice)) {
+            triggered.add(message(product, alert));
+        }
+        return triggered;
+    }
 
-            // check against each product in the input list
-            for (Product p : products) {
-                // validate match: same productId, optional store match, price <= target
-                if (p.getProductId().equalsIgnoreCase(alert.getProductId())
-                        && (alert.getStore() == null || p.getStore().equalsIgnoreCase(alert.getStore()))
-                        && p.getPrice() <= alert.getTargetPrice()) {
+    // Alerts that start firing because of a catalog update. For every productId in the changed files, each store's
+    // effective price (its cheapest offer after the discount active on epochDay) before and after the update is
+    // compared, and only alerts with a target in [new price, old price) fire; a store that did not sell the
+    // product before counts as an infinite old price. Only the changed files are read, so the cost follows the
+    // size of the ingest, not of the catalog (a full reload looks at every product).
+    public List<AlertNotificationDTO> checkCatalogUpdate(CatalogUpdatedEvent event, long epochDay) {
+        CatalogSnapshot current = event.getCurrent();
+        List<AlertNotificationDTO> triggered = new ArrayList<>();
 
-                    // format triggered message with product info
-                    String message = String.format(
-                            " Product '%s' is now %.2f RON in '%s' (target was %.2f RON)",
-                            p.getProductName(), p.getPrice(), p.getStore(), alert.getTargetPrice()
-                    );
+        for (String productId : changedProductIds(event)) {
+            Map<String, StorePrice> before = storePrices(event.getPrevious(), productId, epochDay);
+            for (Map.Entry<String, StorePrice> entry : storePrices(current, productId, epochDay).entrySet()) {
+                StorePrice now = entry.getValue();
+                StorePrice old = before.get(entry.getKey());
+                double previousPrice = old != null ? old.price : Double.POSITIVE_INFINITY;
 
-                    triggered.add(message); // add to results
+                Product product = current.getProductTable().product(now.row);
+                product.setPrice(now.price);
+                for (PriceAlert alert : index.triggeredBetween(product.getProductId(), product.getStore(), now.price, previousPrice)) {
+                    triggered.add(new AlertNotificationDTO(0, current.getVersion(), product.getProductId(),
+                        product.getProductName(), product.getStore(), now.price, alert.getTargetPrice(), message(product, alert)));
                 }
             }
         }
+        return triggered;
+    }
 
-        return triggered; // return all matched alerts
+    // lower-case productIds listed in the changed files, in their old and new versions
+    private static Set<String> changedProductIds(CatalogUpdatedEvent event) {
+        Set<String> productIds = new LinkedHashSet<>();
+        if (event.isFullReload()) {
+            addProductIds(event.getCurrent().getProductTable(), productIds);
+            return productIds;
+        }
+        for (CatalogSnapshot snapshot : List.of(event.getPrevious(), event.getCurrent())) {
+            for (String fileName : event.getChangedFiles()) {
+                ProductTable products = snapshot.getProductFiles().get(fileName);
+                if (products != null) {
+                    addProductIds(products, productIds);
+                }
+                for (Discount discount : snapshot.getDiscountFiles().getOrDefault(fileName, List.of())) {
+                    if (discount.getProductId() != null) {
+                        productIds.add(discount.getProductId().toLowerCase());
+                    }
+                }
+            }
+        }
+        return productIds;
+    }
+
+    private static void addProductIds(ProductTable products, Set<String> productIds) {
+        for (int row = 0; row < products.size(); row++) {
+            if (products.productId(row) != null) {
+                productIds.add(products.productId(row).toLowerCase());
+            }
+        }
+    }
+
+    // lower-case store -> cheapest offer of the product there after discounts; equal prices keep the first row
+    private static Map<String, StorePrice> storePrices(CatalogSnapshot snapshot, String productId, long epochDay) {
+        ProductTable products = snapshot.getProductTable();
+        Map<String, StorePrice> prices = new HashMap<>();
+        for (int row : snapshot.findRowsByProductId(productId)) {
+            if (products.store(row) == null) {
+                continue;
+            }
+            double price = snapshot.getDiscountIndex().discountedPrice(products, row, epochDay);
+            StorePrice cheapest = prices.get(products.store(row).toLowerCase());
+            if (cheapest == null || price < cheapest.price) {
+                prices.put(products.store(row).toLowerCase(), new StorePrice(row, price));
+            }
+        }
+        return prices;
+    }
+
+    // format triggered message with product info
+    private static String message(Product p, PriceAlert alert) {
+        return String.format(
+                " Product '%s' is now %.2f RON in '%s' (target was %.2f RON)",
+                p.getProductName(), p.getPrice(), p.getStore(), alert.getTargetPrice()
+        );
+    }
+
+    private static final class StorePrice {
+        private final int row;
+        private final double price;
+
+        private StorePrice(int row, double price) {
+            this.row = row;
+            this.price = price;
+        }
     }
 }
@@ -0,0 +1,494 @@
+package com.example.pricecomparator.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.models.PriceAlert;
+
+import jakarta.annotation.PreDestroy;
+
+// Keeps registered price alerts on disk so they survive restarts (enabled by alerts.store-dir).
+// Alerts are appended to a log (alerts-<generation>.log) as length + CRC32 framed records. Registrations are
+// group-committed: callers queue their record and wait, while one writer thread writes everything queued so far
+// and fsyncs once for the whole batch, so throughput is bound by fsyncs per batch, not per alert.
+// compact() starts a new log generation and merges the closed logs into alerts.snapshot (written to a temporary
+// file, fsynced and atomically renamed, then the directory is fsynced so the rename is durable), after which those
+// logs are deleted. Recovery reads the snapshot and
+// replays the logs of later generations; a torn record at the end of a log (crash during a write) is ignored.
+@Component
+public class AlertStore {
+    private static final Logger log = LoggerFactory.getLogger(AlertStore.class);
+
+    private static final String SNAPSHOT = "alerts.snapshot";
+    private static final Pattern LOG_FILE = Pattern.compile("alerts-(\\d+)\\.log");
+    private static final int SNAPSHOT_MAGIC = 0x50434153; // "PCAS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_RECORD = 64 * 1024;
+    private static final int FLAG_PRODUCT_ID = 1;
+    private static final int FLAG_STORE = 2;
+    private static final int BULK_CHUNK = 65_536; // alerts per queued write in appendAll
+
+    private final Path directory; // null when persistence is disabled
+    private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+    private final Object logLock = new Object(); // guards channel, generation and unsealedRecords
+    private final Object compactionLock = new Object();
+    private final Object enqueueLock = new Object(); // makes the closed check and the queueing of an append atomic
+
+    private FileChannel channel;
+    private long generation;
+    private long unsealedRecords; // records in logs not yet merged into the snapshot
+    private Thread writer;
+    private volatile boolean closed; // set under enqueueLock
+
+    public AlertStore(AlertProperties properties) {
+        this.directory = properties.getStoreDir().isBlank() ? null : Paths.get(properties.getStoreDir());
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    // Reads every stored alert, in registration order, and opens a new log generation for appends.
+    // Must be called once, before the first append.
+    public synchronized List<PriceAlert> recover() {
+        List<PriceAlert> alerts = new ArrayList<>();
+        if (directory == null) {
+            return alerts;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            Map<String, String> strings = new HashMap<>(); // productIds and stores repeat a lot; keep one copy
+            Consumer<PriceAlert> sink = alerts::add;
+
+            long covered = -1; // logs up to this generation are already in the snapshot
+            Path snapshot = directory.resolve(SNAPSHOT);
+            if (Files.exists(snapshot)) {
+                covered = readSnapshot(snapshot, strings, sink);
+            }
+            int fromSnapshot = alerts.size();
+            TreeMap<Long, Path> logs = logFiles();
+            for (Map.Entry<Long, Path> entry : logs.entrySet()) {
+                if (entry.getKey() <= covered) {
+                    Files.deleteIfExists(entry.getValue()); // compaction finished but was stopped before deleting it
+                } else {
+                    readLog(entry.getValue(), strings, sink);
+                }
+            }
+
+            long last = logs.isEmpty() ? covered : Math.max(covered, logs.lastKey());
+            synchronized (logLock) {
+                generation = last + 1;
+                channel = openLog(generation);
+                unsealedRecords = alerts.size() - fromSnapshot;
+            }
+            syncDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover price alerts from " + directory, e);
+        }
+        writer = new Thread(this::writeLoop, "alert-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Recovered {} price alerts from {} in {} ms", alerts.size(), directory,
+            (System.nanoTime() - start) / 1_000_000);
+        return alerts;
+    }
+
+    // Appends the alert and returns once it is on disk (together with whatever else was queued meanwhile)
+    public void append(PriceAlert alert) {
+        if (directory == null) {
+            return;
+        }
+        await(enqueue(encode(alert), 1));
+    }
+
+    // Appends many alerts (bulk import) in large batches and returns once all of them are on disk
+    public void appendAll(Collection<PriceAlert> alerts) {
+        if (directory == null) {
+            return;
+        }
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(1 << 20);
+        int count = 0;
+        Pending last = null;
+        for (PriceAlert alert : alerts) {
+            chunk.writeBytes(encode(alert));
+            if (++count == BULK_CHUNK) {
+                last = enqueue(chunk.toByteArray(), count);
+                chunk.reset();
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            last = enqueue(chunk.toByteArray(), count);
+        }
+        if (last != null) {
+            await(last); // the writer takes the queue in order, so the earlier chunks are written too
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.compact-interval-ms:300000}",
+               initialDelayString = "${alerts.compact-interval-ms:300000}")
+    public void compactPeriodically() {
+        if (directory != null && !closed) {
+            try {
+                compact();
+            } catch (UncheckedIOException e) {
+                log.warn("Alert log compaction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Moves everything logged so far into the snapshot. Appends continue in a new log meanwhile.
+    public void compact() {
+        if (directory == null) {
+            return;
+        }
+        synchronized (compactionLock) {
+            long sealed;
+            synchronized (logLock) {
+                if (unsealedRecords == 0) {
+                    return;
+                }
+                try {
+                    channel.force(false);
+                    channel.close();
+                    sealed = generation;
+                    generation++;
+                    channel = openLog(generation);
+                    syncDirectory(); // the new log must survive a crash before the old ones go away
+                    unsealedRecords = 0;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot start a new alert log", e);
+                }
+            }
+
+            long start = System.nanoTime();
+            Path snapshot = directory.resolve(SNAPSHOT);
+            Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+            try {
+                long[] count = new long[1];
+                Map<String, String> strings = new HashMap<>();
+                TreeMap<Long, Path> sealedLogs = new TreeMap<>(logFiles().headMap(sealed, true));
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), 1 << 16))) {
+                    out.writeInt(SNAPSHOT_MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeLong(sealed);
+                    Consumer<PriceAlert> copy = alert -> {
+                        try {
+                            out.write(encode(alert));
+                            count[0]++;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    };
+                    if (Files.exists(snapshot)) {
+                        readSnapshot(snapshot, strings, copy);
+                    }
+                    for (Path logFile : sealedLogs.values()) {
+                        readLog(logFile, strings, copy);
+                    }
+                }
+                try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    file.force(true);
+                }
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // without this a crash could keep the deletions below but lose the rename, and with it the alerts
+                syncDirectory();
+                for (Path logFile : sealedLogs.values()) {
+                    Files.deleteIfExists(logFile);
+                }
+                log.info("Compacted price alerts: {} alerts in the snapshot, logs up to generation {} removed ({} ms)",
+                    count[0], sealed, (System.nanoTime() - start) / 1_000_000);
+            } catch (IOException e) {
+                synchronized (logLock) {
+                    unsealedRecords++; // the sealed logs are still there; try again next time
+                }
+                throw new UncheckedIOException("Cannot compact the alert log", e);
+            }
+        }
+    }
+
+    // Waits for queued appends and closes the log
+    @PreDestroy
+    public void close() {
+        synchronized (enqueueLock) {
+            if (directory == null || closed) {
+                return;
+            }
+            closed = true; // from now on nothing more is queued
+        }
+        if (writer != null) {
+            try {
+                // the channel must stay open while the writer may still use it
+                writer.join(10_000);
+                while (writer.isAlive()) {
+                    log.warn("Still writing queued price alerts, waiting for the alert log writer");
+                    writer.join(10_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for the alert log writer; the log stays open");
+                return;
+            }
+        }
+        // only left when the writer was never started or stopped by an interrupt
+        List<Pending> leftover = new ArrayList<>();
+        pending.drainTo(leftover);
+        leftover.forEach(entry -> entry.done.completeExceptionally(new IllegalStateException("Alert store is closed")));
+        synchronized (logLock) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.warn("Cannot close the alert log: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Group commit: take everything queued, write it with one fsync, then release all the waiting callers
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            // polls instead of being interrupted on close: an interrupt would close the FileChannel mid-write
+            try {
+                Pending first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pending.drainTo(batch);
+            if (batch.isEmpty()) {
+                if (!closed) {
+                    continue;
+                }
+                // appends queued just before close() set the flag are visible now; write them before leaving
+                pending.drainTo(batch);
+                if (batch.isEmpty()) {
+                    return;
+                }
+            }
+
+            int size = 0;
+            int records = 0;
+            for (Pending entry : batch) {
+                size += entry.record.length;
+                records += entry.records;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (Pending entry : batch) {
+                buffer.put(entry.record);
+            }
+            buffer.flip();
+            try {
+                synchronized (logLock) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                    unsealedRecords += records;
+                }
+                batch.forEach(entry -> entry.done.complete(null));
+            } catch (IOException e) {
+                log.error("Cannot write {} price alerts to the log: {}", batch.size(), e.getMessage());
+                batch.forEach(entry -> entry.done.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private Pending enqueue(byte[] records, int count) {
+        Pending entry = new Pending(records, count);
+        synchronized (enqueueLock) {
+            if (closed) {
+                throw new IllegalStateException("Alert store is closed");
+            }
+            pending.add(entry);
+        }
+        return entry;
+    }
+
+    private static void await(Pending entry) {
+        try {
+            entry.done.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? new UncheckedIOException(io) : new IllegalStateException(cause);
+        }
+    }
+
+    private FileChannel openLog(long logGeneration) throws IOException {
+        return FileChannel.open(directory.resolve("alerts-" + logGeneration + ".log"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Makes file creations, renames and deletions in the store directory durable
+    private void syncDirectory() throws IOException {
+        FileChannel dir;
+        try {
+            dir = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // some platforms (Windows) cannot open a directory; their renames need no directory fsync
+        }
+        try (dir) {
+            dir.force(true);
+        }
+    }
+
+    private TreeMap<Long, Path> logFiles() throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = LOG_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    logs.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return logs;
+    }
+
+    // Returns the last log generation included in the snapshot
+    private static long readSnapshot(Path file, Map<String, String> strings, Consumer<PriceAlert> sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not an alert snapshot: " + file);
+            }
+            long covered = in.readLong();
+            if (readRecords(in, strings, sink) != null) {
+                // the snapshot is renamed into place only once complete, so this is real corruption
+                throw new IOException("Corrupt alert snapshot: " + file);
+            }
+            return covered;
+        }
+    }
+
+    private static void readLog(Path file, Map<String, String> strings, Consumer<PriceAlert> sink) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            String problem = readRecords(new DataInputStream(in), strings, sink);
+            if (problem != null) {
+                log.warn("Ignoring the end of {}: {}", file.getFileName(), problem);
+            }
+        }
+    }
+
+    // Reads records until the end of the stream; returns why it stopped early, or null
+    private static String readRecords(DataInputStream in, Map<String, String> strings, Consumer<PriceAlert> sink) throws IOException {
+        byte[] payload = new byte[256];
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            try {
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD) {
+                    return "invalid record length " + length;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return "checksum mismatch";
+                }
+            } catch (EOFException e) {
+                return "truncated record";
+            }
+            sink.accept(decode(payload, length, strings));
+        }
+    }
+
+    private static byte[] encode(PriceAlert alert) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeByte((alert.getProductId() != null ? FLAG_PRODUCT_ID : 0) | (alert.getStore() != null ? FLAG_STORE : 0));
+            payload.writeDouble(alert.getTargetPrice());
+            if (alert.getProductId() != null) {
+                payload.writeUTF(alert.getProductId());
+            }
+            if (alert.getStore() != null) {
+                payload.writeUTF(alert.getStore());
+            }
+            byte[] body = bytes.toByteArray();
+            if (body.length > MAX_RECORD) {
+                throw new IllegalArgumentException("Price alert is too large to store");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ByteBuffer record = ByteBuffer.allocate(8 + body.length);
+            record.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            return record.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream does not throw
+        }
+    }
+
+    private static PriceAlert decode(byte[] payload, int length, Map<String, String> strings) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        int flags = in.readByte();
+        double target = in.readDouble();
+        String productId = (flags & FLAG_PRODUCT_ID) != 0 ? strings.computeIfAbsent(in.readUTF(), s -> s) : null;
+        String store = (flags & FLAG_STORE) != 0 ? strings.computeIfAbsent(in.readUTF(), s -> s) : null;
+        return new PriceAlert(productId, target, store);
+    }
+
+    // encoded records waiting for the writer
+    private static final class Pending {
+        private final byte[] record;
+        private final int records;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(byte[] record, int records) {
+            this.record = record;
+            this.records = records;
+        }
+    }
+}
@@ -1,135 +1,326 @@
 package com.example.pricecomparator.service;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.CheapestOfferTable;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.dto.BasketBatchRequestDTO;
+import com.example.pricecomparator.dto.BasketBatchResultDTO;
+import com.example.pricecomparator.dto.BasketPlanDTO;
 import com.example.pricecomparator.dto.BasketProductDTO;
 import com.example.pricecomparator.dto.BasketRequestItemDTO;
 import com.example.pricecomparator.dto.BasketResponseDTO;
 import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.util.StorePlanner;
 
 import org.slf4j.Logger;
 
 @Service
 public class BasketService {
 
-    private final ProductService productService;
-    private final DiscountService discountService;
+    // baskets optimised in parallel before their results are handed on, in request order
+    private static final int BATCH_CHUNK_SIZE = 256;
+
+    private final CatalogService catalogService;
+    private final Timer batchTimer;
+    private final Counter batchBaskets;
+    private final DistributionSummary batchThroughput;
 
     private static final Logger log = LoggerFactory.getLogger(BasketService.class);
 
     // constructor
-    public BasketService(ProductService productService, DiscountService discountService) {
-        this.productService = productService;
-        this.discountService = discountService;
+    public BasketService(CatalogService catalogService, MeterRegistry meterRegistry) {
+        this.catalogService = catalogService;
+        this.batchTimer = Timer.builder("basket.batch")
+            .description("Time to optimise and write one batch of baskets")
+            .register(meterRegistry);
+        this.batchBaskets = Counter.builder("basket.batch.baskets")
+            .description("Baskets optimised through the batch endpoint")
+            .register(meterRegistry);
+        this.batchThroughput = DistributionSummary.builder("basket.batch.throughput")
+            .description("Baskets per second of each batch")
+            .baseUnit("baskets/s")
+            .register(meterRegistry);
     }
 
     // For each product in the user's basket, this method finds the store where it' cheapest, including active discounts.
     // The products are grouped by store to know what to buy from where.
-    public Map<String, List<Product>> optimiseBasket(List<BasketRequestItemDTO> basketItems) {
-        List<Product> allProducts = productService.loadAllProductsFromCsvDirectory();
-        Map<String, List<Product>> groupedByStore = new HashMap<>();
+    // Each basket line stays one (product, quantity) entry, so the work does not depend on the quantities.
+    public Map<String, List<BasketLine>> optimiseBasket(List<BasketRequestItemDTO> basketItems) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        return selectOffers(catalog, todaysOffers(catalog), basketItems);
+    }
 
-        for(BasketRequestItemDTO item : basketItems) {
-            if (item.getQuantity() <= 0) {
-                throw new IllegalArgumentException("Quantity must be positive");
-            }
-            String productId = item.getProductId();
-            int quantity = item.getQuantity();
-
-            // find all products that match the given product id
-            List<Product> matches = allProducts.stream()
-                .filter(p -> p.getProductId().equalsIgnoreCase(productId))
-                .toList();
-            
-            if(matches.isEmpty()) {
-                log.warn("No product found for ID: {}", productId);
+    // This method creates the final basket response that will be returned to the client.
+    // Groups the selectedproducts by store and calculates the total cost per store.
+    public List<BasketResponseDTO> getOptimisedBasket(List<BasketRequestItemDTO> basketItems) {
+        log.info("Optimising basket with {} item types", basketItems.size());
+
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        return buildBaskets(selectOffers(catalog, todaysOffers(catalog), basketItems));
+    }
+
+    // Plans the basket over a few stores instead of taking every product from wherever it is cheapest:
+    // the plan uses at most maxStores stores (null: any number) and every store in it costs storeCost
+    // (null: nothing), so the basket is only split when the saving pays for the extra stop.
+    // Each product is priced at the cheapest offer of each store today; StorePlanner picks the stores.
+    public BasketPlanDTO getPlannedBasket(List<BasketRequestItemDTO> basketItems, Integer maxStores, Double storeCost) {
+        long start = System.nanoTime();
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        CheapestOfferTable offers = todaysOffers(catalog);
+        ProductTable products = catalog.getProductTable();
+
+        // one planner item per product, quantities of repeated lines added up
+        Map<Integer, Integer> quantityBySlot = new LinkedHashMap<>();
+        Map<Integer, String> productIdBySlot = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+        for (BasketRequestItemDTO item : basketItems) {
+            checkItem(item);
+            int slot = offers.find(item.getProductId());
+            if (slot < 0) {
+                log.warn("No product found for ID: {}", item.getProductId());
+                unavailable.add(item.getProductId());
                 continue;
             }
+            quantityBySlot.merge(slot, item.getQuantity(), BasketService::addQuantities);
+            productIdBySlot.putIfAbsent(slot, item.getProductId());
+        }
 
-            // find the cheapest offer, considering any active discounts
-            Product bestOffer = matches.stream()
-                .min(Comparator.comparingDouble(p -> discountService.getDiscountedPrice(p)))
-                .orElse(null);
+        // one planner store per store selling any of the products
+        int[] slots = quantityBySlot.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Map<Integer, Integer> columnByStore = new LinkedHashMap<>(); // store dictionary code -> planner store
+        for (int slot : slots) {
+            for (int offer = offers.firstOffer(slot); offer < offers.endOffer(slot); offer++) {
+                columnByStore.putIfAbsent(offers.offerStore(offer), columnByStore.size());
+            }
+        }
+        int storeCount = columnByStore.size();
+        double[][] costs = new double[slots.length][storeCount];
+        for (int i = 0; i < slots.length; i++) {
+            Arrays.fill(costs[i], Double.POSITIVE_INFINITY);
+            for (int offer = offers.firstOffer(slots[i]); offer < offers.endOffer(slots[i]); offer++) {
+                costs[i][columnByStore.get(offers.offerStore(offer))] = offers.offerPrice(offer) * quantityBySlot.get(slots[i]);
+            }
+        }
+
+        StorePlanner.Plan plan = StorePlanner.plan(costs, storeCount,
+            maxStores != null ? maxStores : Math.max(storeCount, 1), storeCost != null ? storeCost : 0);
 
-            if(bestOffer == null ) {
-                log.warn("No valid offer found for ID: {}", productId);
+        Map<String, List<BasketLine>> groupedByStore = new LinkedHashMap<>();
+        for (int i = 0; i < slots.length; i++) {
+            int column = plan.storeOf(i);
+            if (column < 0) {
+                unavailable.add(productIdBySlot.get(slots[i]));
                 continue;
             }
+            for (int offer = offers.firstOffer(slots[i]); offer < offers.endOffer(slots[i]); offer++) {
+                if (columnByStore.get(offers.offerStore(offer)) == column) {
+                    Product product = products.product(offers.offerRow(offer));
+                    groupedByStore
+                        .computeIfAbsent(product.getStore(), k -> new ArrayList<>())
+                        .add(new BasketLine(product, offers.offerPrice(offer), quantityBySlot.get(slots[i])));
+                    break;
+                }
+            }
+        }
 
-            log.debug("Best offer for product {} is in store {} with final price {}", productId, bestOffer.getStore(), discountService.getDiscountedPrice(bestOffer));
+        log.info("Planned basket with {} products over {} of {} stores in {} us ({} store subsets searched)",
+            slots.length, plan.getStores().length, storeCount,
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), plan.getNodes());
+        return new BasketPlanDTO(buildBaskets(groupedByStore), plan.getItemsCost(), plan.getStoresCost(),
+            plan.getTotalCost(), unavailable);
+    }
 
-            // add the product multiple times, based on quantity, to the store's list
-            List<Product> storeProducts = groupedByStore
-                .computeIfAbsent(bestOffer.getStore(), k -> new ArrayList<>());
+    // Optimises many baskets against one catalog snapshot, so every basket of the batch sees the same prices.
+    // Baskets are optimised in parallel a chunk at a time and passed to the sink in request order as each
+    // chunk completes, so the caller can stream results while the rest are computed.
+    // A basket with invalid input gets a result with an error instead of failing the batch.
+    public void optimiseBaskets(List<BasketBatchRequestDTO> baskets, Consumer<BasketBatchResultDTO> sink) {
+        long start = System.nanoTime();
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        CheapestOfferTable offers = todaysOffers(catalog);
 
-            for (int i = 0; i < quantity; i++) {
-                storeProducts.add(bestOffer);
+        for (int from = 0; from < baskets.size(); from += BATCH_CHUNK_SIZE) {
+            int first = from;
+            BasketBatchResultDTO[] results = new BasketBatchResultDTO[Math.min(BATCH_CHUNK_SIZE, baskets.size() - from)];
+            IntStream.range(0, results.length).parallel()
+                .forEach(i -> results[i] = optimiseBatchItem(catalog, offers, first + i, baskets.get(first + i)));
+            for (BasketBatchResultDTO result : results) {
+                sink.accept(result);
             }
         }
 
-        return groupedByStore;
+        long elapsed = System.nanoTime() - start;
+        double perSecond = baskets.size() / Math.max(elapsed / 1e9, 1e-9);
+        batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        batchBaskets.increment(baskets.size());
+        batchThroughput.record(perSecond);
+        log.info("Optimised a batch of {} baskets in {} ms ({} baskets/s)",
+            baskets.size(), TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(perSecond));
     }
 
-    // This method creates the final basket response that will be returned to the client.
-    // Groups the selectedproducts by store and calculates the total cost per store.
-    public List<BasketResponseDTO> getOptimisedBasket(List<BasketRequestItemDTO> basketItems) {
-        log.info("Optimising basket with {} item types", basketItems.size());
-        
-        Map<String, List<Product>> groupedByStore = optimiseBasket(basketItems); // search the most cheap item for every productId
+    private BasketBatchResultDTO optimiseBatchItem(CatalogSnapshot catalog, CheapestOfferTable offers, int index,
+                                                   BasketBatchRequestDTO basket) {
+        String basketId = basket != null ? basket.getBasketId() : null;
+        if (basket == null || basket.getItems() == null) {
+            return new BasketBatchResultDTO(index, basketId, List.of(), 0, "Basket has no items");
+        }
+        try {
+            List<BasketResponseDTO> result = buildBaskets(selectOffers(catalog, offers, basket.getItems()));
+            double total = result.stream().mapToDouble(BasketResponseDTO::getTotalPrice).sum();
+            return new BasketBatchResultDTO(index, basketId, result, total, null);
+        } catch (IllegalArgumentException e) {
+            return new BasketBatchResultDTO(index, basketId, List.of(), 0, e.getMessage());
+        }
+    }
+
+    // Creates the per-store response from the chosen offers
+    private List<BasketResponseDTO> buildBaskets(Map<String, List<BasketLine>> groupedByStore) {
         List<BasketResponseDTO> responseList = new ArrayList<>(); // a list with responses for every store
 
         // loop for every store and its optimised product list
-        for(Map.Entry<String, List<Product>> entry : groupedByStore.entrySet()) {
+        for (Map.Entry<String, List<BasketLine>> entry : groupedByStore.entrySet()) {
             String store = entry.getKey(); // extracts the store name
-            List<Product> products = entry.getValue(); // extracts the product list
+            List<BasketLine> lines = entry.getValue(); // extracts the basket lines
+
+            log.debug("Creating basket for store '{}'. {} basket lines", store, lines.size());
 
-            log.debug("Creating basket for store '{}'. {} total items", store, products.size());
+            // temporary map to aggregate quantities and calculate total per product in the current store
+            Map<String, BasketProductDTO> productMap = new LinkedHashMap<>();
 
-        // temporary map to aggregate quantities and calculate total per product in the current store
-            Map<String, BasketProductDTO> productMap = new HashMap<>();
+            // the unit price already includes the discount, it comes from the cheapest-offer table
+            for (BasketLine line : lines) {
+                Product p = line.product;
+                BasketProductDTO dto = productMap.get(p.getProductId());
 
-            // for every product id => calculate the discounted price if it exists
-            for(Product p : products) {
-                String productId = p.getProductId();
-                double unitPrice = discountService.getDiscountedPrice(p);
-                
-                if(!productMap.containsKey(productId)) { 
+                if (dto == null) {
                     // if the product is not in mapping, we create a new DTO
-                    productMap.put(productId, new BasketProductDTO(
-                        productId,
+                    productMap.put(p.getProductId(), new BasketProductDTO(
+                        p.getProductId(),
                         p.getProductName(),
-                        unitPrice,
-                        1, //quantity
-                        unitPrice   // initial total = unit price
+                        line.unitPrice,
+                        line.quantity,
+                        line.unitPrice * line.quantity
                     ));
-                } else { 
-                    // product already exists => increment quantity and total
-                    BasketProductDTO dto = productMap.get(productId);
-                    dto.setQuantity(dto.getQuantity() + 1);
-                    dto.setTotalPrice(dto.getTotalPrice() + unitPrice);
+                } else {
+                    // product already exists (listed twice in the basket) => increment quantity and total
+                    dto.setQuantity(addQuantities(dto.getQuantity(), line.quantity));
+                    dto.setTotalPrice(dto.getTotalPrice() + line.unitPrice * line.quantity);
                 }
             }
 
             // extract all the products from mapping
-            List<BasketProductDTO> productDTOs = new ArrayList<>(productMap.values()); 
+            List<BasketProductDTO> productDTOs = new ArrayList<>(productMap.values());
 
             // calculates total price
             double totalPrice = productDTOs.stream()
                 .mapToDouble(BasketProductDTO::getTotalPrice)
                 .sum();
 
-            BasketResponseDTO dto = new BasketResponseDTO(store, productDTOs, totalPrice);
-            responseList.add(dto);
+            responseList.add(new BasketResponseDTO(store, productDTOs, totalPrice));
         }
 
         return responseList;
     }
 
+    // Resolves every basket line to the cheapest offer of its product, grouped by store in basket order.
+    // Offers come from the snapshot's cheapest-offer table for today, so each line is one hash lookup
+    // and no discount is looked up again here.
+    // The snapshot is passed in so every line (and every basket of a batch) sees the same catalog.
+    private Map<String, List<BasketLine>> selectOffers(CatalogSnapshot catalog, CheapestOfferTable offers,
+                                                       List<BasketRequestItemDTO> basketItems) {
+        Map<String, List<BasketLine>> groupedByStore = new LinkedHashMap<>();
+
+        for (BasketRequestItemDTO item : basketItems) {
+            checkItem(item);
+            String productId = item.getProductId();
+
+            // find the cheapest offer, considering any active discounts
+            int slot = offers.find(productId);
+            if (slot < 0) {
+                log.warn("No product found for ID: {}", productId);
+                continue;
+            }
+
+            Product bestOffer = catalog.getProductTable().product(offers.row(slot));
+            log.debug("Best offer for product {} is in store {} with final price {}", productId, bestOffer.getStore(), offers.unitPrice(slot));
+
+            groupedByStore
+                .computeIfAbsent(bestOffer.getStore(), k -> new ArrayList<>())
+                .add(new BasketLine(bestOffer, offers.unitPrice(slot), item.getQuantity()));
+        }
+
+        return groupedByStore;
+    }
+
+    // A basket line must be present and ask for at least one unit; JSON input can hold a null entry
+    private static void checkItem(BasketRequestItemDTO item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Basket item must not be null");
+        }
+        if (item.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+    }
+
+    // Adds up the quantities of a product listed more than once; a total that does not fit in an int is
+    // rejected instead of wrapping around to a negative quantity
+    private static int addQuantities(int quantity, int more) {
+        try {
+            return Math.addExact(quantity, more);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Total quantity of a product is too large");
+        }
+    }
+
+    private static CheapestOfferTable todaysOffers(CatalogSnapshot catalog) {
+        return catalog.getCheapestOffers(LocalDate.now().toEpochDay());
+    }
+
+    // The offer chosen for one basket line: the product, its price today and how many units to buy
+    public static final class BasketLine {
+        private final Product product;
+        private final double unitPrice; // after the discount active today
+        private final int quantity;
+
+        private BasketLine(Product product, double unitPrice, int quantity) {
+            this.product = product;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public double getUnitPrice() {
+            return unitPrice;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getTotalPrice() {
+            return unitPrice * quantity;
+        }
+    }
+
 }
@@ -0,0 +1,358 @@
+package com.example.pricecomparator.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+import com.example.pricecomparator.catalog.CatalogFile;
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.CatalogUpdatedEvent;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.models.Discount;
+
+// Owns the in-memory catalog. The CSV directory (products and discounts) is parsed once at startup into an immutable
+// CatalogSnapshot; request handlers read the current snapshot and never touch the files.
+// Afterwards only changed files are parsed again (see CatalogWatcher) and a new snapshot is swapped in atomically.
+// Every swap after startup publishes a CatalogUpdatedEvent with the old and new snapshot.
+@Service
+public class CatalogService implements ApplicationEventPublisherAware {
+    private static final Logger log = LoggerFactory.getLogger(CatalogService.class);
+    static final String CSV_DIRECTORY = FileService.DATA_DIRECTORY;
+
+    // a dictionary is compacted once it holds more than twice this many strings, or twice the live ones if more
+    static final int MIN_LIVE_STRINGS = 1024;
+
+    private final FileService fileService;
+    private final CsvService csvService;
+    private final CatalogProperties properties;
+
+    // full load times; the first load (cold start) is reported separately from later refreshes
+    private final Timer startupTimer;
+    private final Timer refreshTimer;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.empty());
+    private final AtomicLong versions = new AtomicLong();
+
+    // size/modification stamp of every file in the current snapshot, guarded by this
+    private final Map<String, Long> loadedStamps = new HashMap<>();
+
+    // snapshot version last saved to the catalog file, guarded by this
+    private long writtenVersion = -1;
+
+    // strings in the dictionary after the startup load or the last compaction, guarded by this
+    private int liveStrings;
+
+    // set by Spring after construction, so the startup load publishes nothing; null when used outside Spring
+    private volatile ApplicationEventPublisher events;
+
+    public CatalogService(FileService fileService, CsvService csvService, CatalogProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.fileService = fileService;
+        this.csvService = csvService;
+        this.properties = properties;
+        this.startupTimer = Timer.builder("catalog.load")
+            .description("Time to parse all CSV files into a catalog snapshot")
+            .tag("phase", "startup")
+            .register(meterRegistry);
+        this.refreshTimer = Timer.builder("catalog.load")
+            .description("Time to parse all CSV files into a catalog snapshot")
+            .tag("phase", "refresh")
+            .register(meterRegistry);
+        refresh();
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    // Returns the current snapshot; callers should read it once per request for a consistent view
+    public CatalogSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    // Parses every product and discount file in the CSV directory and atomically replaces the current snapshot.
+    // Files are parsed independently on a bounded worker pool; results are merged in directory order afterwards,
+    // so the workers never share a collection. At startup, files that did not change since the catalog file
+    // was written are taken from it instead of being parsed.
+    public synchronized CatalogSnapshot refresh() {
+        long start = System.nanoTime();
+        Map<String, Long> stamps = fileService.getFileStamps(CSV_DIRECTORY);
+        CatalogFile.Contents restored = snapshot.get().getVersion() == 0 ? readCatalogFile() : null;
+
+        // get all CSV file paths from the resources/csv directory
+        List<String> csvFiles = fileService.getFileNames(CSV_DIRECTORY, "", "");
+        Set<String> toParse = new HashSet<>();
+        for (String filePath : csvFiles) {
+            if (restored == null || !restored.isCurrent(fileName(filePath), stamps.get(fileName(filePath)))) {
+                toParse.add(filePath);
+            }
+        }
+        int threads = Math.max(1, Math.min(ingestThreads(), toParse.size()));
+        log.info("Found {} CSV files, {} to parse with {} worker threads", csvFiles.size(), toParse.size(), threads);
+
+        Map<String, Future<ProductTable>> productTasks = new LinkedHashMap<>();
+        Map<String, Future<List<Discount>>> discountTasks = new LinkedHashMap<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new IngestThreadFactory());
+        try {
+            for (String filePath : csvFiles) {
+                String fileName = fileName(filePath);
+                boolean parse = toParse.contains(filePath);
+                // discount files share the directory but have their own format
+                if (isDiscountFile(filePath)) {
+                    discountTasks.put(fileName, parse
+                        ? workers.submit(() -> csvService.loadDiscounts(filePath))
+                        : CompletableFuture.completedFuture(restored.getDiscountFiles().get(fileName)));
+                } else {
+                    productTasks.put(fileName, parse
+                        ? workers.submit(() -> csvService.loadProductTable(filePath))
+                        : CompletableFuture.completedFuture(restored.getProductFiles().get(fileName)));
+                }
+            }
+
+            Map<String, ProductTable> productFiles = collect(productTasks);
+            Map<String, List<Discount>> discountFiles = collect(discountTasks);
+
+            CatalogSnapshot next = CatalogSnapshot.of(versions.incrementAndGet(), csvService.getDictionary(), productFiles, discountFiles);
+            if (snapshot.get().getVersion() == 0) {
+                liveStrings = next.getDictionary().size();
+            } else {
+                next = compactStrings(next);
+            }
+            CatalogSnapshot previous = snapshot.getAndSet(next);
+            loadedStamps.clear();
+            loadedStamps.putAll(stamps);
+
+            long elapsed = System.nanoTime() - start;
+            (next.getVersion() == 1 ? startupTimer : refreshTimer).record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Catalog snapshot v{} ready in {} ms: {} products from {} files, {} discounted store/product pairs from {} files",
+                    next.getVersion(), TimeUnit.NANOSECONDS.toMillis(elapsed), next.getProductTable().size(), productFiles.size(),
+                    next.getDiscountIndex().size(), discountFiles.size());
+            log.info("Product table: ~{} KB of columns, {} distinct strings (~{} KB)",
+                    next.getProductTable().estimatedBytes() / 1024, next.getDictionary().size(),
+                    next.getDictionary().estimatedBytes() / 1024);
+
+            // nothing to write if the catalog file already holds exactly these files
+            if (restored == null || !toParse.isEmpty() || restored.getFileCount() != csvFiles.size()) {
+                writeCatalogFile();
+            } else {
+                writtenVersion = next.getVersion();
+            }
+            publish(previous, next, null);
+            return next;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Parses a single new or modified file and swaps in a snapshot where only that file changed
+    public synchronized CatalogSnapshot applyFile(String fileName) {
+        return applyFile(fileName, fileService.getFileStamp(CSV_DIRECTORY, fileName));
+    }
+
+    // stamp is the file's current stamp, or null if it no longer exists
+    private CatalogSnapshot applyFile(String fileName, Long stamp) {
+        if (stamp == null) {
+            // the file disappeared before we got to it
+            return removeFile(fileName);
+        }
+
+        String filePath = CSV_DIRECTORY + "/" + fileName;
+        CatalogSnapshot current = snapshot.get();
+        CatalogSnapshot next = isDiscountFile(fileName)
+            ? current.withDiscountFile(versions.incrementAndGet(), fileName, csvService.loadDiscounts(filePath))
+            : compactStrings(current.withProductFile(versions.incrementAndGet(), fileName, csvService.loadProductTable(filePath)));
+
+        snapshot.set(next);
+        loadedStamps.put(fileName, stamp);
+        log.info("Catalog snapshot v{}: ingested {}", next.getVersion(), fileName);
+        publish(current, next, Set.of(fileName));
+        return next;
+    }
+
+    // Drops a deleted file from the catalog
+    public synchronized CatalogSnapshot removeFile(String fileName) {
+        CatalogSnapshot current = snapshot.get();
+        loadedStamps.remove(fileName);
+        if (!current.containsFile(fileName)) {
+            return current;
+        }
+
+        CatalogSnapshot next = current.withoutFile(versions.incrementAndGet(), fileName);
+        snapshot.set(next);
+        log.info("Catalog snapshot v{}: removed {}", next.getVersion(), fileName);
+        publish(current, next, Set.of(fileName));
+        return next;
+    }
+
+    // Compares file stamps with what is loaded and applies only the differences.
+    // Used when file events are not available or were lost; returns the number of files applied.
+    public synchronized int synchronize() {
+        Map<String, Long> stamps = fileService.getFileStamps(CSV_DIRECTORY);
+        int changes = 0;
+
+        for (Map.Entry<String, Long> entry : stamps.entrySet()) {
+            if (!entry.getValue().equals(loadedStamps.get(entry.getKey()))) {
+                applyFile(entry.getKey(), entry.getValue());
+                changes++;
+            }
+        }
+
+        Set<String> deleted = new HashSet<>(loadedStamps.keySet());
+        deleted.removeAll(stamps.keySet());
+        for (String fileName : deleted) {
+            removeFile(fileName);
+            changes++;
+        }
+        return changes;
+    }
+
+    // The dictionary only grows: the strings of replaced and removed product files stay in it. Once it holds more
+    // than twice the strings in use after the last compaction, the snapshot is re-encoded with a fresh dictionary
+    // (an in-memory full build, no file is read) and the parser switches to it. The dictionary so stays within
+    // about twice what the current files need, and the cost is paid once per doubling.
+    private CatalogSnapshot compactStrings(CatalogSnapshot next) {
+        int strings = next.getDictionary().size();
+        if (strings <= 2 * Math.max(liveStrings, MIN_LIVE_STRINGS)) {
+            return next;
+        }
+
+        long start = System.nanoTime();
+        StringDictionary dictionary = csvService.resetStrings();
+        Map<String, ProductTable> productFiles = new LinkedHashMap<>();
+        next.getProductFiles().forEach((fileName, products) -> productFiles.put(fileName, products.recode(dictionary)));
+        CatalogSnapshot compacted = CatalogSnapshot.of(next.getVersion(), dictionary, productFiles, next.getDiscountFiles());
+        liveStrings = dictionary.size();
+        log.info("Catalog snapshot v{}: dictionary compacted from {} to {} strings in {} ms", next.getVersion(), strings,
+            liveStrings, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return compacted;
+    }
+
+    // Called after the new snapshot is visible to readers. Listeners are expected to hand slow work to their own
+    // thread (AlertEvaluator does); a failing listener is logged and never undoes or fails the ingest.
+    private void publish(CatalogSnapshot previous, CatalogSnapshot next, Set<String> changedFiles) {
+        ApplicationEventPublisher publisher = events;
+        if (publisher == null) {
+            return;
+        }
+        try {
+            publisher.publishEvent(new CatalogUpdatedEvent(previous, next, changedFiles));
+        } catch (RuntimeException e) {
+            log.error("A catalog update listener failed for snapshot v{}", next.getVersion(), e);
+        }
+    }
+
+    // Saves the current catalog on shutdown if files were ingested since it was last written
+    @PreDestroy
+    public synchronized void close() {
+        if (writtenVersion != snapshot.get().getVersion()) {
+            writeCatalogFile();
+        }
+    }
+
+    private CatalogFile.Contents readCatalogFile() {
+        Path path = catalogFile();
+        if (path == null || !Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            CatalogFile.Contents contents = CatalogFile.read(path, csvService.getDictionary());
+            log.info("Read {} files from catalog file {}", contents.getFileCount(), path);
+            return contents;
+        } catch (IOException e) {
+            // not fatal: everything is parsed from the CSV files and the catalog file is written again
+            log.warn("Ignoring catalog file {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCatalogFile() {
+        Path path = catalogFile();
+        if (path == null) {
+            return;
+        }
+        CatalogSnapshot current = snapshot.get();
+        try {
+            CatalogFile.write(path, current, loadedStamps);
+            writtenVersion = current.getVersion();
+            log.info("Wrote catalog snapshot v{} to {}", current.getVersion(), path);
+        } catch (IOException e) {
+            log.warn("Cannot write catalog file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private Path catalogFile() {
+        String snapshotFile = properties.getSnapshotFile();
+        return snapshotFile == null || snapshotFile.isBlank() ? null : Paths.get(snapshotFile);
+    }
+
+    // Waits for the parse results, keeping the order in which the files were submitted
+    private static <T> Map<String, T> collect(Map<String, Future<T>> tasks) {
+        Map<String, T> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> task : tasks.entrySet()) {
+            try {
+                results.put(task.getKey(), task.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading " + task.getKey(), e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot load " + task.getKey(), e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private int ingestThreads() {
+        int configured = properties.getIngest().getThreads();
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    static boolean isDiscountFile(String filePath) {
+        return fileName(filePath).toLowerCase().contains("_discounts_");
+    }
+
+    static String fileName(String filePath) {
+        return filePath.substring(filePath.lastIndexOf("/") + 1);
+    }
+
+    // Daemon threads with a recognizable name, so a stuck parse shows up clearly in a thread dump
+    private static final class IngestThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "catalog-ingest-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.pricecomparator.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.pricecomparator.config.CatalogProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Keeps the catalog in sync with the data directory.
+// A WatchService reports new, modified and deleted CSV files and only those files are re-ingested.
+// If the directory cannot be watched (or watching is disabled), the directory stamps are polled instead.
+@Component
+public class CatalogWatcher {
+    private static final Logger log = LoggerFactory.getLogger(CatalogWatcher.class);
+
+    private final CatalogService catalogService;
+    private final FileService fileService;
+    private final CatalogProperties properties;
+
+    private volatile WatchService watchService;
+    private Thread thread;
+
+    public CatalogWatcher(CatalogService catalogService, FileService fileService, CatalogProperties properties) {
+        this.catalogService = catalogService;
+        this.fileService = fileService;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.getWatch().isEnabled()) {
+            log.info("File watching disabled, polling the data directory every {} ms", properties.getRefreshIntervalMs());
+            return;
+        }
+
+        try {
+            Path directory = fileService.getDirectory(CatalogService.CSV_DIRECTORY);
+            WatchService service = directory.getFileSystem().newWatchService();
+            directory.register(service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+            watchService = service;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot watch the data directory ({}), falling back to polling", e.getMessage());
+            return;
+        }
+
+        thread = new Thread(this::watchLoop, "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching the data directory for CSV changes");
+    }
+
+    @PreDestroy
+    public void stop() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.warn("Error closing file watcher: {}", e.getMessage());
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    // Fallback when no watcher is running: compare file stamps and apply only the changed files
+    @Scheduled(fixedDelayString = "${catalog.refresh-interval-ms:60000}",
+               initialDelayString = "${catalog.refresh-interval-ms:60000}")
+    public void pollIfNotWatching() {
+        if (!isWatching()) {
+            int changes = catalogService.synchronize();
+            if (changes > 0) {
+                log.info("Polling found {} changed CSV files", changes);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<String> changed = new LinkedHashSet<>();
+                boolean overflow = collect(key, changed);
+
+                // files are often written in several steps; wait until the directory is quiet
+                WatchKey next;
+                while ((next = service.poll(properties.getWatch().getDebounceMs(), TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(next, changed);
+                }
+
+                apply(changed, overflow);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stop() was called
+        }
+        log.info("File watcher stopped");
+    }
+
+    // Adds the CSV file names from the key's events; returns true if events were lost
+    private boolean collect(WatchKey key, Set<String> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (name.endsWith(".csv")) {
+                changed.add(name);
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    private void apply(Set<String> changed, boolean overflow) {
+        try {
+            if (overflow) {
+                // the OS dropped events, so fall back to comparing stamps (still only parses changed files)
+                log.warn("File watcher overflow, synchronising the data directory");
+                catalogService.synchronize();
+                return;
+            }
+            for (String fileName : changed) {
+                // applyFile drops the file from the catalog if it no longer exists
+                catalogService.applyFile(fileName);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to ingest changed files {}: {}", changed, e.getMessage());
+        }
+    }
+}
@@ -1,43 +1,316 @@
 package com.example.pricecomparator.service;
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.ProductIdOrder;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.config.CatalogProperties;
 import com.example.pricecomparator.dto.CompareDTO;
-import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.dto.CompareMatrixDTO;
+import com.example.pricecomparator.dto.CompareMatrixRowDTO;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 @Service
 public class CompareService {
 
-    // method to compare products from two stores
-    public List<CompareDTO> compareProducts(List<Product> store1Products, List<Product> store2Products) {
+    // compareStores merges productId ranges in parallel: up to this many per available processor,
+    // and none smaller than MIN_SHARD_ROWS rows of the largest file
+    private static final int SHARDS_PER_PROCESSOR = 4;
+    private static final int MIN_SHARD_ROWS = 2048;
+
+    private final CatalogService catalogService;
+    private final int cacheSize;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    // Comparisons by (store1, date1, store2, date2), least recently used first.
+    // An entry remembers the two product tables it was computed from: after an ingest it is reused as long as
+    // the snapshot still holds the same tables for both files, and recomputed once either file changed.
+    private final Map<Key, Entry> cache;
+
+    public CompareService(CatalogService catalogService, CatalogProperties properties, MeterRegistry meterRegistry) {
+        this.catalogService = catalogService;
+        this.cacheSize = properties.getCompareCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.cacheHits = Counter.builder("compare.cache").tag("result", "hit")
+            .description("GET /compare requests answered from the cache")
+            .register(meterRegistry);
+        this.cacheMisses = Counter.builder("compare.cache").tag("result", "miss")
+            .description("GET /compare requests that joined the two product files")
+            .register(meterRegistry);
+    }
+
+    // Compares the products common to the product files of two (store, date) pairs, e.g. lidl_2025-05-01.csv.
+    // Returns one entry per productId found in both files, ordered by productId. The result is shared between
+    // callers and unmodifiable. Throws IllegalArgumentException when one of the files is not in the catalog.
+    public List<CompareDTO> compareProducts(String store1, String date1, String store2, String date2) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        ProductTable products1 = productFile(catalog, store1, date1);
+        ProductTable products2 = productFile(catalog, store2, date2);
+
+        Key key = new Key(store1.toLowerCase(), date1.toLowerCase(), store2.toLowerCase(), date2.toLowerCase());
+        synchronized (cache) {
+            Entry cached = cache.get(key);
+            if (cached != null && cached.products1 == products1 && cached.products2 == products2) {
+                cacheHits.increment();
+                return cached.result;
+            }
+        }
+
+        // joined outside the lock; two requests for the same pair may both compute it, either result is kept
+        cacheMisses.increment();
+        List<CompareDTO> result = Collections.unmodifiableList(join(products1, products2));
+        if (cacheSize > 0) {
+            synchronized (cache) {
+                cache.put(key, new Entry(products1, products2, result));
+            }
+        }
+        return result;
+    }
+
+    // Sorted-merge join of the two files on productId. Both sides are walked once in productId order; when a file
+    // lists a productId more than once, every row of the first file is paired with the last row of the second.
+    static List<CompareDTO> join(ProductTable products1, ProductTable products2) {
+        ProductIdOrder order1 = products1.byProductId();
+        ProductIdOrder order2 = products2.byProductId();
         List<CompareDTO> result = new ArrayList<>();
 
-        // map for quick lookup by productId
-        Map<String, Product> store2Map = new HashMap<>();
-        for(Product p : store2Products) {
-            store2Map.put(p.getProductId(), p);
-        }
-        for(Product p1 : store1Products) {
-            // search if store1 products are also in the second store
-            Product p2 = store2Map.get(p1.getProductId());
-            if(p2 != null) { 
-                double price1 = p1.getPrice();
-                double price2 = p2.getPrice();
-                String cheapestStore = price1 < price2 ? "store1" : (price1 > price2 ? "store2" : "equal");
-
-                CompareDTO dto = new CompareDTO(
-                    p1.getProductId(),
-                    p1.getProductName(),
-                    price1,
-                    price2,
-                    cheapestStore
-                );
-                result.add(dto);
-            }
-        }
-            return result;
+        int i = 0;
+        int j = 0;
+        while (i < order1.size() && j < order2.size()) {
+            int cmp = order1.key(i).compareTo(order2.key(j));
+            if (cmp < 0) {
+                i++;
+            } else if (cmp > 0) {
+                j++;
+            } else {
+                String key = order2.key(j);
+                while (j + 1 < order2.size() && order2.key(j + 1).equals(key)) {
+                    j++;
+                }
+                int row2 = order2.row(j);
+                for (; i < order1.size() && order1.key(i).equals(key); i++) {
+                    int row1 = order1.row(i);
+                    double price1 = products1.price(row1);
+                    double price2 = products2.price(row2);
+                    String cheapestStore = price1 < price2 ? "store1" : (price1 > price2 ? "store2" : "equal");
+                    result.add(new CompareDTO(products1.productId(row1), products1.name(row1), price1, price2, cheapestStore));
+                }
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Compares every store with a product file for the date (or only the given stores, in that order) in one
+    // pass: the stores' files are merged in productId order, giving each product's price per store, min, max,
+    // spread and cheapest store. The productIds are split into ranges at quantiles of the largest file and the
+    // ranges are merged in parallel, each one seeking into every file with a binary search.
+    // Throws IllegalArgumentException when a store has no product file for the date, or no store has one.
+    public CompareMatrixDTO compareStores(String date, List<String> stores) {
+        return compareStores(date, stores, 0);
+    }
+
+    // shards <= 0 picks the number of productId ranges from the processors and the file sizes
+    CompareMatrixDTO compareStores(String date, List<String> stores, int shards) {
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        Map<String, ProductTable> files = new LinkedHashMap<>(); // store -> product file, in column order
+        if (stores == null || stores.isEmpty()) {
+            String suffix = ("_" + date + ".csv").toLowerCase();
+            catalog.getProductFiles().forEach((fileName, products) -> {
+                String name = fileName.toLowerCase();
+                if (name.endsWith(suffix) && name.length() > suffix.length() && !CatalogService.isDiscountFile(name)) {
+                    files.put(name.substring(0, name.length() - suffix.length()), products);
+                }
+            });
+            if (files.isEmpty()) {
+                throw new IllegalArgumentException("No product files found for " + date);
+            }
+        } else {
+            for (String store : stores) {
+                files.put(store.toLowerCase(), productFile(catalog, store, date));
+            }
+        }
+
+        String[] storeNames = files.keySet().toArray(new String[0]);
+        ProductTable[] tables = files.values().toArray(new ProductTable[0]);
+        ProductIdOrder[] orders = new ProductIdOrder[tables.length];
+        for (int s = 0; s < tables.length; s++) {
+            orders[s] = tables[s].byProductId();
+        }
+
+        String[] bounds = shardBounds(orders, shards);
+        List<List<CompareMatrixRowDTO>> ranges = new ArrayList<>(Collections.nCopies(bounds.length + 1, null));
+        IntStream.range(0, bounds.length + 1).parallel().forEach(shard -> ranges.set(shard, mergeShard(
+            storeNames, tables, orders, shard == 0 ? null : bounds[shard - 1], shard == bounds.length ? null : bounds[shard])));
+
+        List<CompareMatrixRowDTO> rows = new ArrayList<>();
+        ranges.forEach(rows::addAll);
+        return new CompareMatrixDTO(date, List.of(storeNames), rows);
+    }
+
+    // Ascending productIds splitting the largest file into about `shards` equal ranges
+    private static String[] shardBounds(ProductIdOrder[] orders, int shards) {
+        ProductIdOrder largest = orders[0];
+        for (ProductIdOrder order : orders) {
+            if (order.size() > largest.size()) {
+                largest = order;
+            }
+        }
+        if (shards <= 0) {
+            shards = Math.min(Runtime.getRuntime().availableProcessors() * SHARDS_PER_PROCESSOR,
+                largest.size() / MIN_SHARD_ROWS);
+        }
+        List<String> bounds = new ArrayList<>();
+        for (int i = 1; i < Math.min(shards, largest.size()); i++) {
+            String key = largest.key((int) ((long) largest.size() * i / shards));
+            if (bounds.isEmpty() || key.compareTo(bounds.get(bounds.size() - 1)) > 0) {
+                bounds.add(key); // equal keys would make an empty range
+            }
+        }
+        return bounds.toArray(new String[0]);
+    }
+
+    // Merges the productIds in [from, to) of every store; null bounds are open. With few stores, finding the
+    // smallest current productId by scanning the cursors is cheaper than a heap.
+    private static List<CompareMatrixRowDTO> mergeShard(String[] stores, ProductTable[] tables, ProductIdOrder[] orders,
+                                                        String from, String to) {
+        int[] position = new int[orders.length];
+        int[] end = new int[orders.length];
+        for (int s = 0; s < orders.length; s++) {
+            position[s] = from == null ? 0 : firstAtLeast(orders[s], from);
+            end[s] = to == null ? orders[s].size() : firstAtLeast(orders[s], to);
+        }
+
+        List<CompareMatrixRowDTO> rows = new ArrayList<>();
+        double[] prices = new double[orders.length];
+        while (true) {
+            String key = null;
+            for (int s = 0; s < orders.length; s++) {
+                if (position[s] < end[s] && (key == null || orders[s].key(position[s]).compareTo(key) < 0)) {
+                    key = orders[s].key(position[s]);
+                }
+            }
+            if (key == null) {
+                return rows;
+            }
+
+            String productId = null;
+            String productName = null;
+            Arrays.fill(prices, Double.NaN);
+            for (int s = 0; s < orders.length; s++) {
+                // a file listing the productId more than once is priced at its cheapest row
+                for (; position[s] < end[s] && orders[s].key(position[s]).equals(key); position[s]++) {
+                    int row = orders[s].row(position[s]);
+                    if (productId == null) {
+                        productId = tables[s].productId(row);
+                        productName = tables[s].name(row);
+                    }
+                    if (Double.isNaN(prices[s]) || tables[s].price(row) < prices[s]) {
+                        prices[s] = tables[s].price(row);
+                    }
+                }
+            }
+            rows.add(matrixRow(stores, productId, productName, prices));
+        }
+    }
+
+    private static CompareMatrixRowDTO matrixRow(String[] stores, String productId, String productName, double[] prices) {
+        Map<String, Double> byStore = new LinkedHashMap<>();
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        String cheapest = null;
+        for (int s = 0; s < stores.length; s++) {
+            if (Double.isNaN(prices[s])) {
+                continue;
+            }
+            byStore.put(stores[s], prices[s]);
+            if (prices[s] < min) {
+                min = prices[s];
+                cheapest = stores[s];
+            }
+            max = Math.max(max, prices[s]);
+        }
+        return new CompareMatrixRowDTO(productId, productName, byStore, min, max, max - min, cheapest);
+    }
+
+    private static int firstAtLeast(ProductIdOrder order, String key) {
+        int lo = 0;
+        int hi = order.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.key(mid).compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // The product file <store>_<date>.csv (names matched case-insensitively); discount files are not candidates
+    private static ProductTable productFile(CatalogSnapshot catalog, String store, String date) {
+        String fileName = store + "_" + date + ".csv";
+        for (Map.Entry<String, ProductTable> file : catalog.getProductFiles().entrySet()) {
+            if (file.getKey().equalsIgnoreCase(fileName)) {
+                return file.getValue();
+            }
+        }
+        throw new IllegalArgumentException("No product file found for " + store + "/" + date);
+    }
+
+    private static final class Key {
+        private final String store1;
+        private final String date1;
+        private final String store2;
+        private final String date2;
+
+        private Key(String store1, String date1, String store2, String date2) {
+            this.store1 = store1;
+            this.date1 = date1;
+            this.store2 = store2;
+            this.date2 = date2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return store1.equals(other.store1) && date1.equals(other.date1)
+                && store2.equals(other.store2) && date2.equals(other.date2);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(store1, date1, store2, date2);
+        }
+    }
+
+    private static final class Entry {
+        private final ProductTable products1;
+        private final ProductTable products2;
+        private final List<CompareDTO> result;
+
+        private Entry(ProductTable products1, ProductTable products2, List<CompareDTO> result) {
+            this.products1 = products1;
+            this.products2 = products2;
+            this.result = result;
+        }
     }
 }
@@ -0,0 +1,216 @@
+package com.example.pricecomparator.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.models.Discount;
+import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.util.SemicolonTokenizer;
+import com.example.pricecomparator.util.StringPool;
+
+// Parses product and discount CSV files into model objects.
+// Shared by the catalog (bulk ingestion) and by the endpoints that read a single file.
+@Service
+public class CsvService {
+    private static final Logger log = LoggerFactory.getLogger(CsvService.class);
+
+    private final FileService fileService;
+
+    // ids, names, brands, categories, units and currencies repeat across files (one file per store and day);
+    // every parse interns them here so equal values share one string in the catalog
+    private volatile ConcurrentMap<String, String> sharedStrings = StringPool.newSharedMap();
+
+    // codes for the string columns of every product table built here; replaced by resetStrings()
+    private volatile StringDictionary dictionary = new StringDictionary();
+
+    public CsvService(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    //Loads product data from a single CSV file located in the data directory
+    public List<Product> loadProducts(String filePath) {
+        return new ArrayList<>(loadProductTable(filePath).asList());
+    }
+
+    // Loads a product file into columns; this is what the catalog keeps in memory
+    public ProductTable loadProductTable(String filePath) {
+        log.info("Attempting to load products from file: {}", filePath);
+
+        // verify if file exists
+        if(!fileService.exists(filePath)) {
+            log.warn("File not found: {}", filePath);
+            return ProductTable.empty(dictionary);
+        }
+
+        try {
+            ProductTable products = parseProducts(fileService.map(filePath), extractStoreName(filePath), filePath);
+            log.info("Loaded {} valid products from file: {}", products.size(), filePath);
+            return products;
+
+        // exceptions
+        } catch(IOException e) {
+            log.error("Error reading file {}: {}", filePath, e.getMessage());
+            return ProductTable.empty(dictionary);
+        }
+    }
+
+    // Parses the content of a product file; the source is only used in log messages
+    public ProductTable parseProducts(ByteBuffer data, String storeName, String source) {
+        ProductTable.Builder products = ProductTable.builder(dictionary);
+        SemicolonTokenizer tokenizer = new SemicolonTokenizer(data);
+        StringPool exact = StringPool.exact(sharedStrings);
+        StringPool lowerCase = StringPool.lowerCase(sharedStrings);
+        String store = canonical(storeName);
+
+        // ignore csv header
+        if(!tokenizer.nextLine()) {
+            return products.build();
+        }
+
+        while(tokenizer.nextLine()) {
+            // verify if there are enough columns
+            if(tokenizer.fieldCount() < 8) {
+                log.warn("Skipping bad line in {}: {}", source, tokenizer.line());
+                continue;
+            }
+
+            // convert values and add the product row
+            try {
+                double packageQuantity = tokenizer.number(4);
+                double price = tokenizer.number(6);
+
+                // validate quantity and price
+                if(packageQuantity <= 0 || price < 0) {
+                    log.warn("Invalid product data in {}: {}", source, tokenizer.line());
+                    continue;
+                }
+
+                products.add(
+                    tokenizer.string(0, exact),             // productId
+                    tokenizer.string(1, exact),             // productName
+                    tokenizer.string(2, lowerCase),         // productCategory
+                    tokenizer.string(3, exact),             // brand
+                    packageQuantity,                        // quantity
+                    tokenizer.string(5, lowerCase),         // packageUnit
+                    price,                                  // price
+                    tokenizer.string(7, lowerCase),         // currency
+                    store                                   // store
+                );
+
+            } catch (NumberFormatException e) {
+                log.warn("Number parsing error in {}: {}", source, tokenizer.line());
+            }
+        }
+        return products.build();
+    }
+
+    // Loads discounts from a CSV file, parsing each line into Discount objects,
+    // skipping header, malformed lines, and invalid data, then returns the list.
+    public List<Discount> loadDiscounts(String filePath) {
+        log.info("Loading discounts from CSV file: {}", filePath);
+
+        // check if the file exists
+        if(!fileService.exists(filePath)) {
+            log.warn("File not found: {}", filePath);
+            return new ArrayList<>();
+        }
+
+        try {
+            return parseDiscounts(fileService.map(filePath), extractStoreName(filePath), filePath);
+
+        // catch file reading errors
+        } catch (IOException e) {
+            log.error("Error reading discounts file {}: {}", filePath, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    // Replaces the dictionary and the string pool with empty ones and returns the new dictionary, so strings of
+    // files that are gone are only held by old snapshots and are collected with them. Tables parsed before and
+    // after cannot be concatenated, so CatalogService calls this under its lock and re-encodes what it keeps.
+    public StringDictionary resetStrings() {
+        sharedStrings = StringPool.newSharedMap();
+        dictionary = new StringDictionary();
+        return dictionary;
+    }
+
+    // Parses the content of a discount file; the source is only used in log messages
+    public List<Discount> parseDiscounts(ByteBuffer data, String storeName, String source) {
+        List<Discount> discounts = new ArrayList<>();
+        SemicolonTokenizer tokenizer = new SemicolonTokenizer(data);
+        StringPool exact = StringPool.exact(sharedStrings);
+        StringPool lowerCase = StringPool.lowerCase(sharedStrings);
+        String store = canonical(storeName);
+
+        // ignore csv header
+        if(!tokenizer.nextLine()) {
+            return discounts;
+        }
+
+        while (tokenizer.nextLine()) {
+            // verify if there are enough columns
+            if(tokenizer.fieldCount() < 9) {
+                log.warn("Skipping bad line in {}: {}", source, tokenizer.line());
+                continue;
+            }
+
+            try {
+                // parse and validate discount fields
+                double packageQuantity = tokenizer.number(3);
+                double percentageOfDiscount = tokenizer.number(8);
+                int fromDay = tokenizer.epochDay(6);
+                int toDay = tokenizer.epochDay(7);
+
+                // valid data and positive discount
+                if(packageQuantity <= 0 || percentageOfDiscount <= 0 || fromDay >= toDay) {
+                    log.warn("Invalid discount values in {}: {}", source, tokenizer.line());
+                    continue;
+                }
+
+                // create Discount DTO
+                discounts.add(new Discount(
+                        tokenizer.string(0, exact),         // productId
+                        tokenizer.string(1, exact),         // productName
+                        tokenizer.string(2, exact),         // brand
+                        packageQuantity,                    // quantity
+                        tokenizer.string(4, lowerCase),     // unit
+                        tokenizer.string(5, lowerCase),     // category
+                        fromDay,                            // fromDate, as an epoch day
+                        toDay,                              // toDate, as an epoch day
+                        percentageOfDiscount,               // percentageOfDiscount
+                        store                               // store
+                ));
+
+            } catch (IllegalArgumentException e) {
+                // bad number or date (NumberFormatException is an IllegalArgumentException)
+                log.warn("Parsing error in {}: {}", source, tokenizer.line());
+            }
+        }
+        return discounts;
+    }
+
+    private String canonical(String value) {
+        String existing = sharedStrings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    // Extracts the store name from a path like csv/lidl_2025-05-01.csv
+    private String extractStoreName(String filePath) {
+        // extract name file
+        String fileName = filePath.substring(filePath.lastIndexOf("/") + 1);
+        return fileName.contains("_") ? fileName.substring(0, fileName.indexOf("_")).toLowerCase() : "unknown";
+    }
+}
@@ -1,26 +1,29 @@
 package com.example.pricecomparator.service;
 
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.catalog.DiscountTimeline;
+import com.example.pricecomparator.catalog.PriceHistoryStore;
 import com.example.pricecomparator.dto.DiscountBestGlobalDTO;
 import com.example.pricecomparator.dto.PriceHistoryDTO;
+import com.example.pricecomparator.dto.PriceHistoryEntryDTO;
 import com.example.pricecomparator.models.Discount;
 import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.util.TopK;
 
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.Date;
 import java.util.HashMap;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.LinkedHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
@@ -31,98 +34,34 @@ import org.slf4j.Logger;
 @Service
 public class DiscountService {
     private static final Logger log = LoggerFactory.getLogger(DiscountService.class);
-    private final FileService fileService;
-
-    public DiscountService(FileService fileService) {
-        this.fileService = fileService;
+    private static final Comparator<Discount> HIGHEST_PERCENTAGE_FIRST =
+        Comparator.comparingDouble(Discount::getPercentageOfDiscount).reversed();
+    private final CsvService csvService;
+    private final CatalogService catalogService;
+
+    public DiscountService(CsvService csvService, CatalogService catalogService) {
+        this.csvService = csvService;
+        this.catalogService = catalogService;
     }
     // Loads discounts from a CSV file, parsing each line into Discount objects,
     // skipping header, malformed lines, and invalid data, then returns the list.
     public List<Discount> loadDiscountFromCsv(String filePath) {
-        log.info("Loading discounts from CSV file: {}", filePath);
-
-        List<Discount> discounts = new ArrayList<>();
-
-        // loads file from resources
-        InputStream is = getClass().getClassLoader().getResourceAsStream(filePath);
-
-        // check if the file exists
-        if(is == null) {
-            log.warn("File not found: {}", filePath);
-            return discounts;
-        }
-
-        // open file and read line by line
-        try(BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-        
-            // extract only the filename (after last '/')
-            String fileName = filePath.substring(filePath.lastIndexOf("/") + 1);
-
-            //extract the store name from the file name
-            String storeName = fileName.contains("_") ? fileName.substring(0, fileName.indexOf("_")).toLowerCase():"unknown";
-
-            String line;
-            boolean firstLine = true; // ignore csv header
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
-
-            while ((line = br.readLine()) != null) {
-                if(firstLine) {
-                    firstLine = false;
-                    continue;
-                }
-
-                // extract values from every csv line
-                String[] fields = line.split(";");
-
-                // verify if there are enough columns
-                if(fields.length < 9) {
-                    log.warn("Skipping bad line in {}: {}", filePath, line);
-                    continue;
-                }
-
-                try {
-                    // parse and validate discount fields
-                    double packageQuantity = Double.parseDouble(fields[3].trim());
-                    double percentageOfDiscount = Double.parseDouble(fields[8].trim());
-                    Date fromDate = formatter.parse(fields[6].trim());
-                    Date toDate = formatter.parse(fields[7].trim());
-
-                    // valid data and positive discount
-                    if(packageQuantity <= 0 || percentageOfDiscount <= 0 || !fromDate.before(toDate)) {
-                        log.warn("Invalid discount values in {}: {}", filePath, line);
-                        continue;
-                    }
-
-                    // create Discount DTO
-                    Discount discount = new Discount(
-                           fields[0].trim(),                   // productId
-                            fields[1].trim(),                   // productName
-                            fields[2].trim(),                   // brand
-                            packageQuantity,                    // quantity
-                            fields[4].trim().toLowerCase(),     // unit
-                            fields[5].trim().toLowerCase(),     // category
-                            fromDate,                           // fromDate
-                            toDate,                             // toDate
-                            percentageOfDiscount,               // percentageOfDiscount
-                            storeName                           // store
-                    );
-
-                    // add the discount object in the result list
-                     discounts.add(discount);
-
-                } catch (ParseException | NumberFormatException e) {
-                    log.warn("Parsing error in {}: {}", filePath, line);
-                }
-            }
-        // catch file reading errors
-        } catch (IOException e) {
-            log.error("Error reading discounts file {}: {}", filePath, e.getMessage());
-        }
-        return discounts;
+        return csvService.loadDiscounts(filePath);
     }
     
+    // Returns the discounts of the file <store>_discounts_<date>.csv from the current catalog snapshot,
+    // or an empty list when there is no such file; nothing is read from disk
+    public List<Discount> getDiscounts(String store, String date) {
+        return catalogService.getSnapshot().getDiscountFiles().getOrDefault(store + "_discounts_" + date + ".csv", List.of());
+    }
+
     // Returns the list of discounts for a given store and date, sorted by highest discount first
     public List<Discount> getBestDiscounts(String directoryPath, String store, String date) {
+        return getBestDiscounts(directoryPath, store, date, Integer.MAX_VALUE);
+    }
+
+    // Same as above, keeping only the first `limit` discounts
+    public List<Discount> getBestDiscounts(String directoryPath, String store, String date, int limit) {
         log.info("Getting best discounts for store={} on date={} in directory={}",
             store, date, directoryPath);
 
@@ -137,91 +76,87 @@ public class DiscountService {
         // build file name pattern for this store’s discounts
         String pattern = store + "_discounts";
         // find all matching files in the directory for the given date
-        List<String> files = fileService.getFileNames(directoryPath, pattern, date);
+        Map<String, List<Discount>> files = findDiscountFiles(directoryPath, pattern, date);
         
         if(files.isEmpty()) {
             throw new IllegalStateException("No discounts found for store/date");
         }
 
-        // load and sort discounts into a single list
+        // load discounts into a single list
         List<Discount> discounts = new ArrayList<>();
-        for(String file : files) {
+        for(List<Discount> fileDiscounts : files.values()) {
             // add all discounts parsed from CSV file
-            discounts.addAll(loadDiscountFromCsv(file));
+            discounts.addAll(fileDiscounts);
         }
-        // sort the combined list by discount percentage, highest first
-        discounts.sort(Comparator.comparingDouble(Discount::getPercentageOfDiscount).reversed());
-        
-        return discounts;        
+        // keep the highest percentages first
+        return selectBestDiscounts(discounts, limit);
+    }
+
+    // Returns the `limit` highest discounts of the list, highest first (equal percentages keep list order).
+    // Only `limit` entries are ever kept in order, the rest of the list is not sorted.
+    public List<Discount> selectBestDiscounts(Collection<Discount> discounts, int limit) {
+        return TopK.select(discounts, limit, HIGHEST_PERCENTAGE_FIRST);
     }
 
     // Returns the list of top global discounts, filtered to only include active ones (based on current date),
     // deduplicated by productId (keeping the highest percentage), and sorted in descending order by discount percentage.
     public List<DiscountBestGlobalDTO> getGlobalTopDiscounts(String directoryPath) {
-        log.info("Loading global discounts from directory: {}", directoryPath);
+        return getGlobalTopDiscounts(directoryPath, Integer.MAX_VALUE);
+    }
+
+    // Same as above, keeping only the first `limit` products
+    public List<DiscountBestGlobalDTO> getGlobalTopDiscounts(String directoryPath, int limit) {
+        return getGlobalTopDiscounts(directoryPath, limit, LocalDate.now());
+    }
 
-        // search all files that have the word "discounts" in name
-        List<String> allFiles = fileService.getFileNames(directoryPath, "discounts", "");
-        if (allFiles.isEmpty()) {
+    // Same as above, with the discounts active on the given day (past or future) instead of today.
+    // The ranking comes from the snapshot's discount timeline, where it is computed once per day and snapshot,
+    // so a request only copies out its first `limit` entries.
+    public List<DiscountBestGlobalDTO> getGlobalTopDiscounts(String directoryPath, int limit, LocalDate asOf) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        if (catalog.getDiscountFiles().isEmpty()) {
             log.warn("No discount files found in directory: {}", directoryPath);
             throw new IllegalStateException("No discount files found");
         }
 
-        // get today's date for filtering active discounts
-        Date today = new Date();
-
-        // map to keep only the best discount per productId
-        Map<String, DiscountBestGlobalDTO> bestDiscountsMap = new HashMap<>();
-
-        // load all discounts from all files
-        for (String file : allFiles) {
-            List<Discount> discounts = loadDiscountFromCsv(file);
-
-            for (Discount d : discounts) {
-                // skip if discount is not currently active
-                if (today.before(d.getFromDate()) || today.after(d.getToDate())) {
-                    log.debug("Skipping inactive discount for product {} ({} - {})", d.getProductId(), d.getFromDate(), d.getToDate());
-                    continue;
-                }
-
-                // build DTO
-                DiscountBestGlobalDTO dto = new DiscountBestGlobalDTO(
-                    d.getProductId(),
-                    d.getProductName(),
-                    d.getBrand(),
-                    d.getPackageQuantity(),
-                    d.getPackageUnit(),
-                    d.getProductCategory(),
-                    d.getFromDate(),
-                    d.getToDate(),
-                    d.getPercentageOfDiscount(),
-                    d.getStore(),
-                    file
-                );
-
-                // only update if this is the better discount for the same product
-                DiscountBestGlobalDTO existing = bestDiscountsMap.get(d.getProductId());
-                if (existing == null || dto.getPercentageOfDiscount() > existing.getPercentageOfDiscount()) {
-                    bestDiscountsMap.put(d.getProductId(), dto);
-                }
-            }
+        DiscountTimeline.Ranking ranking = catalog.getDiscountTimeline().bestPerProduct(asOf.toEpochDay());
+        log.info("Active discounts on {}: {} unique products", asOf, ranking.size());
+
+        List<DiscountBestGlobalDTO> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (int rank = 0; rank < ranking.size() && rank < limit; rank++) {
+            Discount d = ranking.discount(rank);
+            result.add(new DiscountBestGlobalDTO(
+                d.getProductId(),
+                d.getProductName(),
+                d.getBrand(),
+                d.getPackageQuantity(),
+                d.getPackageUnit(),
+                d.getProductCategory(),
+                d.getFromDate(),
+                d.getToDate(),
+                d.getPercentageOfDiscount(),
+                d.getStore(),
+                directoryPath + "/" + ranking.file(rank)
+            ));
         }
-
-        log.info("Finished processing discounts. Unique active products: {}", bestDiscountsMap.size());
-
-        // convert to list and sort descending by discount
-        return bestDiscountsMap.values().stream()
-            .sorted(Comparator.comparingDouble(DiscountBestGlobalDTO::getPercentageOfDiscount).reversed())
-            .collect(Collectors.toList());
+        return result;
     }
 
     // Returns the list of discounts coming from files added in the last 24 hours.
     // Result is sorted by discount percentage in descending order.
     public List<Discount> getNewDiscounts(String directoryPath) {
+        return getNewDiscounts(directoryPath, Integer.MAX_VALUE);
+    }
+
+    // Same as above, keeping only the first `limit` discounts
+    public List<Discount> getNewDiscounts(String directoryPath, int limit) {
         log.info("Searching for new discounts (files uploaded in the last 24 hours) from directory: {}", directoryPath);
 
         // Retrieve all filenames containing "discounts"
-        List<String> allFiles = fileService.getFileNames(directoryPath, "discounts", "");
+        Map<String, List<Discount>> allFiles = findDiscountFiles(directoryPath, "discounts", "");
 
         // Current time and threshold for 24 hours ago
         LocalDateTime now = LocalDateTime.now();
@@ -229,24 +164,23 @@ public class DiscountService {
 
         List<Discount> newDiscounts = new ArrayList<>();
 
-        for (String file : allFiles) {
+        for (Map.Entry<String, List<Discount>> entry : allFiles.entrySet()) {
+            String file = entry.getKey();
             // Extract the file date from the name (e.g., 2025-05-24)
             LocalDate fileDate = extractFileDate(file);
 
             // If the file is recent (uploaded in last 24h), process it
             if (fileDate != null && fileDate.atStartOfDay().isAfter(threshold)) {
                 log.debug("File {} is within the 24h threshold. Loading discounts...", file);
-                newDiscounts.addAll(loadDiscountFromCsv(file));
+                newDiscounts.addAll(entry.getValue());
             } else {
                 log.debug("Skipping file {} - too old or invalid date", file);
             }
         }
 
-        // Sort and return only meaningful discounts (positive %), in descending order
-        List<Discount> result = newDiscounts.stream()
-            .filter(d -> d.getPercentageOfDiscount() > 0)
-            .sorted(Comparator.comparingDouble(Discount::getPercentageOfDiscount).reversed())
-            .collect(Collectors.toList());
+        // Return only meaningful discounts (positive %), in descending order
+        newDiscounts.removeIf(d -> !(d.getPercentageOfDiscount() > 0));
+        List<Discount> result = selectBestDiscounts(newDiscounts, limit);
 
         log.info("Finished processing new discounts. Found {} recent discount entries.", result.size());
         return result;
@@ -267,170 +201,144 @@ public class DiscountService {
     }
 
     // Retrieves the price history for a specific product, filtered by optional store, brand, category, and date range.
-    // Applies active discounts and calculates the effective price, returning a time series DTO list.
+    // Reads the price history store of the current catalog snapshot: every (store, productId) series is sorted
+    // by day, so the date range is a binary search and no file is opened here.
     public List<PriceHistoryDTO> getPriceHistory(String productId, String store, String brand, String category, String from, String to) {
         log.info("Fetching price history for productId={}, store={}, brand={}, category={}, from={}, to={}",
                 productId, store, brand, category, from, to);
 
-        // Retrieve all discount files from the 'csv' directory
-        List<String> allFiles = fileService.getFileNames("csv", "discounts", "");
-
-        List<PriceHistoryDTO> historyList = new ArrayList<>();
-
-        // Iterate through each file and extract discount data
-        for (String file : allFiles) {
-            List<Discount> discounts = loadDiscountFromCsv(file);
-
-            for (Discount discount : discounts) {
-                // If productId is provided, match it strictly
-                if (productId != null && !discount.getProductId().equals(productId)) {
-                    continue;
-                }
-
-                // Extract store name and date from file name (e.g., lidl_discounts_2025-05-01.csv)
-                String fileName = file.substring(file.lastIndexOf("/") + 1);
-                String fileStore = fileName.substring(0, fileName.indexOf("_"));
-                String[] parts = fileName.split("_");
-                String date = parts[2].replace(".csv", "");
-
-                // Skip entry if date is outside of requested range (inclusive)
-                if ((from != null && date.compareTo(from) < 0) || (to != null && date.compareTo(to) > 0)) {
-                    log.debug("Skipping entry from {} on {}: outside range {} to {}", fileStore, date, from, to);
-                    continue;
-                }
-
-                // Apply all optional filters: store, brand, category
-                if (
-                    (store == null || discount.getStore().equalsIgnoreCase(store)) &&
-                    (brand == null || discount.getBrand().equalsIgnoreCase(brand)) &&
-                    (category == null || discount.getProductCategory().equalsIgnoreCase(category))
-                ) {
-                    log.debug("Adding history entry from {} on {}: {}% off",
-                            fileStore, date, discount.getPercentageOfDiscount());
-
-                    // Get base price from product CSV corresponding to the same day and store
-                    Double basePrice = getBasePriceFromProductFile(discount.getProductId(), fileStore, date);
-
-                    // If the base price is not found, skip this entry
-                    if (basePrice == null) {
-                        log.warn("Missing base price for product {} on {} in store {}", discount.getProductId(), date, fileStore);
-                        continue;
-                    }
-
-                    // Apply discount to compute the effective price
-                    double effectivePrice = basePrice * (1 - discount.getPercentageOfDiscount() / 100.0);
-
-                    // Build DTO object and add to final results list
-                    PriceHistoryDTO dto = new PriceHistoryDTO(
-                        discount.getProductName(),
-                        discount.getBrand(),
-                        discount.getProductCategory(),
-                        date,
-                        fileStore,
-                        discount.getPercentageOfDiscount(),
-                        basePrice,
-                        effectivePrice
-                    );
-
-                    historyList.add(dto);
-                }
-            }
-        }
+        List<PriceHistoryDTO> historyList = streamPriceHistory(productId, store, brand, category, from, to, null)
+            .map(PriceHistoryEntryDTO::getEntry)
+            .collect(Collectors.toList());
 
         log.info("Total history entries returned: {}", historyList.size());
         return historyList;
     }
 
-    // Calculates the price after applying the first active discount found for the given product
-    public double getDiscountedPrice(Product product) {
-        log.info("Calculating discounted price for product {} at store {} (base price={})",
-                 product.getProductId(), product.getStore(), product.getPrice());
-        
-        // find all discount files in the CSV directory
-        List<String> discountFiles = fileService.getFileNames("csv", "discounts", "");
-        
-        // current date used to check if the discount is active
-        Date now = new Date();
-
-        // loop through each discount file and load its Discount list
-        for(String file : discountFiles) {
-            List<Discount> discounts = loadDiscountFromCsv(file);
-
-            // check each discount to find a valid match
-            for(Discount discount : discounts ) {
-                // if this discount applies to the product and is active right now
-                if(
-                    // match by product id
-                    discount.getProductId().equalsIgnoreCase(product.getProductId()) &&
-                    // match by store
-                    discount.getStore().equalsIgnoreCase(product.getStore()) &&
-                    // check if the current date is within the discount period
-                    now.after(discount.getFromDate()) &&
-                    now.before(discount.getToDate())
-                ) {
-                    // calculate the discount price
-                    double reduced = product.getPrice() * (1 - discount.getPercentageOfDiscount() / 100.0);
-
-                    log.debug("Applying discount {}% for product {} from store {}. The new price is {}",
-                        discount.getPercentageOfDiscount(), discount.getProductName(), discount.getStore(), reduced);
-                    
-                    // return the discounted price after finding a valid match
-                    return reduced;
-                }
-            }
+    // Same entries as getPriceHistory, produced lazily in file order and starting after the given cursor
+    // (null starts at the first entry). Each entry carries the cursor to resume after it. A full export walks
+    // the store in sequence order without collecting anything, so memory use does not grow with the result.
+    // Cursors belong to one catalog snapshot: once the files change, an old cursor is rejected with
+    // IllegalStateException. Filters, dates and the cursor are checked before the stream is returned.
+    public Stream<PriceHistoryEntryDTO> streamPriceHistory(String productId, String store, String brand, String category,
+                                                           String from, String to, String cursor) {
+        CatalogSnapshot snapshot = catalogService.getSnapshot();
+        PriceHistoryStore history = snapshot.getPriceHistory();
+        long version = snapshot.getVersion();
+        int after = cursor != null ? parseCursor(cursor, version, history.size()) : -1;
+
+        // date range (inclusive); a missing bound leaves that side open
+        long fromDay = from != null ? parseDay(from) : Long.MIN_VALUE;
+        long toDay = to != null ? parseDay(to) : Long.MAX_VALUE;
+
+        IntStream sequences;
+        if (productId != null) {
+            // one product: slice its few series by date and put the entries back in file order
+            sequences = history.find(productId).stream()
+                .filter(s -> store == null || s.getStore().equalsIgnoreCase(store))
+                .flatMapToInt(s -> IntStream.range(s.fromIndex(fromDay), s.toIndex(toDay)).map(s::sequence))
+                .filter(sequence -> sequence > after)
+                .sorted();
+        } else {
+            // everything: entries are numbered in file order, so they are simply walked one by one
+            sequences = IntStream.range(after + 1, history.size())
+                .filter(sequence -> {
+                    PriceHistoryStore.Series s = history.seriesAt(sequence);
+                    long day = s.day(history.indexAt(sequence));
+                    return (store == null || s.getStore().equalsIgnoreCase(store)) && day >= fromDay && day <= toDay;
+                });
         }
 
-        // no valid discount found, return original price
-        log.info("No active discount found for product {} at store {}; returning original price {}",
-                product.getProductId(), product.getStore(), product.getPrice());
-        return product.getPrice();
-    
+        return sequences
+            .filter(sequence -> {
+                // Apply the optional brand and category filters
+                Discount discount = history.seriesAt(sequence).discount(history.indexAt(sequence));
+                return (brand == null || brand.equalsIgnoreCase(discount.getBrand())) &&
+                    (category == null || category.equalsIgnoreCase(discount.getProductCategory()));
+            })
+            .mapToObj(sequence -> new PriceHistoryEntryDTO(version + ":" + sequence,
+                toPriceHistoryDTO(history.seriesAt(sequence), history.indexAt(sequence))));
     }
 
-    // Loads the base price for a product from a specific product file (e.g. lidl_2025-05-01.csv).
-    // This price is later used to calculate the effective price with discount applied.
-    public Double getBasePriceFromProductFile(String productId, String store, String date) {
-        // Build full file path based on store and date
-        String productFile = "csv/" + store.toLowerCase() + "_" + date + ".csv";
+    private PriceHistoryDTO toPriceHistoryDTO(PriceHistoryStore.Series series, int i) {
+        Discount discount = series.discount(i);
+        return new PriceHistoryDTO(
+            discount.getProductName(),
+            discount.getBrand(),
+            discount.getProductCategory(),
+            LocalDate.ofEpochDay(series.day(i)).toString(),
+            series.getStore(),
+            series.percentage(i),
+            series.basePrice(i),
+            series.effectivePrice(i)
+        );
+    }
 
-        // Load the file from classpath
-        InputStream is = getClass().getClassLoader().getResourceAsStream(productFile);
-        if (is == null) {
-            log.warn("Product file not found: {}", productFile);
-            return null;
+    // Reads a cursor written as <snapshot version>:<sequence> and returns the sequence
+    private int parseCursor(String cursor, long version, int size) {
+        int separator = cursor.indexOf(':');
+        long cursorVersion;
+        int sequence;
+        try {
+            cursorVersion = Long.parseLong(cursor.substring(0, Math.max(separator, 0)));
+            sequence = Integer.parseInt(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (cursorVersion != version) {
+            throw new IllegalStateException("The catalog changed since the cursor was issued; start again without a cursor");
+        }
+        if (sequence < 0 || sequence >= size) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
         }
+        return sequence;
+    }
+
+    // Calculates the price after applying the discount active today for the given product.
+    // Uses the discount index of the current catalog snapshot, so no files are read here.
+    public double getDiscountedPrice(Product product) {
+        return getDiscountedPrice(product, catalogService.getSnapshot().getDiscountIndex(), LocalDate.now().toEpochDay());
+    }
+
+    // Same as above, against a given discount index and day (lets callers price many products on one snapshot)
+    public double getDiscountedPrice(Product product, DiscountIndex discountIndex, long epochDay) {
+        Discount discount = discountIndex.findActive(product.getStore(), product.getProductId(), epochDay);
+
+        // no valid discount found, return original price
+        if (discount == null) {
+            log.debug("No active discount found for product {} at store {}; returning original price {}",
+                    product.getProductId(), product.getStore(), product.getPrice());
+            return product.getPrice();
+        }
+
+        // calculate the discount price
+        double reduced = product.getPrice() * (1 - discount.getPercentageOfDiscount() / 100.0);
+
+        log.debug("Applying discount {}% for product {} from store {}. The new price is {}",
+            discount.getPercentageOfDiscount(), discount.getProductName(), discount.getStore(), reduced);
+        return reduced;
+    }
 
-        // Open file and scan each line
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-            String line;
-            boolean firstLine = true;
-
-            while ((line = br.readLine()) != null) {
-                // Skip the first line (header) and the currency line
-                if (firstLine || line.toLowerCase().contains("currency")) {
-                    firstLine = false;
-                    continue;
-                }
-
-                // Split line into fields by semicolon
-                String[] fields = line.split(";");
-
-                // Look for matching productId in column 0
-                if (fields.length >= 7 && fields[0].trim().equalsIgnoreCase(productId)) {
-                    try {
-                        // Parse base price from column 6
-                        return Double.parseDouble(fields[6].trim());
-                    } catch (NumberFormatException e) {
-                        log.warn("Failed to parse price for product {} in {}", productId, productFile);
-                    }
-                }
+    // Returns the already parsed discount files of the current catalog snapshot whose name contains
+    // the store and date parts, keyed by path (csv/lidl_discounts_2025-05-01.csv) like FileService.getFileNames
+    private Map<String, List<Discount>> findDiscountFiles(String directoryPath, String store, String date) {
+        Map<String, List<Discount>> files = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Discount>> entry : catalogService.getSnapshot().getDiscountFiles().entrySet()) {
+            String name = entry.getKey().toLowerCase();
+            if (name.contains(store.toLowerCase()) && name.contains(date.toLowerCase())) {
+                files.put(directoryPath + "/" + entry.getKey(), entry.getValue());
             }
-        } catch (IOException e) {
-            log.error("Error reading product file {}: {}", productFile, e.getMessage());
         }
+        return files;
+    }
 
-        // Return null if price was not found or an error occurred
-        return null;
+    // Method used in getPriceHistory
+    // Converts a YYYY-MM-DD date to its epoch day
+    private long parseDay(String date) {
+        if (!isValidDate(date)) {
+            throw new IllegalArgumentException("Invalid date. Use the YYYY-MM-DD format");
+        }
+        return LocalDate.parse(date).toEpochDay();
     }
 
     // Method used in getBestDiscounts
@@ -1,42 +1,173 @@
 package com.example.pricecomparator.service;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import java.net.URL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.pricecomparator.config.CatalogProperties;
+
+// Lists and opens the CSV data files.
+// The logical "csv" directory maps to catalog.data-dir when it is set (e.g. a mounted volume),
+// otherwise to the csv folder on the classpath, which also works when running from a jar.
 @Service
 public class FileService {
+    private static final Logger log = LoggerFactory.getLogger(FileService.class);
+    static final String DATA_DIRECTORY = "csv";
+
+    // smaller files are read into the heap; mapping them costs more than copying
+    private static final long MAP_THRESHOLD_BYTES = 64 * 1024;
+
+    private final Path dataRoot;
+
+    public FileService(CatalogProperties properties) {
+        String dataDir = properties.getDataDir();
+        this.dataRoot = dataDir == null || dataDir.isBlank()
+            ? classpathDirectory(DATA_DIRECTORY)
+            : externalDirectory(dataDir);
+        log.info("Reading CSV data from {}", dataRoot.toUri());
+    }
+
     public List<String> getFileNames(String directoryPath, String store, String date) {
         List<String> fileNames = new ArrayList<>();
-        URL url = getClass().getClassLoader().getResource(directoryPath);
-        if (url == null) {
-            throw new IllegalArgumentException("The resource directory does not exist: " + directoryPath);
+        Path directory = resolveDirectory(directoryPath);
+
+        // stream the directory entries instead of loading the whole listing into an array
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.toLowerCase().contains(store.toLowerCase()) &&
+                    name.toLowerCase().contains(date.toLowerCase())) {
+                    fileNames.add(directoryPath + "/" + name);   // csv/lidl_2025-05-01.csv
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list directory " + directory, e);
         }
+        return fileNames;
+    }
 
-        File directory = new File(url.getFile());
+    // Returns a stamp (size and modification time) for every CSV file in the directory, keyed by file name.
+    // Only file metadata is read, so it is cheap enough to poll for changes.
+    public Map<String, Long> getFileStamps(String directoryPath) {
+        Map<String, Long> stamps = new HashMap<>();
+        Path directory = resolveDirectory(directoryPath);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path file : files) {
+                stamps.put(file.getFileName().toString(), stamp(Files.readAttributes(file, BasicFileAttributes.class)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list directory " + directory, e);
+        }
+        return stamps;
+    }
 
-        // verify if file exists
-        if(!directory.exists() || !directory.isDirectory()) {
-            throw new IllegalArgumentException("The directory does not exist or is not a directory.");
+    // The stamp of one file (same value as getFileStamps), or null if it does not exist; reads only that file's metadata
+    public Long getFileStamp(String directoryPath, String fileName) {
+        Path file = resolveDirectory(directoryPath).resolve(fileName);
+        try {
+            return stamp(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read attributes of " + file, e);
         }
+    }
 
-        // receive all files from directory
-        File[] files = directory.listFiles((dir, name) -> 
-            name.toLowerCase().contains(store.toLowerCase()) &&
-            name.toLowerCase().contains(date.toLowerCase()) &&
-            name.endsWith(".csv")
-        );
+    private static long stamp(BasicFileAttributes attributes) {
+        return 31 * attributes.size() + attributes.lastModifiedTime().toMillis();
+    }
+
+    // Returns the directory on disk, e.g. for registering a file watcher
+    public Path getDirectory(String directoryPath) {
+        return resolveDirectory(directoryPath);
+    }
 
-        // add files to the list if they exist
-        if(files != null) {
-            for(File file : files) {
-                fileNames.add(directoryPath + "/" + file.getName());   // csv/lidl_2025-05-01.csv
-             }
+    // Resolves a path as returned by getFileNames (csv/lidl_2025-05-01.csv) to the actual file
+    public Path resolve(String filePath) {
+        int slash = filePath.lastIndexOf("/");
+        if (slash < 0) {
+            return dataRoot.resolve(filePath);
+        }
+        return resolveDirectory(filePath.substring(0, slash)).resolve(filePath.substring(slash + 1));
+    }
+
+    public boolean exists(String filePath) {
+        return Files.isRegularFile(resolve(filePath));
+    }
+
+    // Returns the whole file as a read-only byte buffer for the tokenizer.
+    // Large files on the default file system are memory-mapped; small files and files inside a jar are read.
+    public ByteBuffer map(String filePath) throws IOException {
+        Path file = resolve(filePath);
+        if (file.getFileSystem() == FileSystems.getDefault() && Files.size(file) >= MAP_THRESHOLD_BYTES) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+    }
+
+    private Path resolveDirectory(String directoryPath) {
+        return DATA_DIRECTORY.equals(directoryPath) ? dataRoot : classpathDirectory(directoryPath);
+    }
+
+    private static Path externalDirectory(String dataDir) {
+        Path directory = Paths.get(dataDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("The data directory does not exist or is not a directory: " + directory);
+        }
+        return directory;
+    }
+
+    private Path classpathDirectory(String directoryPath) {
+        URL url = getClass().getClassLoader().getResource(directoryPath);
+        if (url == null) {
+            throw new IllegalArgumentException("The resource directory does not exist: " + directoryPath);
+        }
+
+        try {
+            URI uri = url.toURI();
+            Path directory;
+            try {
+                directory = Paths.get(uri);
+            } catch (FileSystemNotFoundException e) {
+                // packaged in a jar: open it as a zip file system so it can be listed with the same NIO calls
+                FileSystems.newFileSystem(uri, Map.of());
+                directory = Paths.get(uri);
+            }
+
+            // verify if file exists
+            if (!Files.isDirectory(directory)) {
+                throw new IllegalArgumentException("The directory does not exist or is not a directory.");
+            }
+            return directory;
+        } catch (URISyntaxException | IOException e) {
+            throw new IllegalArgumentException("Cannot open resource directory " + directoryPath
+                + "; set catalog.data-dir to an external directory instead", e);
         }
-        return fileNames;
     }
 
 }
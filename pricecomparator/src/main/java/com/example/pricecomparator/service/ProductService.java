@@ -1,224 +1,183 @@
 package com.example.pricecomparator.service;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.IOException;
 
 import org.springframework.stereotype.Service;
 
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.catalog.ProductIndex;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
 import com.example.pricecomparator.dto.ProductWithValueDTO;
 import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.util.TopK;
 
 @Service
 public class ProductService {
     private static final Logger log = LoggerFactory.getLogger(ProductService.class);
-    private final FileService fileService;
+    private final CatalogService catalogService;
+    private final CsvService csvService;
     private final DiscountService discountService;
 
-    public ProductService(FileService fileService, DiscountService discountService) {
-        this.fileService = fileService;
+    public ProductService(CatalogService catalogService, CsvService csvService, DiscountService discountService) {
+        this.catalogService = catalogService;
+        this.csvService = csvService;
         this.discountService = discountService;
     }
 
     //Loads product data from a single CSV file located in the resources directory
     public List<Product> loadProductsFromCsv(String filePath) {
-        List<Product> products = new ArrayList<>();
-
-        // takes files from resources
-        InputStream is = getClass().getClassLoader().getResourceAsStream(filePath);
-        log.info("Attempting to load products from file: {}", filePath);
-   
-        // verify if file exists
-        if(is == null) {
-            log.warn("File not found: {}", filePath);
-            return products;
-        }
-
-        // open file and read line by line
-        try(BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-        
-            // extract name file
-            String fileName = filePath.substring(filePath.lastIndexOf("/") + 1);
-
-            //extract name of the store from file
-            String storeName = fileName.contains("_") ? fileName.substring(0, fileName.indexOf("_")).toLowerCase():"unknown";
-
-            String line;
-            boolean firstLine = true; // ignore csv header
-            int validCount = 0;
-            while((line = br.readLine()) != null) { 
-                if(firstLine) {
-                    firstLine = false;
-                    continue;
-                }
-
-                // extract values from every csv line
-                String[] fields = line.split(";");
-
-                // verify if there are enough columns
-                if(fields.length < 8) {
-                    log.warn("Skipping bad line in {}: {}", filePath, line);
-                    continue;
-                }
-
-                // convert values and create Product object
-                try {
-                    double packageQuantity = Double.parseDouble(fields[4]);
-                    double price = Double.parseDouble(fields[6]);
-
-                    // validate quantity and price
-                    if(packageQuantity <= 0 || price < 0) {
-                        log.warn("Invalid product data in {}: {}", filePath, line);
-                        continue;
-                    }
-
-                    // create product object
-                    Product product = new Product(
-                        fields[0].trim(),                       // productId
-                        fields[1].trim(),                       // productName
-                        fields[2].trim().toLowerCase(),         // productCategory
-                        fields[3].trim(),                       // brand
-                        packageQuantity,                        // quantity
-                        fields[5].trim().toLowerCase(),         // packageUnit
-                        price,                                  // price
-                        fields[7].trim().toLowerCase(),         // currency
-                        storeName                               // store
-                    );
-
-                    // add object in list
-                    products.add(product);
-                    validCount++;
-
-                } catch (NumberFormatException e) {
-                    log.warn("Number parsing error in {}: {}", filePath, line);
-                }
-
-            }
-
-            log.info("Loaded {} valid products from file: {}", validCount, filePath);
-
-        // exceptions
-        } catch(IOException e) {
-            log.error("Error reading file {}: {}", filePath, e.getMessage());
-        }
-        
-        return products;
-
+        return csvService.loadProducts(filePath);
     }
 
-    //Loads and aggregates products from all CSV files located in the 'resources/csv' directory.
-    public List<Product> loadAllProductsFromCsvDirectory() {
-        // create a list to hold all loaded products
-        List<Product> allProducts = new ArrayList<>();
-
-        // get all CSV file paths from the resources/csv directory
-        List<String> csvFiles = fileService.getFileNames("csv", "", "");
-        log.info("Found {} CSV files to process", csvFiles.size());
-
-        for (String filePath : csvFiles) {
-            log.info("Processing file: {}", filePath);
-            // add all products from the current file to the final list
-            allProducts.addAll(loadProductsFromCsv(filePath));
-        }
-
-        log.info("Total products loaded from all CSV files: {}", allProducts.size());
+    // Returns the products of the file <store>_<date>.csv from the current catalog snapshot, or an empty list
+    // when there is no such file; nothing is read from disk
+    public List<Product> getProducts(String store, String date) {
+        ProductTable products = catalogService.getSnapshot().getProductFiles().get(store + "_" + date + ".csv");
+        return products != null ? products.asList() : new ArrayList<>();
+    }
 
-        // return the completele list of products loaded from all CSV files
-        return allProducts;
+    // Returns all products from the current catalog snapshot (every store and date).
+    // The snapshot is built once by CatalogService, so no files are read here.
+    public List<Product> getAllProducts() {
+        return catalogService.getSnapshot().getProducts();
     }
+
     //Finds and returns the top N products from a given category,
     // Sorted in ascending order based on their price per base unit
     public List<Product> getBestValueProductsByCategory(String category, int topN) {
         log.info("Finding top {} best value products in category '{}'", topN, category);
 
-        List<Product> allProducts = loadAllProductsFromCsvDirectory();
+        // the category index is already sorted by price per base unit, so the answer is its first topN rows
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        ProductTable products = catalog.getProductTable();
+        int categoryCode = products.getDictionary().find(category.toLowerCase());
+        if (categoryCode == StringDictionary.NULL_CODE) {
+            return new ArrayList<>();
+        }
 
-        return allProducts.stream()
-                .filter(p -> p.getProductCategory().equalsIgnoreCase(category)) // filter only by selected category
-                .sorted((p1, p2) -> Double.compare(p1.getPricePerBaseUnit(), p2.getPricePerBaseUnit())) // sort by price per base unit
+        return Arrays.stream(catalog.getProductIndex().byPricePerBaseUnit(categoryCode))
                 .limit(topN) // limit the number of returned products
+                .mapToObj(products::product)
                 .peek(p -> log.debug("Included product: {} with price/unit = {}", p.getProductName(), p.getPricePerBaseUnit())) // log selected products
-                .collect(Collectors.toList()); // collect the filtered and sorted products into a list
+                .collect(Collectors.toList()); // collect the sorted products into a list
     }
 
     // Calculates the effective price per base unit for a given product, after applying any active discount
     public double getDiscountedPricePerUnit(Product product) {
+        return getDiscountedPricePerUnit(product, catalogService.getSnapshot().getDiscountIndex(), LocalDate.now().toEpochDay());
+    }
+
+    // Same as above, against a given discount index and day, so a whole search is priced on one snapshot
+    private double getDiscountedPricePerUnit(Product product, DiscountIndex discountIndex, long epochDay) {
         //get the price after applying any active discount
-        double discountedPrice = discountService.getDiscountedPrice(product);
-        
+        double discountedPrice = discountService.getDiscountedPrice(product, discountIndex, epochDay);
+
         // divide the discounted price by the quantity in base unit
         return discountedPrice / convertToBaseUnit(product.getPackageUnit(), product.getPackageQuantity());
     }
 
     // This method converts a given quantity into its base unit
     private double convertToBaseUnit(String unit, double quantity) {
-        switch (unit.toLowerCase()) {
-            case "mg": return quantity / 1_000_000;
-            case "g":  return quantity / 1_000;
-            case "kg": return quantity;
-            case "ml": return quantity / 1_000;
-            case "l":  return quantity;
-            case "cl": return quantity / 100;
-            case "pcs":
-            case "buc": return 1.0;
-            default:
-                log.warn("Unknown unit '{}', assuming quantity = 1", unit);
-                return 1.0;
+        double baseQuantity = Product.toBaseQuantity(unit, quantity);
+        if (Double.isNaN(baseQuantity)) {
+            log.warn("Unknown unit '{}', assuming quantity = 1", unit);
+            return 1.0;
         }
+        return baseQuantity;
     }
     // Finds and returns a list of product substitutes for a given product ID.
     // For each substitute, calculates the value per unit with discount applied
     public List<ProductWithValueDTO> getProductSubstitutes(String productId, int top, boolean sameBrand) {
-        // load all products from all CSV files
-        List<Product> allProducts = loadAllProductsFromCsvDirectory();
+        if (top < 0) {
+            throw new IllegalArgumentException("top must not be negative: " + top);
+        }
+
+        // read all products and discounts from one catalog snapshot, so the pruning bound below and the
+        // prices it is compared with come from the same discounts
+        CatalogSnapshot catalog = catalogService.getSnapshot();
+        ProductTable products = catalog.getProductTable();
+        DiscountIndex discounts = catalog.getDiscountIndex();
+        long today = LocalDate.now().toEpochDay();
 
         // find the original product based on ID
-        Product original = allProducts.stream()
-            .filter(p -> p.getProductId().equalsIgnoreCase(productId))
-            .findFirst()
-            .orElseThrow(() -> new RuntimeException("Product not found with ID: " + productId));
+        int[] originalRows = catalog.findRowsByProductId(productId);
+        if (originalRows.length == 0) {
+            throw new RuntimeException("Product not found with ID: " + productId);
+        }
+        Product original = products.product(originalRows[0]);
     
         //calculate value per unit with discount for the original product
-        double originalVPU = getDiscountedPricePerUnit(original);
-
-        // find substitute products based on category and (optionally) brand
-        return allProducts.stream()
-            .filter(p -> !p.getProductId().equalsIgnoreCase(productId)) // exclude produsul original
-            .filter(p -> p.getProductCategory().equalsIgnoreCase(original.getProductCategory()))
-            .filter(p -> !sameBrand || p.getBrand().equalsIgnoreCase(original.getBrand()))
-            .map(p -> {
-                // calculate discounted value per unit
-                double discountedVPU = getDiscountedPricePerUnit(p);
-
-                // calculate savings compared to the original product
-                double savingPercent = 100.0 * (originalVPU - discountedVPU) / originalVPU;
-                String note = savingPercent > 0
-                    ? String.format("Save %.2f%% (%.2f RON/%s vs %.2f)", savingPercent, discountedVPU, p.getPackageUnit(), originalVPU)
-                    : "No savings";
-
-                // build DTO
-                return new ProductWithValueDTO(
-                    p.getProductName(),
-                    p.getBrand(),
-                    p.getProductCategory(),
-                    p.getStore(),
-                    p.getPrice(),
-                    discountedVPU,
-                    p.getPackageUnit(),
-                    note
-                );
-            })
-            .sorted(Comparator.comparingDouble(ProductWithValueDTO::getValuePerUnit))
-            .limit(top)
-            .collect(Collectors.toList());
+        double originalVPU = getDiscountedPricePerUnit(original, discounts, today);
+
+        // candidates come from the category (or category + brand) index, sorted by value per unit before discounts.
+        // A discount lowers that value by at most the largest percentage in the catalog, so once even that
+        // cannot beat the current top entries, no later candidate can either and the scan stops.
+        ProductIndex index = catalog.getProductIndex();
+        int categoryCode = products.categoryCode(originalRows[0]);
+        int[] candidates = sameBrand
+            ? index.byBrandValue(categoryCode, original.getBrand())
+            : index.byValue(categoryCode);
+        double maxPercentage = discounts.getMaxPercentage();
+        double lowestFactor = maxPercentage >= 100 ? Double.NEGATIVE_INFINITY : (1 - maxPercentage / 100.0) * (1 - 1e-9);
+
+        // equal values keep catalog order like a stable sort
+        Comparator<Substitute> order = Comparator.<Substitute>comparingDouble(c -> c.dto.getValuePerUnit())
+            .thenComparingInt(c -> c.row);
+        TopK<Substitute> best = new TopK<>(top, order);
+        for (int row : candidates) {
+            if (best.isFull() && (top == 0 || index.valuePerUnit(row) * lowestFactor > best.worst().dto.getValuePerUnit())) {
+                break;
+            }
+            if (products.productId(row).equalsIgnoreCase(productId)) {
+                continue; // exclude produsul original
+            }
+
+            Product p = products.product(row);
+
+            // calculate discounted value per unit
+            double discountedVPU = getDiscountedPricePerUnit(p, discounts, today);
+
+            // calculate savings compared to the original product
+            double savingPercent = 100.0 * (originalVPU - discountedVPU) / originalVPU;
+            String note = savingPercent > 0
+                ? String.format("Save %.2f%% (%.2f RON/%s vs %.2f)", savingPercent, discountedVPU, p.getPackageUnit(), originalVPU)
+                : "No savings";
+
+            // build DTO
+            best.offer(new Substitute(row, new ProductWithValueDTO(
+                p.getProductName(),
+                p.getBrand(),
+                p.getProductCategory(),
+                p.getStore(),
+                p.getPrice(),
+                discountedVPU,
+                p.getPackageUnit(),
+                note
+            )));
+        }
+
+        return best.toList().stream().map(c -> c.dto).collect(Collectors.toList());
+    }
+
+    // A substitute DTO with its catalog row, used to break ties in catalog order
+    private static final class Substitute {
+        private final int row;
+        private final ProductWithValueDTO dto;
+
+        private Substitute(int row, ProductWithValueDTO dto) {
+            this.row = row;
+            this.dto = dto;
+        }
     }
 
 }
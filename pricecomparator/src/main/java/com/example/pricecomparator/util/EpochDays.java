@@ -0,0 +1,74 @@
+package com.example.pricecomparator.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+// Dates as days since 1970-01-01 (LocalDate.toEpochDay), the form discount validity is kept in.
+// Dates in the files are always yyyy-MM-dd, so they are parsed by position without a formatter and
+// without allocating; anything else (missing zero padding, month 13, February 30) is rejected.
+public final class EpochDays {
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private EpochDays() {
+    }
+
+    // Parses a yyyy-MM-dd date
+    public static int parse(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            throw new IllegalArgumentException("Not a yyyy-MM-dd date: " + text);
+        }
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i == 4 || i == 7) {
+                continue;
+            }
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Not a yyyy-MM-dd date: " + text);
+            }
+            if (i < 4) {
+                year = year * 10 + digit;
+            } else if (i < 7) {
+                month = month * 10 + digit;
+            } else {
+                day = day * 10 + digit;
+            }
+        }
+        return of(year, month, day);
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date, like LocalDate.of(year, month, day).toEpochDay()
+    public static int of(int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("Invalid date: " + year + "-" + month + "-" + day);
+        }
+        // counted from 0000-03-01 so the leap day is the last day of its year (H. Hinnant, days_from_civil)
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // The Date the API has always returned for a day: its midnight in the default time zone,
+    // which is what SimpleDateFormat("yyyy-MM-dd") used to produce
+    public static Date toDate(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    // The day a Date falls on in the default time zone
+    public static int of(Date date) {
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.pricecomparator.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Splits semicolon separated lines directly over a byte buffer (heap or memory-mapped).
+// Field boundaries are kept in reused int arrays, numbers are parsed straight from the bytes,
+// and strings are only created when a field is actually read, so a row allocates nothing by itself.
+// Fields are trimmed like String.trim(). Not thread-safe: use one tokenizer per file.
+public final class SemicolonTokenizer {
+    private static final byte SEPARATOR = ';';
+
+    // powers of ten that are exact in a double, used by the fast number path
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final ByteBuffer data;
+    private final int limit;
+    private int position;
+
+    private int lineStart;
+    private int lineEnd;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    public SemicolonTokenizer(ByteBuffer data) {
+        this.data = data;
+        this.position = data.position();
+        this.limit = data.limit();
+    }
+
+    // Moves to the next line; returns false at the end of the data
+    public boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+
+        lineStart = position;
+        int i = position;
+        while (i < limit && data.get(i) != '\n') {
+            i++;
+        }
+        position = i + 1;
+        lineEnd = i > lineStart && data.get(i - 1) == '\r' ? i - 1 : i;
+
+        split();
+        return true;
+    }
+
+    // Number of fields on the current line; trailing empty fields are not counted (same as String.split)
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public boolean isEmpty(int field) {
+        return starts[field] == ends[field];
+    }
+
+    // The trimmed field as a new string
+    public String string(int field) {
+        return decode(starts[field], ends[field]);
+    }
+
+    // The trimmed field through a pool, so repeated values share one instance
+    public String string(int field, StringPool pool) {
+        return pool.get(this, starts[field], ends[field]);
+    }
+
+    // Parses a decimal number such as 9.90, -3 or 0.4 straight from the bytes.
+    // Anything else (exponents, extra characters) goes through Double.parseDouble, which also reports bad input.
+    public double number(int field) {
+        int from = starts[field];
+        int to = ends[field];
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (data.get(i) == '-' || data.get(i) == '+')) {
+            negative = data.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean dot = false;
+        for (; i < to; i++) {
+            byte b = data.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(decode(from, to));
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(decode(from, to));
+            }
+        }
+
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(decode(from, to));
+        }
+
+        // both operands are exact, so the division is correctly rounded like Double.parseDouble
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    // Parses a yyyy-MM-dd date straight from the bytes into days since 1970-01-01 (see EpochDays).
+    // Throws IllegalArgumentException for any other format or an impossible date.
+    public int epochDay(int field) {
+        int from = starts[field];
+        int to = ends[field];
+        if (to - from != 10 || data.get(from + 4) != '-' || data.get(from + 7) != '-') {
+            throw new IllegalArgumentException("Not a yyyy-MM-dd date: " + decode(from, to));
+        }
+        return EpochDays.of(digits(from, 4), digits(from + 5, 2), digits(from + 8, 2));
+    }
+
+    // The raw current line, for log messages
+    public String line() {
+        return new String(bytes(lineStart, lineEnd), 0, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    // Hash of the bytes in [from, to), used by StringPool
+    int hash(int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + data.get(i);
+        }
+        return h;
+    }
+
+    // Compares the bytes in [from, to) with a pooled key
+    boolean matches(int from, int to, byte[] key) {
+        if (key.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != data.get(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    byte[] copy(int from, int to) {
+        byte[] key = new byte[to - from];
+        data.get(from, key);
+        return key;
+    }
+
+    String decode(int from, int to) {
+        return new String(bytes(from, to), 0, to - from, StandardCharsets.UTF_8);
+    }
+
+    // The decimal value of count ASCII digits starting at from
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = data.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Not a yyyy-MM-dd date: " + decode(from, from + count));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Copies [from, to) into the scratch array (the buffer may be memory-mapped, so it has no backing array)
+    private byte[] bytes(int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        data.get(from, scratch, 0, length);
+        return scratch;
+    }
+
+    private void split() {
+        fieldCount = 0;
+        int fieldStart = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || data.get(i) == SEPARATOR) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+
+        // String.split drops trailing empty fields; keep the same column counts
+        while (fieldCount > 0 && starts[fieldCount - 1] == ends[fieldCount - 1]) {
+            fieldCount--;
+        }
+    }
+
+    private void addField(int from, int to) {
+        // trim like String.trim(): everything up to and including the space character
+        while (from < to && (data.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (data.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = from;
+        ends[fieldCount] = to;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.pricecomparator.util;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Chooses the stores to shop at for a basket when splitting it across every store is not wanted: at most
+// maxStores stores, and/or a fixed cost for every store visited (travel, delivery). Each item is then bought
+// in the cheapest chosen store that sells it.
+// The search is a depth-first branch and bound over store subsets. Stores are tried best single-store basket
+// first, so good plans are found early. Before a store is added, a lower bound (every item at its cheapest price
+// among the stores already chosen and the ones still to try, plus the cost of one more store) is compared with
+// the best plan so far; since trying later stores only lowers the choice, the remaining siblings are cut too.
+// The per-item minimum over the remaining stores is computed once per position (suffix minima) and every level
+// keeps its per-item minimum, so a node costs O(items) and nothing is recomputed along a branch.
+// When no allowed plan sells every item, plans leaving out fewer items win first, then the cheaper one.
+public final class StorePlanner {
+
+    private final double[][] costs; // item -> store -> cost of the item there, POSITIVE_INFINITY if not sold
+    private final int itemCount;
+    private final int maxStores;
+    private final double storeCost;
+    private final int[] order; // stores in the order they are tried
+    private final double[][] suffixMin; // position -> item -> cheapest cost among order[position..]
+    private final double[][] levelMin; // stores chosen -> item -> cheapest cost among the chosen stores
+    private final int[] chosen;
+
+    private int[] bestStores = new int[0];
+    private int bestMissing;
+    private double bestCost;
+    private long nodes;
+
+    private StorePlanner(double[][] costs, int storeCount, int maxStores, double storeCost) {
+        this.costs = costs;
+        this.itemCount = costs.length;
+        this.maxStores = Math.min(maxStores, storeCount);
+        this.storeCost = storeCost;
+        this.order = storesByStandaloneCost(costs, storeCount);
+        this.suffixMin = new double[storeCount + 1][itemCount];
+        this.levelMin = new double[this.maxStores + 1][itemCount];
+        this.chosen = new int[this.maxStores];
+
+        Arrays.fill(suffixMin[storeCount], Double.POSITIVE_INFINITY);
+        for (int position = storeCount - 1; position >= 0; position--) {
+            for (int i = 0; i < itemCount; i++) {
+                suffixMin[position][i] = Math.min(suffixMin[position + 1][i], costs[i][order[position]]);
+            }
+        }
+        Arrays.fill(levelMin[0], Double.POSITIVE_INFINITY);
+        this.bestMissing = itemCount;
+        this.bestCost = 0;
+    }
+
+    // costs[item][store] is what the item costs in that store (price times quantity), or
+    // Double.POSITIVE_INFINITY when the store does not sell it. Every row must have storeCount entries.
+    // maxStores caps the number of stores in the plan and storeCost is added once for every store in it.
+    public static Plan plan(double[][] costs, int storeCount, int maxStores, double storeCost) {
+        if (maxStores <= 0) {
+            throw new IllegalArgumentException("maxStores must be positive");
+        }
+        if (!(storeCost >= 0) || Double.isInfinite(storeCost)) {
+            throw new IllegalArgumentException("storeCost must not be negative");
+        }
+        for (double[] row : costs) {
+            if (row.length != storeCount) {
+                throw new IllegalArgumentException("every item needs a cost for each of the " + storeCount + " stores");
+            }
+        }
+
+        StorePlanner planner = new StorePlanner(costs, storeCount, maxStores, storeCost);
+        planner.search(0, 0);
+        return planner.toPlan();
+    }
+
+    // Visits the plan made of the first `level` chosen stores, then extends it with stores from order[position..]
+    private void search(int position, int level) {
+        nodes++;
+        double[] current = levelMin[level];
+
+        int missing = 0;
+        double cost = level * storeCost;
+        for (int i = 0; i < itemCount; i++) {
+            if (current[i] == Double.POSITIVE_INFINITY) {
+                missing++;
+            } else {
+                cost += current[i];
+            }
+        }
+        if (isBetter(missing, cost)) {
+            bestMissing = missing;
+            bestCost = cost;
+            bestStores = Arrays.copyOf(chosen, level);
+        }
+        if (level == maxStores) {
+            return;
+        }
+
+        double[] next = levelMin[level + 1];
+        for (int p = position; p < order.length; p++) {
+            // bound for every plan adding order[p] and possibly later stores; it only grows with p
+            int boundMissing = 0;
+            double boundCost = (level + 1) * storeCost;
+            for (int i = 0; i < itemCount; i++) {
+                double cheapest = Math.min(current[i], suffixMin[p][i]);
+                if (cheapest == Double.POSITIVE_INFINITY) {
+                    boundMissing++;
+                } else {
+                    boundCost += cheapest;
+                }
+            }
+            if (!isBetter(boundMissing, boundCost)) {
+                return;
+            }
+
+            int store = order[p];
+            boolean improves = false;
+            for (int i = 0; i < itemCount; i++) {
+                double withStore = costs[i][store];
+                if (withStore < current[i]) {
+                    next[i] = withStore;
+                    improves = true;
+                } else {
+                    next[i] = current[i];
+                }
+            }
+            // a store that makes no item cheaper only adds its store cost
+            if (!improves) {
+                continue;
+            }
+            chosen[level] = store;
+            search(p + 1, level + 1);
+        }
+    }
+
+    private boolean isBetter(int missing, double cost) {
+        return missing < bestMissing || (missing == bestMissing && cost < bestCost);
+    }
+
+    // Stores by the items they leave out, then by the cost of the whole basket there
+    private static int[] storesByStandaloneCost(double[][] costs, int storeCount) {
+        int[] missing = new int[storeCount];
+        double[] total = new double[storeCount];
+        for (double[] row : costs) {
+            for (int s = 0; s < storeCount; s++) {
+                if (row[s] == Double.POSITIVE_INFINITY) {
+                    missing[s]++;
+                } else {
+                    total[s] += row[s];
+                }
+            }
+        }
+        return IntStream.range(0, storeCount).boxed()
+            .sorted((a, b) -> missing[a] != missing[b]
+                ? Integer.compare(missing[a], missing[b])
+                : Double.compare(total[a], total[b]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private Plan toPlan() {
+        int[] stores = bestStores.clone();
+        Arrays.sort(stores);
+        int[] assignment = new int[itemCount];
+        double itemsCost = 0;
+        for (int i = 0; i < itemCount; i++) {
+            assignment[i] = -1;
+            for (int store : stores) {
+                if (costs[i][store] != Double.POSITIVE_INFINITY
+                    && (assignment[i] < 0 || costs[i][store] < costs[i][assignment[i]])) {
+                    assignment[i] = store;
+                }
+            }
+            if (assignment[i] >= 0) {
+                itemsCost += costs[i][assignment[i]];
+            }
+        }
+        return new Plan(stores, assignment, bestMissing, itemsCost, stores.length * storeCost, nodes);
+    }
+
+    // The chosen stores and where each item is bought
+    public static final class Plan {
+        private final int[] stores; // ascending store indexes
+        private final int[] assignment; // item -> store index, -1 when no chosen store sells it
+        private final int missing;
+        private final double itemsCost;
+        private final double storesCost;
+        private final long nodes;
+
+        private Plan(int[] stores, int[] assignment, int missing, double itemsCost, double storesCost, long nodes) {
+            this.stores = stores;
+            this.assignment = assignment;
+            this.missing = missing;
+            this.itemsCost = itemsCost;
+            this.storesCost = storesCost;
+            this.nodes = nodes;
+        }
+
+        public int[] getStores() {
+            return stores.clone();
+        }
+
+        // Store the item is bought in, or -1 when it is left out
+        public int storeOf(int item) {
+            return assignment[item];
+        }
+
+        // Items no chosen store sells
+        public int getMissing() {
+            return missing;
+        }
+
+        public double getItemsCost() {
+            return itemsCost;
+        }
+
+        public double getStoresCost() {
+            return storesCost;
+        }
+
+        public double getTotalCost() {
+            return itemsCost + storesCost;
+        }
+
+        // Store subsets looked at by the search, for benchmarks and logs
+        public long getNodes() {
+            return nodes;
+        }
+    }
+}
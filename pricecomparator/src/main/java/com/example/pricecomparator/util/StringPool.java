@@ -0,0 +1,102 @@
+package com.example.pricecomparator.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Interns field values looked up by their raw bytes, so a value that repeats on every row
+// (category, unit, currency, brand, ...) is decoded once and then shared.
+// The byte table is per parse and not thread-safe; an optional shared map makes the resulting strings
+// canonical across files parsed at the same time.
+public final class StringPool {
+    private final boolean lowerCase;
+    private final ConcurrentMap<String, String> shared;
+
+    private byte[][] keys = new byte[64][];
+    private String[] values = new String[64];
+    private int[] hashes = new int[64];
+    private int size;
+
+    private StringPool(boolean lowerCase, ConcurrentMap<String, String> shared) {
+        this.lowerCase = lowerCase;
+        this.shared = shared;
+    }
+
+    // Keeps values as they appear in the file
+    public static StringPool exact(ConcurrentMap<String, String> shared) {
+        return new StringPool(false, shared);
+    }
+
+    // Stores values lowercased, for columns that are compared case-insensitively (category, unit, currency)
+    public static StringPool lowerCase(ConcurrentMap<String, String> shared) {
+        return new StringPool(true, shared);
+    }
+
+    // A map to share between pools, so equal values from different files end up as one instance
+    public static ConcurrentMap<String, String> newSharedMap() {
+        return new ConcurrentHashMap<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    String get(SemicolonTokenizer tokenizer, int from, int to) {
+        int hash = tokenizer.hash(from, to);
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && tokenizer.matches(from, to, keys[slot])) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = tokenizer.decode(from, to);
+        if (lowerCase) {
+            value = value.toLowerCase();
+        }
+        if (shared != null) {
+            String existing = shared.putIfAbsent(value, value);
+            if (existing != null) {
+                value = existing;
+            }
+        }
+
+        keys[slot] = tokenizer.copy(from, to);
+        values[slot] = value;
+        hashes[slot] = hash;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return value;
+    }
+
+    private void grow() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldKeys.length * 2];
+        hashes = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = mix(oldHashes[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            hashes[slot] = oldHashes[i];
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.pricecomparator.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Keeps the k best items seen so far in a bounded heap, so a "first k of the sorted list" query costs
+// O(n log k) and k entries of memory instead of sorting every candidate.
+// Items that compare equal keep the order they were offered in, so the result is the same as a stable
+// sort followed by limit(k). Not thread-safe: one instance per query.
+public final class TopK<T> {
+    private final int k;
+    private final Comparator<Entry<T>> order;
+    private final PriorityQueue<Entry<T>> heap; // the worst kept item sits on top
+    private long offered;
+
+    // order puts the best item first, like the comparator of the sort it replaces
+    public TopK(int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + k);
+        }
+        this.k = k;
+        this.order = Comparator.<Entry<T>, T>comparing(e -> e.item, order).thenComparingLong(e -> e.sequence);
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), this.order.reversed());
+    }
+
+    // The first k items of the collection in the given order; the collection itself is not modified
+    public static <T> List<T> select(Collection<? extends T> items, int k, Comparator<? super T> order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + k);
+        }
+        // nothing to drop: a plain (stable) sort is cheaper than going through the heap
+        if (items.size() <= k) {
+            List<T> all = new ArrayList<>(items);
+            all.sort(order);
+            return all;
+        }
+        TopK<T> top = new TopK<>(k, order);
+        for (T item : items) {
+            top.offer(item);
+        }
+        return top.toList();
+    }
+
+    // Adds the item if it is among the best k so far; returns false if it was dropped
+    public boolean offer(T item) {
+        if (k == 0) {
+            return false;
+        }
+        Entry<T> entry = new Entry<>(item, offered++);
+        if (heap.size() < k) {
+            heap.add(entry);
+            return true;
+        }
+        if (order.compare(entry, heap.peek()) >= 0) {
+            return false;
+        }
+        heap.poll();
+        heap.add(entry);
+        return true;
+    }
+
+    // True once k items are kept, from then on only better items get in
+    public boolean isFull() {
+        return heap.size() >= k;
+    }
+
+    // The item that the next better one would replace, or null if nothing is kept
+    public T worst() {
+        Entry<T> entry = heap.peek();
+        return entry == null ? null : entry.item;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    // The kept items, best first
+    public List<T> toList() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort(order);
+        List<T> items = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long sequence;
+
+        private Entry(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+}
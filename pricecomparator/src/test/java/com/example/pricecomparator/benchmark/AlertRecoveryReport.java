@@ -0,0 +1,79 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.models.PriceAlert;
+import com.example.pricecomparator.service.AlertStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Prints how long the alert store takes to recover a large number of alerts, first by replaying the log and then
+// from the compacted snapshot, plus the group-commit throughput of single appends from many threads. Run with:
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.AlertRecoveryReport [alerts] [dir]
+public class AlertRecoveryReport {
+
+    private static final String[] STORES = {"lidl", "kaufland", "profi", "mega", "penny"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("alert-store");
+        AlertProperties properties = new AlertProperties();
+        properties.setStoreDir(directory.toString());
+
+        // 50,000 products, a quarter of the alerts for any store
+        List<PriceAlert> alerts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            alerts.add(new PriceAlert("P" + i % 50_000, 1 + i % 5_000 / 100.0, i % 4 == 0 ? null : STORES[i % STORES.length]));
+        }
+        AlertStore store = new AlertStore(properties);
+        store.recover();
+        long start = System.nanoTime();
+        store.appendAll(alerts);
+        System.out.printf("alerts:                 %,d%n", count);
+        System.out.printf("bulk append:            %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        int threads = 32;
+        int perThread = 500;
+        Thread[] writers = new Thread[threads];
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.append(new PriceAlert("P1", 2.5, "lidl"));
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("durable single appends: %,.0f/s from %d threads%n", threads * perThread / (nanos / 1e9), threads);
+        store.close();
+        alerts = null;
+
+        System.out.printf("recovery from the log:  %,d ms%n", recover(properties, false));
+        System.out.printf("recovery from snapshot: %,d ms%n", recover(properties, true));
+    }
+
+    // compacts first when asked, then times recover() on a fresh store
+    private static long recover(AlertProperties properties, boolean compact) {
+        if (compact) {
+            AlertStore store = new AlertStore(properties);
+            store.recover();
+            store.compact();
+            store.close();
+        }
+        AlertStore store = new AlertStore(properties);
+        long start = System.nanoTime();
+        int recovered = store.recover().size();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        store.close();
+        if (recovered == 0) {
+            throw new IllegalStateException("nothing recovered");
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.util.StorePlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Time to plan one basket of ITEMS products with StorePlanner, for a few store counts and constraints.
+// Prices follow a per-product base price, a per-store price level and some noise, and STOCKED of the
+// products are sold by each store, which is closer to real catalogs than independent random prices.
+// maxStores = 0 means no limit. Run with:
+//   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.BasketPlanBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasketPlanBenchmark {
+
+    static final int ITEMS = 50;
+    static final double STOCKED = 0.8;
+
+    @Param({"10", "16", "20"})
+    public int stores;
+
+    @Param({"0", "2", "4"})
+    public int maxStores;
+
+    @Param({"0", "5"})
+    public double storeCost;
+
+    private double[][] costs;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] storeLevel = new double[stores];
+        for (int s = 0; s < stores; s++) {
+            storeLevel[s] = 0.85 + random.nextDouble() * 0.3;
+        }
+        costs = new double[ITEMS][stores];
+        for (int i = 0; i < ITEMS; i++) {
+            double basePrice = 2 + random.nextDouble() * 38;
+            int quantity = 1 + random.nextInt(3);
+            for (int s = 0; s < stores; s++) {
+                costs[i][s] = random.nextDouble() < STOCKED
+                    ? basePrice * storeLevel[s] * (0.9 + random.nextDouble() * 0.2) * quantity
+                    : Double.POSITIVE_INFINITY;
+            }
+        }
+    }
+
+    @Benchmark
+    public StorePlanner.Plan plan() {
+        return StorePlanner.plan(costs, stores, maxStores == 0 ? stores : maxStores, storeCost);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BasketPlanBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.models.Discount;
+import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.service.CsvService;
+import com.example.pricecomparator.service.FileService;
+import com.example.pricecomparator.util.EpochDays;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Compares the byte tokenizer used by CsvService with the previous String.split based parsing.
+// Every invocation parses ROWS rows, so the scores are rows/sec and, with the gc profiler, bytes allocated per row
+// (gc.alloc.rate.norm). Run with:
+//   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.CsvParsingBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private static final String PRODUCT_HEADER = "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n";
+    private static final String DISCOUNT_HEADER = "product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n";
+
+    private byte[] productData;
+    private byte[] discountData;
+    private CsvService csvService;
+
+    @Setup
+    public void setUp() {
+        productData = generate(PRODUCT_HEADER, i -> String.format("P%03d;produs %d;%s;Brand%d;%s;%s;%d.%02d;RON",
+                i % 500, i % 500, CATEGORIES[i % CATEGORIES.length], i % 40,
+                QUANTITIES[i % QUANTITIES.length], UNITS[i % UNITS.length], 1 + i % 60, i % 100));
+        discountData = generate(DISCOUNT_HEADER, i -> String.format("P%03d;produs %d;Brand%d;%s;%s;%s;2025-05-%02d;2025-05-%02d;%d",
+                i % 500, i % 500, i % 40, QUANTITIES[i % QUANTITIES.length], UNITS[i % UNITS.length],
+                CATEGORIES[i % CATEGORIES.length], 1 + i % 20, 8 + i % 20, 5 + i % 30));
+        csvService = new CsvService(new FileService(new CatalogProperties()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Product> productsSplit() throws IOException {
+        return LegacyParser.parseProducts(productData, "lidl");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ProductTable productsTokenizer() {
+        return csvService.parseProducts(ByteBuffer.wrap(productData), "lidl", "benchmark");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Discount> discountsSplit() throws IOException {
+        return LegacyParser.parseDiscounts(discountData, "lidl");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Discount> discountsTokenizer() {
+        return csvService.parseDiscounts(ByteBuffer.wrap(discountData), "lidl", "benchmark");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CsvParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private static final String[] CATEGORIES = {"lactate", "panificație", "legume și fructe", "băuturi", "carne"};
+    private static final String[] UNITS = {"l", "kg", "g", "ml", "buc"};
+    private static final String[] QUANTITIES = {"1", "0.5", "500", "2", "0.25"};
+
+    private static byte[] generate(String header, IntFunction<String> row) {
+        StringBuilder content = new StringBuilder(header);
+        for (int i = 0; i < ROWS; i++) {
+            content.append(row.apply(i)).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The parsing loops as they were before the tokenizer, kept as the baseline
+    static final class LegacyParser {
+
+        static List<Product> parseProducts(byte[] data, String storeName) throws IOException {
+            List<Product> products = new ArrayList<>();
+            try (BufferedReader br = reader(data)) {
+                String line;
+                boolean firstLine = true;
+                while ((line = br.readLine()) != null) {
+                    if (firstLine) {
+                        firstLine = false;
+                        continue;
+                    }
+                    String[] fields = line.split(";");
+                    if (fields.length < 8) {
+                        continue;
+                    }
+                    try {
+                        double packageQuantity = Double.parseDouble(fields[4]);
+                        double price = Double.parseDouble(fields[6]);
+                        if (packageQuantity <= 0 || price < 0) {
+                            continue;
+                        }
+                        products.add(new Product(fields[0].trim(), fields[1].trim(), fields[2].trim().toLowerCase(),
+                                fields[3].trim(), packageQuantity, fields[5].trim().toLowerCase(), price,
+                                fields[7].trim().toLowerCase(), storeName));
+                    } catch (NumberFormatException e) {
+                        // skipped, as before
+                    }
+                }
+            }
+            return products;
+        }
+
+        static List<Discount> parseDiscounts(byte[] data, String storeName) throws IOException {
+            List<Discount> discounts = new ArrayList<>();
+            try (BufferedReader br = reader(data)) {
+                String line;
+                boolean firstLine = true;
+                SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+                while ((line = br.readLine()) != null) {
+                    if (firstLine) {
+                        firstLine = false;
+                        continue;
+                    }
+                    String[] fields = line.split(";");
+                    if (fields.length < 9) {
+                        continue;
+                    }
+                    try {
+                        double packageQuantity = Double.parseDouble(fields[3].trim());
+                        double percentageOfDiscount = Double.parseDouble(fields[8].trim());
+                        Date fromDate = formatter.parse(fields[6].trim());
+                        Date toDate = formatter.parse(fields[7].trim());
+                        if (packageQuantity <= 0 || percentageOfDiscount <= 0 || !fromDate.before(toDate)) {
+                            continue;
+                        }
+                        discounts.add(new Discount(fields[0].trim(), fields[1].trim(), fields[2].trim(),
+                                packageQuantity, fields[4].trim().toLowerCase(), fields[5].trim().toLowerCase(),
+                                EpochDays.of(fromDate), EpochDays.of(toDate), percentageOfDiscount, storeName));
+                    } catch (ParseException | NumberFormatException e) {
+                        // skipped, as before
+                    }
+                }
+            }
+            return discounts;
+        }
+
+        private static BufferedReader reader(byte[] data) {
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.util.SemicolonTokenizer;
+import com.example.pricecomparator.util.StringPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.Date;
+
+// Cost of the discount validity columns, before and after they became epoch days:
+//  - parse*: the from/to columns of ROWS discount lines, through SimpleDateFormat (as CsvService did) or
+//    straight from the bytes with SemicolonTokenizer.epochDay
+//  - active*: is each of ROWS discounts active on a day, with Date comparisons or two int comparisons
+// Scores are rows/sec; with the gc profiler gc.alloc.rate.norm is the bytes allocated per row. Run with:
+//   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.DiscountDateBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscountDateBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private byte[] lines;
+    private Date[] fromDates;
+    private Date[] toDates;
+    private int[] fromDays;
+    private int[] toDays;
+    private Date day;
+    private int epochDay;
+
+    @Setup
+    public void setUp() throws ParseException {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+        LocalDate first = LocalDate.of(2025, 1, 1);
+        StringBuilder content = new StringBuilder();
+        fromDates = new Date[ROWS];
+        toDates = new Date[ROWS];
+        fromDays = new int[ROWS];
+        toDays = new int[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            LocalDate from = first.plusDays(i % 300);
+            LocalDate to = from.plusDays(1 + i % 14);
+            content.append(from).append(';').append(to).append('\n');
+            fromDates[i] = formatter.parse(from.toString());
+            toDates[i] = formatter.parse(to.toString());
+            fromDays[i] = (int) from.toEpochDay();
+            toDays[i] = (int) to.toEpochDay();
+        }
+        lines = content.toString().getBytes(StandardCharsets.UTF_8);
+        day = formatter.parse("2025-05-08");
+        epochDay = (int) LocalDate.of(2025, 5, 8).toEpochDay();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int parseSimpleDateFormat() throws ParseException {
+        SemicolonTokenizer tokenizer = new SemicolonTokenizer(ByteBuffer.wrap(lines));
+        StringPool dates = StringPool.exact(null);
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+        int valid = 0;
+        while (tokenizer.nextLine()) {
+            Date from = formatter.parse(tokenizer.string(0, dates));
+            Date to = formatter.parse(tokenizer.string(1, dates));
+            if (from.before(to)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int parseEpochDays() {
+        SemicolonTokenizer tokenizer = new SemicolonTokenizer(ByteBuffer.wrap(lines));
+        int valid = 0;
+        while (tokenizer.nextLine()) {
+            if (tokenizer.epochDay(0) < tokenizer.epochDay(1)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int activeDates() {
+        int active = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (!day.before(fromDates[i]) && day.before(toDates[i])) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int activeEpochDays() {
+        int active = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (fromDays[i] <= epochDay && epochDay < toDays[i]) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DiscountDateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.models.Discount;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Prints how long a single-file delta takes on a catalog with years of history (one product file and one
+// discount file per store and day), next to building the same catalog from scratch. Run with:
+//   java -Xmx8g -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.IngestLatencyReport [days] [products per file]
+public class IngestLatencyReport {
+
+    private static final String[] STORES = {"lidl", "kaufland", "profi"};
+    private static final String[] CATEGORIES = {"lactate", "panificație", "legume și fructe", "băuturi", "carne"};
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 730;
+        int productsPerFile = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        StringDictionary dictionary = new StringDictionary();
+        LocalDate first = LocalDate.of(2024, 1, 1);
+
+        Map<String, ProductTable> productFiles = new LinkedHashMap<>();
+        Map<String, List<Discount>> discountFiles = new LinkedHashMap<>();
+        for (int d = 0; d < days; d++) {
+            LocalDate date = first.plusDays(d);
+            for (String store : STORES) {
+                productFiles.put(store + "_" + date + ".csv", products(dictionary, store, d, productsPerFile));
+                discountFiles.put(store + "_discounts_" + date + ".csv", discounts(store, date, d, productsPerFile / 10));
+            }
+        }
+
+        long start = System.nanoTime();
+        CatalogSnapshot snapshot = CatalogSnapshot.of(1, dictionary, productFiles, discountFiles);
+        long fullMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("files:                  %,d product + %,d discount%n", productFiles.size(), discountFiles.size());
+        System.out.printf("products / discounts:   %,d / %,d%n", snapshot.getProductTable().size(),
+            discountFiles.values().stream().mapToInt(List::size).sum());
+        System.out.printf("full build:             %,d ms%n", fullMillis);
+
+        // a new day's files, dropped one at a time, as the watcher applies them
+        long discountNanos = 0;
+        long productNanos = 0;
+        long version = 2;
+        for (int round = 0; round < ROUNDS; round++) {
+            LocalDate date = first.plusDays(days + round);
+            String store = STORES[round % STORES.length];
+            List<Discount> discounts = discounts(store, date, days + round, productsPerFile / 10);
+            ProductTable products = products(dictionary, store, days + round, productsPerFile);
+
+            start = System.nanoTime();
+            snapshot = snapshot.withDiscountFile(version++, store + "_discounts_" + date + ".csv", discounts);
+            discountNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            snapshot = snapshot.withProductFile(version++, store + "_" + date + ".csv", products);
+            productNanos += System.nanoTime() - start;
+        }
+        System.out.printf("discount file delta:    %,.1f ms%n", discountNanos / 1e6 / ROUNDS);
+        System.out.printf("product file appended:  %,.1f ms%n", productNanos / 1e6 / ROUNDS);
+
+        // an existing file modified in place: the rows of every later file move, so the product side is rebuilt
+        String replaced = STORES[0] + "_" + first.plusDays(days / 2) + ".csv";
+        start = System.nanoTime();
+        snapshot = snapshot.withProductFile(version++, replaced, products(dictionary, STORES[0], days, productsPerFile));
+        System.out.printf("product file replaced:  %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        snapshot.getPriceHistory();
+        System.out.printf("price history on first use after a delta: %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static ProductTable products(StringDictionary dictionary, String store, int day, int count) {
+        ProductTable.Builder table = ProductTable.builder(dictionary);
+        for (int sku = 0; sku < count; sku++) {
+            table.add("P" + sku, "produs " + sku, CATEGORIES[sku % CATEGORIES.length], "Brand" + sku % 40,
+                1 + sku % 3, "kg", 1 + (sku * 7 + day) % 6000 / 100.0, "ron", store);
+        }
+        return table.build();
+    }
+
+    private static List<Discount> discounts(String store, LocalDate date, int day, int count) {
+        List<Discount> discounts = new ArrayList<>(count);
+        int from = (int) date.toEpochDay();
+        for (int i = 0; i < count; i++) {
+            int sku = (i * 10 + day) % (count * 10);
+            discounts.add(new Discount("P" + sku, "produs " + sku, "Brand" + sku % 40, 1 + sku % 3, "kg",
+                CATEGORIES[sku % CATEGORIES.length], from, from + 7, 5 + i % 30, store));
+        }
+        return discounts;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.pricecomparator.benchmark;
+
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.models.Product;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Prints the retained heap of the same product rows held as a List<Product> (one set of strings per row,
+// as the CSV parsing used to create them) and as a ProductTable with its dictionary. Run with:
+//   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.pricecomparator.benchmark.ProductMemoryReport [rows]
+public class ProductMemoryReport {
+
+    private static final String[] CATEGORIES = {"lactate", "panificație", "legume și fructe", "băuturi", "carne"};
+    private static final String[] UNITS = {"l", "kg", "g", "ml", "buc"};
+    private static final String[] STORES = {"lidl", "kaufland", "profi", "mega", "penny"};
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        // 500 products offered by 5 stores on many days, like stores x days x SKUs
+        List<Product> objects = new ArrayList<>(rows);
+        StringDictionary dictionary = new StringDictionary();
+        ProductTable.Builder table = ProductTable.builder(dictionary);
+        for (int i = 0; i < rows; i++) {
+            int sku = i % 500;
+            // new String(...) stands for the fresh strings String.split/trim/toLowerCase produced for every row
+            Product product = new Product(new String("P" + sku), new String("produs " + sku),
+                new String(CATEGORIES[sku % CATEGORIES.length]), new String("Brand" + sku % 40), 1 + sku % 3,
+                new String(UNITS[sku % UNITS.length]), 1 + (i % 6000) / 100.0, new String("ron"),
+                new String(STORES[(i / 500) % STORES.length]));
+            objects.add(product);
+            table.add(product);
+        }
+        ProductTable columns = table.build();
+
+        long objectBytes = GraphLayout.parseInstance(objects).totalSize();
+        long tableBytes = GraphLayout.parseInstance(columns).totalSize();
+        System.out.printf("rows:               %,d%n", rows);
+        System.out.printf("List<Product>:      %,d bytes (%.1f bytes/row)%n", objectBytes, (double) objectBytes / rows);
+        System.out.printf("ProductTable:       %,d bytes (%.1f bytes/row, dictionary of %,d strings included)%n",
+            tableBytes, (double) tableBytes / rows, dictionary.size());
+        System.out.printf("estimatedBytes():   %,d bytes of columns + %,d bytes of dictionary%n",
+            columns.estimatedBytes(), dictionary.estimatedBytes());
+    }
+}
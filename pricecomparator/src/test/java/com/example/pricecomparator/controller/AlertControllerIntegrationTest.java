@@ -1,7 +1,9 @@
 package com.example.pricecomparator.controller;
 
+import com.example.pricecomparator.dto.AlertNotificationDTO;
 import com.example.pricecomparator.models.PriceAlert;
 import com.example.pricecomparator.models.Product;
+import com.example.pricecomparator.service.AlertFeed;
 import com.example.pricecomparator.service.AlertService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,7 @@ import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import java.time.Duration;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,6 +26,9 @@ public class AlertControllerIntegrationTest {
     @Autowired
     private AlertService alertService; // use the real alert service (no mock)
 
+    @Autowired
+    private AlertFeed alertFeed;
+
     // create a WebTestClient for real HTTP communication with app
     private WebTestClient getClient() {
         return WebTestClient.bindToServer()
@@ -60,4 +66,41 @@ public class AlertControllerIntegrationTest {
                 assertThat(result.get(0)).contains("Test Product"); // should mention the product
             });
     }
+
+    // Test alerts put on the feed are returned by the long-poll endpoint and pushed on the SSE stream
+    @Test
+    void testTriggeredAlertsAreDeliveredByPollAndStream() {
+        long after = alertFeed.getLastSequence();
+        alertFeed.publish(List.of(
+            new AlertNotificationDTO(0, 1, "P001", "lapte zuzu", "lidl", 8.91, 9.0, "first"),
+            new AlertNotificationDTO(0, 1, "P002", "iaurt grecesc", "lidl", 10.0, 10.5, "second")));
+
+        getClient().get()
+            .uri("/alerts/notifications?after=" + after + "&waitMs=1000")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].sequence").isEqualTo(after + 1)
+                .jsonPath("$[1].productId").isEqualTo("P002");
+
+        List<String> events = getClient().get()
+            .uri("/alerts/stream?after=" + after)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseBody()
+            .take(2)
+            .collectList()
+            .block(Duration.ofSeconds(10));
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).contains("\"message\":\"first\"");
+        assertThat(events.get(1)).contains("\"message\":\"second\"");
+
+        getClient().get()
+            .uri("/alerts/notifications?limit=-1")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
 }
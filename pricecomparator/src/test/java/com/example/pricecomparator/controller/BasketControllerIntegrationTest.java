@@ -1,5 +1,6 @@
 package com.example.pricecomparator.controller;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.springframework.http.MediaType;
@@ -8,6 +9,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.pricecomparator.dto.BasketBatchRequestDTO;
 import com.example.pricecomparator.dto.BasketRequestItemDTO;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -93,5 +97,87 @@ public class BasketControllerIntegrationTest {
                 .jsonPath("$.recommendation").value(msg -> ((String) msg).contains("No products"));
     }
 
+    // Test a batch of baskets is answered with one NDJSON line per basket, in request order, invalid ones included
+    @Test
+    void testOptimiseBasketBatch_streamsOneLinePerBasket() {
+        webClient = WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port)
+            .build();
+
+        List<BasketBatchRequestDTO> baskets = List.of(
+            new BasketBatchRequestDTO("first", List.of(new BasketRequestItemDTO("P001", 2), new BasketRequestItemDTO("P003", 1))),
+            new BasketBatchRequestDTO("unknown", List.of(new BasketRequestItemDTO("UNKNOWN_ID", 1))),
+            new BasketBatchRequestDTO("invalid", List.of(new BasketRequestItemDTO("P001", -1))),
+            new BasketBatchRequestDTO("null item", Arrays.asList((BasketRequestItemDTO) null)),
+            new BasketBatchRequestDTO("last", List.of(new BasketRequestItemDTO("P003", 1))));
+
+        String body = webClient.post()
+            .uri("/basket/optimise/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(baskets)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult().getResponseBody();
+
+        String[] lines = body.trim().split("\n");
+        assertThat(lines).hasSize(5);
+        assertThat(lines[0]).contains("\"basketId\":\"first\"").contains("\"error\":null");
+        assertThat(lines[1]).contains("\"basketId\":\"unknown\"").contains("\"baskets\":[]");
+        assertThat(lines[2]).contains("\"basketId\":\"invalid\"").contains("Quantity must be positive");
+        // a null item is an error line too; the stream goes on to the next basket
+        assertThat(lines[3]).contains("\"basketId\":\"null item\"").contains("Basket item must not be null");
+        assertThat(lines[4]).contains("\"basketId\":\"last\"").contains("\"error\":null");
+    }
+
+    // Test the constrained mode: ?maxStores=1 keeps the basket in one store and reports the plan costs,
+    // and an invalid limit or a quantity overflow is rejected
+    @Test
+    void testOptimiseBasket_withMaxStores() {
+        webClient = WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port)
+            .build();
+
+        List<BasketRequestItemDTO> basket = List.of(
+            new BasketRequestItemDTO("P001", 2),
+            new BasketRequestItemDTO("P003", 1)
+        );
 
+        webClient.post()
+            .uri("/basket/optimise?maxStores=1&storeCost=2.5")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(basket)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+                .jsonPath("$.baskets.length()").isEqualTo(1)
+                .jsonPath("$.storesCost").isEqualTo(2.5)
+                .jsonPath("$.totalCost").exists()
+                .jsonPath("$.recommendation").exists();
+
+        webClient.post()
+            .uri("/basket/optimise?maxStores=0")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(basket)
+            .exchange()
+            .expectStatus().isBadRequest();
+        // quantities of a repeated product that add up beyond an int
+        List<BasketRequestItemDTO> huge = List.of(
+            new BasketRequestItemDTO("P001", Integer.MAX_VALUE), new BasketRequestItemDTO("P001", 1));
+        webClient.post()
+            .uri("/basket/optimise")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(huge)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody()
+                .jsonPath("$.error").isEqualTo("Total quantity of a product is too large");
+        webClient.post()
+            .uri("/basket/optimise?maxStores=1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(huge)
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
 }
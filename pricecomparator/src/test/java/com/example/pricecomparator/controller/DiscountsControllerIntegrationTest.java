@@ -39,6 +39,49 @@ public class DiscountsControllerIntegrationTest {
                 .jsonPath("$[1].percentageOfDiscount").exists();
     }
 
+    // Test GET /discounts/{store}/{date}?limit= returns the highest discounts of the file, and rejects a negative limit
+    @Test
+    void testGetStoreDiscounts_limit() {
+        webClient = WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port)
+            .build();
+
+        webClient.get()
+            .uri("/discounts/lidl/2025-05-01?limit=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+                .jsonPath("$.length()").isEqualTo(2);
+
+        webClient.get()
+            .uri("/discounts/lidl/2025-05-01?limit=-1")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    // Test GET /discounts/best-global?asOf= returns the discounts active on a past day, and rejects a bad date
+    @Test
+    void testGetGlobalBestDiscounts_asOfPastDay() {
+        webClient = WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port)
+            .build();
+
+        webClient.get()
+            .uri("/discounts/best-global?asOf=2025-05-03&limit=3")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].percentageOfDiscount").exists();
+
+        webClient.get()
+            .uri("/discounts/best-global?asOf=03-05-2025")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
     @Test
     void testGetNewDiscounts_returnsRecentDiscountsSortedOrEmpty() {
         // create client
@@ -56,6 +99,35 @@ public class DiscountsControllerIntegrationTest {
             });
     }
 
+    @Test
+    void testStreamPriceHistory_writesNdjsonPagesWithCursors() {
+        webClient = WebTestClient.bindToServer()
+            .baseUrl("http://localhost:" + port)
+            .build();
+
+        // first page: two lines, each with the cursor to continue from
+        String body = webClient.get()
+            .uri("/discounts/price-history/stream?productId=P001&limit=2")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult().getResponseBody();
+        String[] lines = body.trim().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).contains("\"cursor\"").contains("\"basePrice\"");
+
+        // a cursor from another catalog version is gone, a malformed one is rejected
+        webClient.get()
+            .uri("/discounts/price-history/stream?cursor=999999:0")
+            .exchange()
+            .expectStatus().isEqualTo(410);
+        webClient.get()
+            .uri("/discounts/price-history/stream?cursor=abc")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
     // this test fails if we have new discounts csv files in resources folder
 
     // @Test
@@ -108,4 +108,37 @@ public class ProductsControllerIntegrationTest {
                     }
                 });
     }
+
+    // Test GET /products/{store}/{date} sends an ETag and answers a request repeating it with 304 Not Modified
+    @Test
+    void testGetProducts_conditionalRequestReturnsNotModified() {
+        webClient = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port)
+                .build();
+
+        String etag = webClient.get()
+                .uri("/products/lidl/2025-05-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody()
+                .jsonPath("$[0].productId").isEqualTo("P001")
+                .returnResult()
+                .getResponseHeaders().getETag();
+
+        webClient.get()
+                .uri("/products/lidl/2025-05-01")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", etag)
+                .expectBody().isEmpty();
+
+        // another request key has its own ETag
+        webClient.get()
+                .uri("/products/kaufland/2025-05-01")
+                .header("If-None-Match", etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
 }
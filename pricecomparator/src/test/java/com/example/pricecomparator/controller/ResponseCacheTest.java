@@ -0,0 +1,105 @@
+package com.example.pricecomparator.controller;
+
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.service.CatalogService;
+import com.example.pricecomparator.service.CsvService;
+import com.example.pricecomparator.service.FileService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CatalogService catalogService = new CatalogService(fileService, new CsvService(fileService), new CatalogProperties(), new SimpleMeterRegistry());
+    private final AtomicInteger calls = new AtomicInteger();
+
+    // Test the handler runs once per catalog version, and an ETag from the old version no longer matches
+    @Test
+    void testServesBytesUntilCatalogChanges() {
+        ResponseCache cache = cache(1 << 20);
+
+        ResponseEntity<?> first = cache.serve("/a", null, () -> handler(List.of("x", "y")));
+        ResponseEntity<?> second = cache.serve("/a", null, () -> handler(List.of("x", "y")));
+        assertEquals(1, calls.get());
+        assertArrayEquals("[\"x\",\"y\"]".getBytes(), (byte[]) first.getBody());
+        assertSame(first.getBody(), second.getBody());
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        ResponseEntity<?> notModified = cache.serve("/a", "\"other\", " + etag, () -> handler(List.of()));
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+
+        catalogService.applyFile("lidl_2025-05-01.csv");
+        ResponseEntity<?> afterIngest = cache.serve("/a", etag, () -> handler(List.of("x", "y")));
+        assertEquals(2, calls.get());
+        assertEquals(HttpStatus.OK, afterIngest.getStatusCode());
+        assertNotEquals(etag, afterIngest.getHeaders().getETag());
+    }
+
+    // Test error responses are passed through and not cached, and empty 204 responses are
+    @Test
+    void testOnlySuccessfulResponsesAreCached() {
+        ResponseCache cache = cache(1 << 20);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(HttpStatus.BAD_REQUEST, cache.serve("/bad", null, () -> {
+                calls.incrementAndGet();
+                return ResponseEntity.badRequest().body("Error: bad");
+            }).getStatusCode());
+        }
+        assertEquals(2, calls.get());
+
+        for (int i = 0; i < 2; i++) {
+            ResponseEntity<?> empty = cache.serve("/empty", null, () -> {
+                calls.incrementAndGet();
+                return ResponseEntity.noContent().build();
+            });
+            assertEquals(HttpStatus.NO_CONTENT, empty.getStatusCode());
+            assertNull(empty.getBody());
+        }
+        assertEquals(3, calls.get());
+    }
+
+    // Test the least recently used responses are dropped to stay within the memory budget
+    @Test
+    void testEvictsLeastRecentlyUsedBeyondBudget() {
+        ResponseCache cache = cache(1_000);
+        String large = "z".repeat(300);
+
+        cache.serve("/1", null, () -> handler(large));
+        cache.serve("/2", null, () -> handler(large));
+        cache.serve("/1", null, () -> handler(large)); // /1 is now the most recently used
+        cache.serve("/3", null, () -> handler(large));
+        assertEquals(3, calls.get());
+        assertTrue(cache.getBytes() <= 1_000);
+
+        cache.serve("/1", null, () -> handler(large));
+        assertEquals(3, calls.get());
+        cache.serve("/2", null, () -> handler(large));
+        assertEquals(4, calls.get());
+
+        cache.serve("/huge", null, () -> handler("z".repeat(2_000))); // larger than the budget: never kept
+        cache.serve("/huge", null, () -> handler("z".repeat(2_000)));
+        assertEquals(6, calls.get());
+    }
+
+    private ResponseCache cache(long maxBytes) {
+        CatalogProperties properties = new CatalogProperties();
+        properties.setResponseCacheBytes(maxBytes);
+        return new ResponseCache(catalogService, new ObjectMapper(), properties, new SimpleMeterRegistry());
+    }
+
+    private ResponseEntity<?> handler(Object body) {
+        calls.incrementAndGet();
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.pricecomparator.service;
+
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AlertFeedTest {
+
+    private final AlertFeed feed = new AlertFeed(properties(5));
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    // Test readers resume after the last sequence they saw, and the oldest entries are dropped once the feed is full
+    @Test
+    void testAfterReturnsNewerEntriesAndDropsOldest() {
+        feed.publish(notifications(3));
+        assertEquals(List.of(2L, 3L), sequences(feed.after(1, 10)));
+        assertEquals(List.of(1L), sequences(feed.after(0, 1)));
+
+        feed.publish(notifications(4)); // 7 published, capacity 5
+        assertEquals(7, feed.getLastSequence());
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L), sequences(feed.after(0, 10)));
+        assertTrue(feed.after(7, 10).isEmpty());
+    }
+
+    // Test a long-poll returns as soon as something is published, and returns empty after the timeout
+    @Test
+    void testAwaitWaitsForNextEntry() throws Exception {
+        long start = System.nanoTime();
+        assertTrue(feed.await(0, 10, 50).isEmpty());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+
+        Thread publisher = new Thread(() -> {
+            sleep(100);
+            feed.publish(notifications(1));
+        });
+        publisher.start();
+        assertEquals(List.of(1L), sequences(feed.await(0, 10, 10_000)));
+        publisher.join();
+    }
+
+    // Test a subscriber gets the backlog and later entries in order, and a failing subscriber is dropped
+    @Test
+    void testSubscribersReceiveBacklogThenNewEntries() throws Exception {
+        feed.publish(notifications(2));
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        // the failing subscriber goes first, so it is dropped before the other one can see every entry
+        feed.subscribe(0, batch -> {
+            throw new IllegalStateException("client went away");
+        });
+        feed.subscribe(1, batch -> batch.forEach(n -> received.add(n.getSequence())));
+
+        feed.publish(notifications(2));
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sequences.add(received.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(2L, 3L, 4L), sequences);
+        assertEquals(1, feed.getSubscriberCount());
+    }
+
+    // Test stopping the feed closes every subscriber, and a subscriber added afterwards is closed at once
+    @Test
+    void testStopClosesSubscribers() {
+        List<String> closed = new ArrayList<>();
+        feed.start();
+        feed.subscribe(0, closingSink("first", closed));
+        feed.subscribe(0, closingSink("second", closed));
+
+        feed.stop();
+        assertFalse(feed.isRunning());
+        assertEquals(0, feed.getSubscriberCount());
+        assertEquals(List.of("first", "second"), closed.stream().sorted().toList());
+
+        feed.subscribe(0, closingSink("late", closed));
+        assertEquals(0, feed.getSubscriberCount());
+        assertTrue(closed.contains("late"));
+    }
+
+    // Test subscribers get heartbeats while nothing is published, and one whose heartbeat fails is dropped
+    @Test
+    void testHeartbeatDropsDeadSubscribers() throws Exception {
+        AlertProperties properties = properties(5);
+        properties.setHeartbeatMs(20);
+        AlertFeed beating = new AlertFeed(properties);
+        try {
+            BlockingQueue<String> heartbeats = new LinkedBlockingQueue<>();
+            beating.subscribe(0, new AlertFeed.Sink() {
+                @Override
+                public void accept(List<AlertNotificationDTO> batch) {
+                }
+
+                @Override
+                public void heartbeat() {
+                    heartbeats.add("alive");
+                }
+            });
+            beating.subscribe(0, new AlertFeed.Sink() {
+                @Override
+                public void accept(List<AlertNotificationDTO> batch) {
+                }
+
+                @Override
+                public void heartbeat() {
+                    throw new IllegalStateException("client went away");
+                }
+            });
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("alive", heartbeats.poll(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, beating.getSubscriberCount());
+        } finally {
+            beating.close();
+        }
+    }
+
+    private static AlertFeed.Sink closingSink(String name, List<String> closed) {
+        return new AlertFeed.Sink() {
+            @Override
+            public void accept(List<AlertNotificationDTO> batch) {
+            }
+
+            @Override
+            public void close() {
+                synchronized (closed) {
+                    closed.add(name);
+                }
+            }
+        };
+    }
+
+    private static AlertProperties properties(int capacity) {
+        AlertProperties properties = new AlertProperties();
+        properties.setFeedCapacity(capacity);
+        return properties;
+    }
+
+    private static List<AlertNotificationDTO> notifications(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new AlertNotificationDTO(0, 1, "P00" + i, "product", "lidl", 1.0, 2.0, "message"))
+            .toList();
+    }
+
+    private static List<Long> sequences(List<AlertNotificationDTO> notifications) {
+        return notifications.stream().map(AlertNotificationDTO::getSequence).toList();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
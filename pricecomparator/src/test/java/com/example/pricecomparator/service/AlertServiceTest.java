@@ -1,17 +1,30 @@
 package com.example.pricecomparator.service;
 
+import com.example.pricecomparator.catalog.CatalogUpdatedEvent;
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.dto.AlertNotificationDTO;
 import com.example.pricecomparator.models.PriceAlert;
 import com.example.pricecomparator.models.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AlertServiceTest {
 
-    private final AlertService alertService = new AlertService();
+    private final AlertService alertService = new AlertService(new AlertStore(new AlertProperties()));
 
     @Test
     void testAlertTriggeredWhenPriceDropsBelowTarget() {
@@ -83,4 +96,164 @@ public class AlertServiceTest {
         List<String> triggered2 = alertService.checkAlertsAgainstProducts(List.of(product));
         assertEquals(1, triggered2.size());
     }
+
+    @Test
+    void testIndexedCheckMatchesScanOverAllAlerts() {
+        Random random = new Random(3);
+        String[] stores = {"Lidl", "kaufland", "PROFI", null};
+        List<PriceAlert> registered = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            PriceAlert alert = new PriceAlert("p" + random.nextInt(50), random.nextInt(100) / 10.0, stores[random.nextInt(stores.length)]);
+            registered.add(alert);
+            alertService.registerPriceAlert(alert);
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String store = stores[random.nextInt(stores.length - 1)];
+            products.add(new Product("P" + random.nextInt(60), "product " + i, "c", "b", 1, "kg", random.nextInt(100) / 10.0, "RON",
+                random.nextBoolean() ? store.toUpperCase() : store));
+        }
+
+        // the previous nested loop over alerts x products, compared as unordered message lists
+        List<String> expected = new ArrayList<>();
+        for (PriceAlert alert : registered) {
+            for (Product p : products) {
+                if (p.getProductId().equalsIgnoreCase(alert.getProductId())
+                        && (alert.getStore() == null || p.getStore().equalsIgnoreCase(alert.getStore()))
+                        && p.getPrice() <= alert.getTargetPrice()) {
+                    expected.add(String.format(" Product '%s' is now %.2f RON in '%s' (target was %.2f RON)",
+                            p.getProductName(), p.getPrice(), p.getStore(), alert.getTargetPrice()));
+                }
+            }
+        }
+        List<String> triggered = alertService.checkAlertsAgainstProducts(products);
+
+        assertEquals(expected.stream().sorted().toList(), triggered.stream().sorted().toList());
+    }
+
+    @Test
+    void testPriceChangeOnlyFiresNewlyCrossedTargets() {
+        alertService.registerPriceAlert(new PriceAlert("P001", 8.0, null));
+        alertService.registerPriceAlert(new PriceAlert("P001", 6.0, "Lidl"));
+        alertService.registerPriceAlert(new PriceAlert("P001", 4.0, null));
+
+        Product product = new Product("P001", "lapte", "lactate", "Zuzu", 1, "l", 5.0, "RON", "lidl");
+
+        // 9.0 -> 5.0 crosses 8.0 and 6.0 (lidl), but not 4.0
+        List<String> triggered = alertService.checkPriceChange(product, 9.0);
+        assertEquals(2, triggered.size());
+        assertTrue(triggered.get(0).contains("target was 8.00"));
+        assertTrue(triggered.get(1).contains("target was 6.00"));
+
+        // 7.0 -> 5.0 only crosses 6.0; a price increase fires nothing
+        assertEquals(1, alertService.checkPriceChange(product, 7.0).size());
+        assertTrue(alertService.checkPriceChange(product, 4.0).isEmpty());
+    }
+
+    @Test
+    void testConcurrentRegistrationAndChecking() throws Exception {
+        int writers = 4;
+        int readers = 4;
+        int alertsPerWriter = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        // writers register alerts for 100 products, all with target 10.0 so a price of 1.0 fires every one
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < alertsPerWriter; i++) {
+                    alertService.registerPriceAlert(new PriceAlert("P" + (i % 100), 10.0, i % 2 == 0 ? null : "lidl"));
+                }
+                return writer;
+            }));
+        }
+        // readers check and list alerts at the same time; the number of fired alerts can only grow
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(new Product("P" + i, "product " + i, "c", "b", 1, "kg", 1.0, "RON", "lidl"));
+        }
+        for (int r = 0; r < readers; r++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                int seen = 0;
+                while (seen < writers * alertsPerWriter) {
+                    int fired = alertService.checkAlertsAgainstProducts(products).size();
+                    assertTrue(fired >= seen, "fired alerts went from " + seen + " to " + fired);
+                    seen = fired;
+                    assertTrue(alertService.getAllAlerts().size() <= writers * alertsPerWriter);
+                }
+                return seen;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS); // rethrows any failure or exception from the task
+        }
+        pool.shutdown();
+
+        assertEquals(writers * alertsPerWriter, alertService.getAllAlerts().size());
+        assertEquals(writers * alertsPerWriter, alertService.checkAlertsAgainstProducts(products).size());
+    }
+
+    // Test the check over the whole catalog uses each store's cheapest price after the day's discount,
+    // once per product and store, like the catalog update evaluation
+    @Test
+    void testCatalogCheckUsesEffectivePrices() {
+        FileService fileService = new FileService(new CatalogProperties());
+        CatalogService catalogService = new CatalogService(fileService, new CsvService(fileService), new CatalogProperties(), new SimpleMeterRegistry());
+        long day = LocalDate.parse("2025-05-03").toEpochDay(); // profi P001 -8% from 2025-05-01 to 2025-05-07
+
+        // profi lists P001 at 12.90 and 13.00; the cheapest after the discount is 12.90 - 8% = 11.868
+        alertService.registerPriceAlert(new PriceAlert("P001", 11.9, "profi"));
+        alertService.registerPriceAlert(new PriceAlert("P001", 11.8, "profi"));
+
+        List<String> triggered = alertService.checkCatalog(catalogService.getSnapshot(), day);
+        assertEquals(1, triggered.size());
+        assertTrue(triggered.get(0).contains("11.87"));
+        assertTrue(triggered.get(0).contains("11.90"));
+
+        // without the discount neither target is reached
+        assertTrue(alertService.checkCatalog(catalogService.getSnapshot(), LocalDate.parse("2025-05-20").toEpochDay()).isEmpty());
+    }
+
+    @Test
+    void testCatalogUpdateFiresAlertsForNewlyLowerEffectivePrices() {
+        FileService fileService = new FileService(new CatalogProperties());
+        CatalogService catalogService = new CatalogService(fileService, new CsvService(fileService), new CatalogProperties(), new SimpleMeterRegistry());
+        List<CatalogUpdatedEvent> events = new ArrayList<>();
+        catalogService.setApplicationEventPublisher(event -> events.add((CatalogUpdatedEvent) event));
+        long day = LocalDate.parse("2025-05-03").toEpochDay(); // profi P001 -8% from 2025-05-01 to 2025-05-07
+
+        alertService.registerPriceAlert(new PriceAlert("P001", 1000.0, null));
+        alertService.registerPriceAlert(new PriceAlert("P001", 12.0, "profi"));
+        alertService.registerPriceAlert(new PriceAlert("P001", 11.0, "profi"));
+        alertService.registerPriceAlert(new PriceAlert("p001", 11.9, "PROFI"));
+        alertService.registerPriceAlert(new PriceAlert("P001", 1000.0, "lidl"));
+
+        // removing profi's product files only raises prices: nothing fires
+        catalogService.removeFile("profi_2025-05-01.csv");
+        catalogService.removeFile("profi_2025-05-08.csv");
+        assertEquals(2, events.size());
+        assertTrue(alertService.checkCatalogUpdate(events.get(0), day).isEmpty());
+        assertTrue(alertService.checkCatalogUpdate(events.get(1), day).isEmpty());
+
+        // profi sells P001 again at 13.00 - 8% = 11.96: the any-store alert and the profi alert at 12.0 fire
+        catalogService.applyFile("profi_2025-05-08.csv");
+        List<AlertNotificationDTO> added = alertService.checkCatalogUpdate(events.get(2), day);
+        assertEquals(List.of(1000.0, 12.0), added.stream().map(AlertNotificationDTO::getTargetPrice).toList());
+        assertEquals(13.00 * 0.92, added.get(1).getPrice(), 1e-9);
+        assertEquals("profi", added.get(1).getStore().toLowerCase());
+        assertEquals(events.get(2).getCurrent().getVersion(), added.get(1).getCatalogVersion());
+
+        // the 2025-05-01 file brings profi down to 12.90 - 8% = 11.868: only the target crossed now fires
+        catalogService.applyFile("profi_2025-05-01.csv");
+        List<AlertNotificationDTO> cheaper = alertService.checkCatalogUpdate(events.get(3), day);
+        assertEquals(1, cheaper.size());
+        assertEquals(11.9, cheaper.get(0).getTargetPrice());
+        assertTrue(cheaper.get(0).getMessage().contains("11.87"));
+    }
 }
@@ -0,0 +1,176 @@
+package com.example.pricecomparator.service;
+
+import com.example.pricecomparator.config.AlertProperties;
+import com.example.pricecomparator.models.PriceAlert;
+import com.example.pricecomparator.models.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AlertStoreTest {
+
+    @TempDir
+    Path directory;
+
+    // Test alerts appended from many threads are all there after a restart
+    @Test
+    void testConcurrentAppendsSurviveRestart() throws Exception {
+        AlertStore store = open();
+        assertTrue(store.recover().isEmpty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    store.append(new PriceAlert("P" + thread, i, i % 2 == 0 ? "lidl" : null));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        store.close();
+
+        List<PriceAlert> recovered = reopen();
+        assertEquals(400, recovered.size());
+        assertEquals(400, new HashSet<>(recovered).size());
+        assertTrue(recovered.contains(new PriceAlert("P7", 48, "lidl")));
+        assertTrue(recovered.contains(new PriceAlert("P3", 1, null)));
+    }
+
+    // Test compaction moves the log into the snapshot and recovery keeps registration order across both
+    @Test
+    void testCompactionKeepsOrder() throws Exception {
+        AlertStore store = open();
+        store.recover();
+        List<PriceAlert> expected = alerts(0, 10);
+        store.appendAll(expected);
+        store.compact();
+        List<PriceAlert> more = alerts(10, 15);
+        more.forEach(store::append);
+        expected.addAll(more);
+        store.close();
+
+        assertTrue(Files.exists(directory.resolve("alerts.snapshot")));
+        assertFalse(Files.exists(directory.resolve("alerts-0.log")));
+        assertEquals(expected, reopen());
+    }
+
+    // Test a record torn by a crash at the end of the log is dropped and the alerts before it are kept
+    @Test
+    void testTornTailIsIgnored() throws Exception {
+        AlertStore store = open();
+        store.recover();
+        store.appendAll(alerts(0, 3));
+        store.close();
+
+        Files.write(directory.resolve("alerts-0.log"), new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        AlertStore reopened = open();
+        assertEquals(alerts(0, 3), reopened.recover());
+        reopened.append(new PriceAlert("P99", 1.5, null)); // goes to a new log, after the torn one
+        reopened.close();
+
+        List<PriceAlert> expected = alerts(0, 3);
+        expected.add(new PriceAlert("P99", 1.5, null));
+        assertEquals(expected, reopen());
+    }
+
+    // Test logs already merged into the snapshot (compaction stopped before deleting them) are not read twice
+    @Test
+    void testLogsCoveredBySnapshotAreNotReplayed() throws Exception {
+        AlertStore store = open();
+        store.recover();
+        store.appendAll(alerts(0, 4));
+        byte[] log = Files.readAllBytes(directory.resolve("alerts-0.log"));
+        store.compact();
+        store.close();
+        Files.write(directory.resolve("alerts-0.log"), log); // as if the process died right after the rename
+
+        assertEquals(alerts(0, 4), reopen());
+        assertFalse(Files.exists(directory.resolve("alerts-0.log")));
+    }
+
+    // Test appends racing with close() are either stored or rejected, never left waiting
+    @Test
+    void testAppendsRacingWithCloseDoNotHang() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AlertStore store = open();
+            int before = store.recover().size();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        store.append(new PriceAlert("P1", 1.0, null));
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false; // closed first
+                    }
+                }));
+            }
+            store.close();
+            int stored = 0;
+            for (Future<Boolean> future : futures) {
+                stored += future.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            executor.shutdown();
+            assertEquals(before + stored, reopen().size());
+        }
+    }
+
+    // Test the service reloads stored alerts into its index on startup
+    @Test
+    void testAlertServiceRecoversStoredAlerts() {
+        AlertStore store = open();
+        AlertService service = new AlertService(store);
+        service.registerPriceAlert(new PriceAlert("P001", 5.0, null));
+        store.close();
+
+        AlertStore reopened = open();
+        AlertService restarted = new AlertService(reopened);
+        assertEquals(1, restarted.getAllAlerts().size());
+        assertEquals(1, restarted.checkPriceChange(
+            new Product("P001", "lapte", "lactate", "Zuzu", 1, "l", 4.5, "RON", "lidl"),
+            6.0).size());
+        reopened.close();
+    }
+
+    private AlertStore open() {
+        AlertProperties properties = new AlertProperties();
+        properties.setStoreDir(directory.toString());
+        return new AlertStore(properties);
+    }
+
+    private List<PriceAlert> reopen() {
+        AlertStore store = open();
+        try {
+            return store.recover();
+        } finally {
+            store.close();
+        }
+    }
+
+    private static List<PriceAlert> alerts(int from, int to) {
+        List<PriceAlert> alerts = new ArrayList<>();
+        IntStream.range(from, to).forEach(i -> alerts.add(new PriceAlert("P" + i, i + 0.5, i % 3 == 0 ? "profi" : null)));
+        return alerts;
+    }
+}
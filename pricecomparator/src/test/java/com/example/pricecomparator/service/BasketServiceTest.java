@@ -1,25 +1,33 @@
 package com.example.pricecomparator.service;
 
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.CheapestOfferTable;
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.dto.BasketBatchRequestDTO;
+import com.example.pricecomparator.dto.BasketBatchResultDTO;
+import com.example.pricecomparator.dto.BasketPlanDTO;
 import com.example.pricecomparator.dto.BasketRequestItemDTO;
 import com.example.pricecomparator.dto.BasketResponseDTO;
 import com.example.pricecomparator.models.Product;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mockito;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
 
 public class BasketServiceTest {
 
-    private final FileService fileService = new FileService();
-    private final DiscountService discountService = Mockito.mock(DiscountService.class); 
-    private final ProductService productService = new ProductService(fileService, discountService);
-    private final BasketService basketService = new BasketService(productService, discountService);
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CatalogService catalogService = new CatalogService(fileService, new CsvService(fileService), new CatalogProperties(), new SimpleMeterRegistry());
+    private final BasketService basketService = new BasketService(catalogService, new SimpleMeterRegistry());
 
     // Test a valid basket with products from two different stores.
     // Ensures the system returns a non-empty basket and calculates the  total price
@@ -29,13 +37,6 @@ public class BasketServiceTest {
         BasketRequestItemDTO item1 = new BasketRequestItemDTO("P001", 2);
         BasketRequestItemDTO item2 = new BasketRequestItemDTO("P003", 1);
         List<BasketRequestItemDTO> basketItems = List.of(item1, item2);
-        
-        // the DiscountService is mocked to isolate the BasketService logic
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // presupunem că nu are reducere
-        });
 
         // act: call the basket optimisation service
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(basketItems);
@@ -59,13 +60,6 @@ public class BasketServiceTest {
         // arrange: create a basket request with 5 units of product P001
         BasketRequestItemDTO item = new BasketRequestItemDTO("P001", 5);
         List<BasketRequestItemDTO> items = List.of(item);
-        
-        // mock discount service to return base price (no discounts applied)
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // presupunem că nu are reducere
-        });
 
         // act: call the basket optimisation method
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(items);
@@ -87,13 +81,6 @@ public class BasketServiceTest {
         BasketRequestItemDTO item = new BasketRequestItemDTO("UNKNOWN_ID", 1);
         List<BasketRequestItemDTO> basketItems = List.of(item);
 
-        // the DiscountService is mocket to isolate the BasketService logic
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // presupunem că nu are reducere
-        });
-
         // act: call the basket optimisation service
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(basketItems);
 
@@ -115,13 +102,6 @@ public class BasketServiceTest {
         BasketRequestItemDTO item2 = new BasketRequestItemDTO("P003", 1);
         List<BasketRequestItemDTO> items = List.of(item1, item2);
 
-        // the DiscountService is mocket to isolate the BasketService logic
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // presupunem că nu are reducere
-        });
-
         // act: call service to optimise basket
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(items);
 
@@ -143,13 +123,6 @@ public class BasketServiceTest {
         BasketRequestItemDTO item2 = new BasketRequestItemDTO("INVALID_ITEM2", 1);
         List<BasketRequestItemDTO> items = List.of(item1, item2);
 
-        // the DiscountService is mocket to isolate the BasketService logic
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // presupunem că nu are reducere
-        });
-
         // act: call the basket optimisation
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(items);
 
@@ -170,25 +143,36 @@ public class BasketServiceTest {
         BasketRequestItemDTO item2 = new BasketRequestItemDTO("P003", 1);
         List<BasketRequestItemDTO> basketItems = List.of(item1, item2);
 
-        // the DiscountService is mocked to return base price, simulating no discounts
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice();
-        });
-
         // act: call optimiseBasket directly
-        Map<String, List<Product>> result = basketService.optimiseBasket(basketItems);
+        Map<String, List<BasketService.BasketLine>> result = basketService.optimiseBasket(basketItems);
 
         // assert
         assertNotNull(result, "Result map should not be null");
         assertFalse(result.isEmpty(), "Result map should contain grouped products");
 
-        // total number of products in the map should match input quantity
-        int totalProducts = result.values().stream().mapToInt(List::size).sum();
+        // total quantity in the map should match input quantity
+        int totalProducts = result.values().stream().flatMap(List::stream).mapToInt(BasketService.BasketLine::getQuantity).sum();
         assertEquals(2, totalProducts, "Expected 2 products in total from different stores");
     }
-    
+
+    // Test a large quantity is kept as one (product, quantity) line instead of one entry per unit,
+    // and priced as unit price times quantity
+    @Test
+    void testOptimiseBasket_largeQuantityIsOneLine() {
+        List<BasketRequestItemDTO> items = List.of(new BasketRequestItemDTO("P001", 10_000));
+
+        Map<String, List<BasketService.BasketLine>> result = basketService.optimiseBasket(items);
+
+        List<BasketService.BasketLine> lines = result.values().stream().flatMap(List::stream).toList();
+        assertEquals(1, lines.size());
+        assertEquals(10_000, lines.get(0).getQuantity());
+        assertEquals(lines.get(0).getUnitPrice() * 10_000, lines.get(0).getTotalPrice(), 1e-9);
+
+        List<BasketResponseDTO> baskets = basketService.getOptimisedBasket(items);
+        assertEquals(10_000, baskets.get(0).getProducts().get(0).getQuantity());
+        assertEquals(lines.get(0).getTotalPrice(), baskets.get(0).getTotalPrice(), 1e-9);
+    }
+
     // Test a basket with duplicate product IDs.
     // Ensures the total quantity is handled correctly and final price reflects the sum.
     @Test
@@ -198,13 +182,6 @@ public class BasketServiceTest {
         BasketRequestItemDTO item2 = new BasketRequestItemDTO("P001", 3); // Same product ID
         List<BasketRequestItemDTO> items = List.of(item1, item2);
 
-        // mock discount service to return base price
-        when(discountService.getDiscountedPrice(any(Product.class)))
-            .thenAnswer(invocation -> {
-                Product p = invocation.getArgument(0);
-                return p.getPrice(); // no discount
-            });
-
         // act: optimise basket with duplicate IDs
         List<BasketResponseDTO> result = basketService.getOptimisedBasket(items);
 
@@ -217,6 +194,18 @@ public class BasketServiceTest {
         assertTrue(total > 0, "Total price should reflect combined quantity of 4 units");
     }
 
+    // Test repeated lines whose quantities add up beyond an int are rejected instead of wrapping to a negative quantity,
+    // in the cheapest-offer and in the planned basket
+    @Test
+    void testOptimisedBasket_quantityOverflowIsRejected() {
+        List<BasketRequestItemDTO> items = List.of(
+            new BasketRequestItemDTO("P001", Integer.MAX_VALUE),
+            new BasketRequestItemDTO("P001", 1));
+
+        assertThrows(IllegalArgumentException.class, () -> basketService.getOptimisedBasket(items));
+        assertThrows(IllegalArgumentException.class, () -> basketService.getPlannedBasket(items, 1, null));
+    }
+
     // Test basket with invalid product quantities (zero or negative).
     // Ensures an exception is thrown when quantity is not positive.
     @Test
@@ -231,4 +220,100 @@ public class BasketServiceTest {
             basketService.optimiseBasket(items);
         }, "Should throw exception for invalid quantities");
     }
+
+    // Test the cheapest-offer table holds, for every product, the offer with the lowest discounted price
+    // on the given day, the same one a scan over all offers would pick
+    @Test
+    void testCheapestOfferTableMatchesFullScan() {
+        CatalogSnapshot snapshot = catalogService.getSnapshot();
+        DiscountService discountService = new DiscountService(new CsvService(fileService), catalogService);
+        DiscountIndex discounts = snapshot.getDiscountIndex();
+        long day = LocalDate.parse("2025-05-03").toEpochDay();
+        CheapestOfferTable offers = snapshot.getCheapestOffers(day);
+
+        for (Product product : snapshot.getProducts()) {
+            Product expected = snapshot.findByProductId(product.getProductId()).stream()
+                .min(Comparator.comparingDouble(p -> discountService.getDiscountedPrice(p, discounts, day)))
+                .orElseThrow();
+            int slot = offers.find(product.getProductId());
+
+            assertEquals(expected, snapshot.getProductTable().product(offers.row(slot)));
+            assertEquals(discountService.getDiscountedPrice(expected, discounts, day), offers.unitPrice(slot));
+        }
+        // the table is kept for the day and rebuilt for another one
+        assertSame(offers, snapshot.getCheapestOffers(day));
+        assertEquals(day + 1, snapshot.getCheapestOffers(day + 1).getEpochDay());
+        assertEquals(-1, offers.find("UNKNOWN_ID"));
+    }
+
+    // Test a batch returns one result per basket, in request order, equal to optimising each basket on its own;
+    // an invalid basket (bad quantity or a null item) gets an error without failing the others, and the batch is
+    // counted in the metrics
+    @Test
+    void testOptimiseBaskets_batchMatchesSingleBaskets() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BasketService batchService = new BasketService(catalogService, registry);
+        List<BasketBatchRequestDTO> baskets = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            baskets.add(new BasketBatchRequestDTO("b" + i, List.of(
+                new BasketRequestItemDTO("P00" + (1 + i % 9), 1 + i % 3),
+                new BasketRequestItemDTO("P003", 1))));
+        }
+        baskets.set(7, new BasketBatchRequestDTO("bad", List.of(new BasketRequestItemDTO("P001", 0))));
+        baskets.set(8, new BasketBatchRequestDTO("null item", Arrays.asList((BasketRequestItemDTO) null)));
+
+        List<BasketBatchResultDTO> results = new ArrayList<>();
+        batchService.optimiseBaskets(baskets, results::add);
+
+        assertEquals(baskets.size(), results.size());
+        for (int i = 0; i < baskets.size(); i++) {
+            BasketBatchResultDTO result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(baskets.get(i).getBasketId(), result.getBasketId());
+            if (i == 7 || i == 8) {
+                assertNotNull(result.getError());
+                assertTrue(result.getBaskets().isEmpty());
+            } else {
+                assertNull(result.getError());
+                assertEquals(basketService.getOptimisedBasket(baskets.get(i).getItems()), result.getBaskets());
+            }
+        }
+        assertEquals(600, registry.get("basket.batch.baskets").counter().count());
+        assertEquals(1, registry.get("basket.batch.throughput").summary().count());
+    }
+
+    // Test a planned basket without limits costs the same as buying everything where it is cheapest,
+    // and that maxStores and storeCost keep the plan to fewer stores
+    @Test
+    void testGetPlannedBasket_limitsStores() {
+        List<BasketRequestItemDTO> items = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            items.add(new BasketRequestItemDTO("P00" + i, 1 + i % 3));
+        }
+        items.add(new BasketRequestItemDTO("UNKNOWN_ID", 1));
+        double cheapest = basketService.getOptimisedBasket(items).stream().mapToDouble(BasketResponseDTO::getTotalPrice).sum();
+
+        BasketPlanDTO unlimited = basketService.getPlannedBasket(items, null, 0.0);
+        assertEquals(cheapest, unlimited.getTotalCost(), 1e-9);
+        assertEquals(List.of("UNKNOWN_ID"), unlimited.getUnavailableProducts());
+
+        BasketPlanDTO oneStore = basketService.getPlannedBasket(items, 1, null);
+        assertEquals(1, oneStore.getBaskets().size());
+        // products no single store sells are left out; the rest cannot be cheaper than buying each where it is cheapest
+        List<BasketRequestItemDTO> bought = items.stream()
+            .filter(item -> !oneStore.getUnavailableProducts().contains(item.getProductId())).toList();
+        double cheapestBought = basketService.getOptimisedBasket(bought).stream().mapToDouble(BasketResponseDTO::getTotalPrice).sum();
+        assertTrue(oneStore.getTotalCost() >= cheapestBought - 1e-9);
+        double basketTotal = oneStore.getBaskets().get(0).getTotalPrice();
+        assertEquals(oneStore.getItemsCost(), basketTotal, 1e-9);
+
+        // a store cost higher than any saving from splitting still buys every product, in no more stores
+        BasketPlanDTO costly = basketService.getPlannedBasket(items, null, 1000.0);
+        assertEquals(unlimited.getUnavailableProducts(), costly.getUnavailableProducts());
+        assertTrue(costly.getBaskets().size() <= unlimited.getBaskets().size());
+        assertEquals(1000.0 * costly.getBaskets().size(), costly.getStoresCost(), 1e-9);
+
+        assertThrows(IllegalArgumentException.class, () -> basketService.getPlannedBasket(items, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> basketService.getPlannedBasket(items, null, -1.0));
+    }
 }
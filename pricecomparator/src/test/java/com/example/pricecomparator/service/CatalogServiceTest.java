@@ -0,0 +1,355 @@
+package com.example.pricecomparator.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.pricecomparator.catalog.CatalogFile;
+import com.example.pricecomparator.catalog.CatalogSnapshot;
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.catalog.PriceHistoryStore;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.models.Discount;
+import com.example.pricecomparator.models.Product;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogServiceTest {
+
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CatalogService catalogService = new CatalogService(fileService, new CsvService(fileService), new CatalogProperties(), new SimpleMeterRegistry());
+
+    private static final String HEADER = "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n";
+
+    @TempDir
+    Path dataDir;
+
+    // Test that a parallel load produces the same files, in the same order, as a single-threaded one,
+    // and that the cold-start load time is reported
+    @Test
+    void testParallelLoadMatchesSequentialLoad() {
+        CatalogProperties sequential = new CatalogProperties();
+        sequential.getIngest().setThreads(1);
+        CatalogProperties parallel = new CatalogProperties();
+        parallel.getIngest().setThreads(4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        CatalogSnapshot expected = new CatalogService(fileService, new CsvService(fileService), sequential, new SimpleMeterRegistry()).getSnapshot();
+        CatalogSnapshot actual = new CatalogService(fileService, new CsvService(fileService), parallel, registry).getSnapshot();
+
+        assertEquals(List.copyOf(expected.getProductFiles().keySet()), List.copyOf(actual.getProductFiles().keySet()));
+        assertEquals(List.copyOf(expected.getDiscountFiles().keySet()), List.copyOf(actual.getDiscountFiles().keySet()));
+        assertEquals(expected.getProducts(), actual.getProducts());
+        assertEquals(1, registry.get("catalog.load").tag("phase", "startup").timer().count());
+    }
+
+    // Test that the snapshot built at construction contains the products from the CSV directory
+    @Test
+    void testSnapshotIsLoadedAtStartup() {
+        CatalogSnapshot snapshot = catalogService.getSnapshot();
+
+        assertNotNull(snapshot);
+        assertTrue(snapshot.getVersion() > 0);
+        assertFalse(snapshot.getProducts().isEmpty());
+
+        // discount files are not parsed as product files
+        assertTrue(snapshot.getProductFiles().keySet().stream().noneMatch(name -> name.contains("_discounts_")));
+    }
+
+    // Test products are stored as columns and come back as equal Product objects with shared strings
+    @Test
+    void testProductTableRows() {
+        CatalogSnapshot snapshot = catalogService.getSnapshot();
+        ProductTable table = snapshot.getProductTable();
+        int[] rows = snapshot.findRowsByProductId("P001");
+
+        assertTrue(rows.length > 1);
+        Product first = table.product(rows[0]);
+        Product second = table.product(rows[1]);
+        assertEquals(first, table.product(rows[0]));
+        assertEquals(first.getPricePerBaseUnit(), table.pricePerBaseUnit(rows[0]));
+        // every row refers to one dictionary entry instead of its own copy
+        assertSame(first.getProductCategory(), second.getProductCategory());
+        assertSame(first.getCurrency(), second.getCurrency());
+    }
+
+    // Test lookup by productId is case-insensitive and returns offers from every store
+    @Test
+    void testFindByProductId() {
+        List<Product> offers = catalogService.getSnapshot().findByProductId("p001");
+
+        assertFalse(offers.isEmpty());
+        for (Product p : offers) {
+            assertEquals("P001", p.getProductId());
+        }
+        assertTrue(catalogService.getSnapshot().findByProductId("UNKNOWN_ID").isEmpty());
+    }
+
+    // Test refresh swaps in a new snapshot with a higher version and leaves the old one untouched
+    @Test
+    void testRefreshSwapsSnapshot() {
+        CatalogSnapshot before = catalogService.getSnapshot();
+        CatalogSnapshot after = catalogService.refresh();
+
+        assertSame(after, catalogService.getSnapshot());
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(before.getProducts().size(), after.getProducts().size());
+    }
+
+    // Test a single file can be removed and ingested again without rebuilding from the directory
+    @Test
+    void testRemoveAndApplySingleFile() {
+        CatalogSnapshot full = catalogService.getSnapshot();
+        int fileProducts = full.getProductFiles().get("lidl_2025-05-01.csv").size();
+
+        CatalogSnapshot removed = catalogService.removeFile("lidl_2025-05-01.csv");
+        assertEquals(full.getProducts().size() - fileProducts, removed.getProducts().size());
+        assertFalse(removed.containsFile("lidl_2025-05-01.csv"));
+
+        CatalogSnapshot restored = catalogService.applyFile("lidl_2025-05-01.csv");
+        assertEquals(full.getProducts().size(), restored.getProducts().size());
+        assertTrue(restored.getVersion() > removed.getVersion());
+
+        // the earlier snapshot is immutable and unaffected by the deltas
+        assertEquals(fileProducts, full.getProductFiles().get("lidl_2025-05-01.csv").size());
+    }
+
+    // Test a failing update listener is logged and neither fails the ingest nor keeps the old snapshot
+    @Test
+    void testFailingListenerDoesNotFailApplyFile() {
+        catalogService.setApplicationEventPublisher(event -> {
+            throw new IllegalStateException("listener failed");
+        });
+        CatalogSnapshot removed = catalogService.removeFile("lidl_2025-05-01.csv");
+        assertSame(removed, catalogService.getSnapshot());
+
+        CatalogSnapshot restored = catalogService.applyFile("lidl_2025-05-01.csv");
+        assertSame(restored, catalogService.getSnapshot());
+        assertTrue(restored.containsFile("lidl_2025-05-01.csv"));
+    }
+
+    // Test a chain of single-file deltas gives the same discount lookups and price history as a full build
+    @Test
+    void testDeltasMatchFullBuild() {
+        CatalogSnapshot full = catalogService.getSnapshot();
+        List<Discount> kaufland = full.getDiscountFiles().get("kaufland_discounts_2025-05-08.csv");
+
+        CatalogSnapshot delta = full
+            .withoutFile(1, "lidl_discounts_2025-05-01.csv")
+            .withoutFile(2, "lidl_2025-05-08.csv")
+            .withDiscountFile(3, "lidl_discounts_2025-05-01.csv", full.getDiscountFiles().get("lidl_discounts_2025-05-01.csv"))
+            .withProductFile(4, "lidl_2025-05-08.csv", full.getProductFiles().get("lidl_2025-05-08.csv"))
+            .withDiscountFile(5, "kaufland_discounts_2025-05-08.csv", kaufland.subList(0, kaufland.size() / 2));
+        CatalogSnapshot rebuilt = CatalogSnapshot.of(6, full.getDictionary(), delta.getProductFiles(), delta.getDiscountFiles());
+
+        assertEquals(rebuilt.getProducts(), delta.getProducts());
+        ProductTable table = rebuilt.getProductTable();
+        for (int row = 0; row < table.size(); row++) {
+            int category = table.categoryCode(row);
+            assertArrayEquals(rebuilt.findRowsByProductId(table.productId(row)), delta.findRowsByProductId(table.productId(row)));
+            assertArrayEquals(rebuilt.getProductIndex().byPricePerBaseUnit(category), delta.getProductIndex().byPricePerBaseUnit(category));
+            assertArrayEquals(rebuilt.getProductIndex().byValue(category), delta.getProductIndex().byValue(category));
+            assertArrayEquals(rebuilt.getProductIndex().byBrandValue(category, table.brand(row)),
+                delta.getProductIndex().byBrandValue(category, table.brand(row)));
+        }
+        DiscountIndex expected = rebuilt.getDiscountIndex();
+        DiscountIndex actual = delta.getDiscountIndex();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getMaxPercentage(), actual.getMaxPercentage());
+        for (List<Discount> discounts : full.getDiscountFiles().values()) {
+            for (Discount d : discounts) {
+                for (long day = d.getFromDay() - 1; day <= d.getToDay(); day++) {
+                    assertSame(expected.findActive(d.getStore(), d.getProductId(), day),
+                        actual.findActive(d.getStore(), d.getProductId(), day));
+                }
+            }
+        }
+
+        PriceHistoryStore expectedHistory = rebuilt.getPriceHistory();
+        PriceHistoryStore actualHistory = delta.getPriceHistory();
+        assertEquals(expectedHistory.size(), actualHistory.size());
+        assertEquals(expectedHistory.seriesCount(), actualHistory.seriesCount());
+        for (int sequence = 0; sequence < expectedHistory.size(); sequence++) {
+            PriceHistoryStore.Series series = expectedHistory.seriesAt(sequence);
+            int index = expectedHistory.indexAt(sequence);
+            assertEquals(series.getStore(), actualHistory.seriesAt(sequence).getStore());
+            assertEquals(series.day(index), actualHistory.seriesAt(sequence).day(actualHistory.indexAt(sequence)));
+            assertEquals(series.basePrice(index), actualHistory.seriesAt(sequence).basePrice(actualHistory.indexAt(sequence)));
+            assertSame(series.discount(index), actualHistory.seriesAt(sequence).discount(actualHistory.indexAt(sequence)));
+        }
+    }
+
+    // Test synchronize finds nothing to do when the directory did not change
+    @Test
+    void testSynchronizeWithoutChanges() {
+        long version = catalogService.getSnapshot().getVersion();
+
+        assertEquals(0, catalogService.synchronize());
+        assertEquals(version, catalogService.getSnapshot().getVersion());
+    }
+
+    // Test the catalog reads from an external data directory and picks up added and deleted files
+    @Test
+    void testExternalDataDirectory() throws IOException {
+        Files.writeString(dataDir.resolve("lidl_2025-06-01.csv"), HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n");
+        CatalogService external = newExternalCatalog(new CatalogProperties());
+
+        assertEquals(1, external.getSnapshot().getProducts().size());
+
+        // a new file is ingested on its own, the existing one is kept
+        Files.writeString(dataDir.resolve("profi_2025-06-01.csv"), HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON\n");
+        assertEquals(1, external.synchronize());
+        assertEquals(2, external.getSnapshot().findByProductId("P001").size());
+
+        // a deleted file disappears from the catalog
+        Files.delete(dataDir.resolve("lidl_2025-06-01.csv"));
+        assertEquals(1, external.synchronize());
+        assertEquals("profi", external.getSnapshot().getProducts().get(0).getStore());
+    }
+
+    // Test a restart restores unchanged files from the catalog file and parses only the changed ones
+    @Test
+    void testRestartReadsUnchangedFilesFromCatalogFile() throws IOException {
+        Path lidl = dataDir.resolve("lidl_2025-06-01.csv");
+        Path profi = dataDir.resolve("profi_2025-06-01.csv");
+        Files.writeString(lidl, HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n");
+        Files.writeString(profi, HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON\n");
+        CatalogProperties properties = new CatalogProperties();
+        properties.setSnapshotFile(dataDir.resolve("catalog.bin").toString());
+
+        CatalogSnapshot first = newExternalCatalog(properties).getSnapshot();
+        assertTrue(Files.isRegularFile(dataDir.resolve("catalog.bin")));
+
+        // same size and modification time: the stored copy is used, so the new price is not seen
+        FileTime lidlModified = Files.getLastModifiedTime(lidl);
+        Files.writeString(lidl, HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;8.90;RON\n");
+        Files.setLastModifiedTime(lidl, lidlModified);
+        // a real change is parsed again
+        Files.writeString(profi, HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;7.25;RON\n");
+        Files.setLastModifiedTime(profi, FileTime.fromMillis(Files.getLastModifiedTime(profi).toMillis() + 1000));
+
+        CatalogSnapshot second = newExternalCatalog(properties).getSnapshot();
+        assertEquals(first.getProductFiles().get("lidl_2025-06-01.csv").asList(), second.getProductFiles().get("lidl_2025-06-01.csv").asList());
+        assertEquals(9.90, second.getProductFiles().get("lidl_2025-06-01.csv").price(0));
+        assertEquals(7.25, second.getProductFiles().get("profi_2025-06-01.csv").price(0));
+    }
+
+    // Test every product and discount survives the round trip through the catalog file unchanged
+    @Test
+    void testCatalogFileRoundTrip() {
+        CatalogProperties properties = new CatalogProperties();
+        properties.setSnapshotFile(dataDir.resolve("catalog.bin").toString());
+
+        CatalogSnapshot parsed = new CatalogService(fileService, new CsvService(fileService), properties, new SimpleMeterRegistry()).getSnapshot();
+        CatalogSnapshot restored = new CatalogService(fileService, new CsvService(fileService), properties, new SimpleMeterRegistry()).getSnapshot();
+
+        assertEquals(parsed.getProductFiles().keySet(), restored.getProductFiles().keySet());
+        assertEquals(parsed.getProducts(), restored.getProducts());
+        assertEquals(parsed.getDiscountFiles(), restored.getDiscountFiles());
+    }
+
+    // Test null fields come back as null and empty fields as "" after the round trip through the catalog file
+    @Test
+    void testCatalogFileKeepsNullApartFromEmpty() throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        ProductTable products = ProductTable.builder(dictionary)
+            .add("P001", "lapte zuzu", "lactate", null, 1, "l", 9.90, "RON", "lidl")
+            .add("P002", "iaurt", "lactate", "", 0.4, "kg", 5.20, null, "lidl")
+            .build();
+        List<Discount> discounts = List.of(
+            new Discount("P001", null, "", 1, "l", "lactate", 20_000, 20_007, 10, "lidl"));
+        CatalogSnapshot snapshot = CatalogSnapshot.of(1, dictionary,
+            Map.of("lidl_2025-06-01.csv", products), Map.of("lidl_discounts_2025-06-01.csv", discounts));
+        Path file = dataDir.resolve("catalog.bin");
+
+        CatalogFile.write(file, snapshot, Map.of("lidl_2025-06-01.csv", 1L, "lidl_discounts_2025-06-01.csv", 2L));
+        CatalogFile.Contents restored = CatalogFile.read(file, new StringDictionary());
+
+        List<Product> restoredProducts = restored.getProductFiles().get("lidl_2025-06-01.csv").asList();
+        assertEquals(products.asList(), restoredProducts);
+        assertNull(restoredProducts.get(0).getBrand());
+        assertEquals("", restoredProducts.get(1).getBrand());
+        assertNull(restoredProducts.get(1).getCurrency());
+        Discount restoredDiscount = restored.getDiscountFiles().get("lidl_discounts_2025-06-01.csv").get(0);
+        assertEquals(discounts.get(0), restoredDiscount);
+        assertNull(restoredDiscount.getProductName());
+        assertEquals("", restoredDiscount.getBrand());
+    }
+
+    // Test a damaged catalog file is ignored and everything is parsed from the CSV files
+    @Test
+    void testCorruptCatalogFileIsIgnored() throws IOException {
+        Files.writeString(dataDir.resolve("lidl_2025-06-01.csv"), HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n");
+        Files.write(dataDir.resolve("catalog.bin"), new byte[64]);
+        CatalogProperties properties = new CatalogProperties();
+        properties.setSnapshotFile(dataDir.resolve("catalog.bin").toString());
+
+        assertEquals(1, newExternalCatalog(properties).getSnapshot().getProducts().size());
+    }
+
+    // Test the file watcher ingests a file dropped into the data directory without a manual refresh
+    @Test
+    void testWatcherIngestsNewFile() throws Exception {
+        CatalogProperties properties = new CatalogProperties();
+        properties.getWatch().setDebounceMs(50);
+        CatalogService external = newExternalCatalog(properties);
+        CatalogWatcher watcher = new CatalogWatcher(external, new FileService(properties), properties);
+
+        watcher.start();
+        try {
+            assertTrue(watcher.isWatching());
+            Files.writeString(dataDir.resolve("kaufland_2025-06-02.csv"), HEADER + "P002;iaurt;lactate;Danone;0.4;kg;5.20;RON\n");
+
+            // the watcher applies the change on its own thread
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (external.getSnapshot().getProducts().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, external.getSnapshot().findByProductId("P002").size());
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    // Test the strings of replaced files do not pile up in the dictionary of a long-running catalog
+    @Test
+    void testReplacedFileStringsAreCompacted() throws IOException {
+        Files.writeString(dataDir.resolve("lidl_2025-06-01.csv"), HEADER + "P001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON\n");
+        CatalogService external = newExternalCatalog(new CatalogProperties());
+
+        // every version of the file brings 200 new ids and names; 30 versions are far more than the bound
+        for (int version = 0; version < 30; version++) {
+            StringBuilder csv = new StringBuilder(HEADER);
+            for (int row = 0; row < 100; row++) {
+                csv.append("Q").append(version).append('_').append(row).append(";iaurt ").append(version).append('_').append(row)
+                    .append(";lactate;Danone;0.4;kg;5.20;RON\n");
+            }
+            Files.writeString(dataDir.resolve("profi_2025-06-01.csv"), csv.toString());
+            CatalogSnapshot snapshot = external.applyFile("profi_2025-06-01.csv");
+
+            assertTrue(snapshot.getDictionary().size() <= 2 * CatalogService.MIN_LIVE_STRINGS, "dictionary size " + snapshot.getDictionary().size());
+        }
+
+        CatalogSnapshot snapshot = external.getSnapshot();
+        assertEquals(101, snapshot.getProducts().size());
+        assertEquals("lapte zuzu", snapshot.findByProductId("P001").get(0).getProductName());
+        assertEquals("iaurt 29_99", snapshot.findByProductId("Q29_99").get(0).getProductName());
+        assertTrue(snapshot.findByProductId("Q0_0").isEmpty());
+        assertEquals(StringDictionary.NULL_CODE, snapshot.getDictionary().find("Q0_0"));
+    }
+
+    private CatalogService newExternalCatalog(CatalogProperties properties) {
+        properties.setDataDir(dataDir.toString());
+        FileService externalFiles = new FileService(properties);
+        return new CatalogService(externalFiles, new CsvService(externalFiles), properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.pricecomparator.service;
+
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.catalog.StringDictionary;
+import com.example.pricecomparator.config.CatalogProperties;
+import com.example.pricecomparator.dto.CompareDTO;
+import com.example.pricecomparator.dto.CompareMatrixDTO;
+import com.example.pricecomparator.dto.CompareMatrixRowDTO;
+import com.example.pricecomparator.models.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompareServiceTest {
+
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CsvService csvService = new CsvService(fileService);
+    private final CatalogService catalogService = new CatalogService(fileService, csvService, new CatalogProperties(), new SimpleMeterRegistry());
+    private final CompareService compareService = new CompareService(catalogService, new CatalogProperties(), new SimpleMeterRegistry());
+
+    // Test the merge join finds the same products and prices as looking every product up in the other file
+    @Test
+    void testCompareProducts_matchesLookupByProductId() {
+        List<CompareDTO> result = compareService.compareProducts("lidl", "2025-05-01", "kaufland", "2025-05-01");
+
+        Map<String, Double> kaufland = new HashMap<>();
+        csvService.loadProducts("csv/kaufland_2025-05-01.csv").forEach(p -> kaufland.put(p.getProductId(), p.getPrice()));
+        List<String> expected = csvService.loadProducts("csv/lidl_2025-05-01.csv").stream()
+            .filter(p -> kaufland.containsKey(p.getProductId()))
+            .map(p -> p.getProductId() + "=" + p.getPrice() + "/" + kaufland.get(p.getProductId()))
+            .sorted()
+            .collect(Collectors.toList());
+
+        assertFalse(result.isEmpty());
+        assertEquals(expected, result.stream()
+            .map(dto -> dto.getProductId() + "=" + dto.getPriceStore1() + "/" + dto.getPriceStore2())
+            .collect(Collectors.toList()));
+        assertTrue(result.stream().anyMatch(dto -> dto.getProductId().equals("P001") && dto.getCheapestStore().equals("store1")));
+    }
+
+    // Test only the product file of a (store, date) pair is used, never its discount file, and unknown pairs are rejected
+    @Test
+    void testCompareProducts_usesProductFileOnly() {
+        List<CompareDTO> result = compareService.compareProducts("LIDL", "2025-05-01", "lidl", "2025-05-08");
+        assertFalse(result.isEmpty());
+        assertTrue(result.stream().allMatch(dto -> dto.getProductName() != null));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> compareService.compareProducts("lidl", "2025-05-20", "kaufland", "2025-05-01"));
+        assertThrows(IllegalArgumentException.class,
+            () -> compareService.compareProducts("lid", "2025-05-01", "kaufland", "2025-05-01"));
+    }
+
+    // Test repeated comparisons come from the cache until one of the two files is ingested again
+    @Test
+    void testCompareProducts_cachedUntilFileChanges() {
+        List<CompareDTO> first = compareService.compareProducts("lidl", "2025-05-01", "kaufland", "2025-05-01");
+        assertSame(first, compareService.compareProducts("lidl", "2025-05-01", "kaufland", "2025-05-01"));
+
+        catalogService.applyFile("profi_2025-05-01.csv"); // another file: still cached
+        assertSame(first, compareService.compareProducts("lidl", "2025-05-01", "kaufland", "2025-05-01"));
+
+        catalogService.applyFile("kaufland_2025-05-01.csv");
+        List<CompareDTO> second = compareService.compareProducts("lidl", "2025-05-01", "kaufland", "2025-05-01");
+        assertNotSame(first, second);
+        assertEquals(first, second);
+    }
+
+    // Test a productId listed twice is matched case-insensitively and paired with the last row of the second file
+    @Test
+    void testJoin_duplicatesAndCase() {
+        StringDictionary dictionary = new StringDictionary();
+        ProductTable first = ProductTable.builder(dictionary)
+            .add("P2", "b", "c", "x", 1, "buc", 2.0, "RON", "lidl")
+            .add("p1", "a", "c", "x", 1, "buc", 5.0, "RON", "lidl")
+            .add("P2", "b2", "c", "x", 1, "buc", 3.0, "RON", "lidl")
+            .add("P9", "z", "c", "x", 1, "buc", 1.0, "RON", "lidl")
+            .build();
+        ProductTable second = ProductTable.builder(dictionary)
+            .add("P1", "a", "c", "x", 1, "buc", 5.0, "RON", "profi")
+            .add("P2", "b", "c", "x", 1, "buc", 9.0, "RON", "profi")
+            .add("P2", "b", "c", "x", 1, "buc", 2.5, "RON", "profi")
+            .build();
+
+        List<CompareDTO> result = CompareService.join(first, second);
+
+        assertEquals(3, result.size());
+        assertEquals(new CompareDTO("p1", "a", 5.0, 5.0, "equal"), result.get(0));
+        assertEquals(new CompareDTO("P2", "b", 2.0, 2.5, "store1"), result.get(1));
+        assertEquals(new CompareDTO("P2", "b2", 3.0, 2.5, "store2"), result.get(2));
+    }
+
+    // Test the matrix lists every product of the date's product files once, with its price per store and summary
+    @Test
+    void testCompareStores_allStoresOnDate() {
+        CompareMatrixDTO matrix = compareService.compareStores("2025-05-01", null);
+
+        assertEquals(List.of("kaufland", "lidl", "profi"), matrix.getStores().stream().sorted().collect(Collectors.toList()));
+        Map<String, Map<String, Double>> expected = new HashMap<>();
+        for (String store : matrix.getStores()) {
+            for (Product p : csvService.loadProducts("csv/" + store + "_2025-05-01.csv")) {
+                expected.computeIfAbsent(p.getProductId().toLowerCase(), id -> new HashMap<>()).merge(store, p.getPrice(), Math::min);
+            }
+        }
+
+        assertEquals(new TreeSet<>(expected.keySet()).stream().collect(Collectors.toList()),
+            matrix.getProducts().stream().map(row -> row.getProductId().toLowerCase()).collect(Collectors.toList()));
+        for (CompareMatrixRowDTO row : matrix.getProducts()) {
+            assertEquals(expected.get(row.getProductId().toLowerCase()), row.getPrices());
+            double min = row.getPrices().values().stream().mapToDouble(Double::doubleValue).min().orElseThrow();
+            double max = row.getPrices().values().stream().mapToDouble(Double::doubleValue).max().orElseThrow();
+            assertEquals(min, row.getMinPrice());
+            assertEquals(max, row.getMaxPrice());
+            assertEquals(max - min, row.getSpread(), 1e-9);
+            assertEquals(min, row.getPrices().get(row.getCheapestStore()));
+        }
+    }
+
+    // Test splitting the productIds into ranges merged in parallel gives the same matrix as one range
+    @Test
+    void testCompareStores_shardedMergeMatchesSingleRange() {
+        CompareMatrixDTO single = compareService.compareStores("2025-05-01", null, 1);
+        for (int shards : new int[] {2, 3, 7, 100}) {
+            assertEquals(single, compareService.compareStores("2025-05-01", null, shards));
+        }
+    }
+
+    // Test the stores parameter picks the columns and their order, and a store without a file for the date is rejected
+    @Test
+    void testCompareStores_selectedStores() {
+        CompareMatrixDTO matrix = compareService.compareStores("2025-05-08", List.of("Profi", "lidl"));
+
+        assertEquals(List.of("profi", "lidl"), matrix.getStores());
+        assertFalse(matrix.getProducts().isEmpty());
+        assertTrue(matrix.getProducts().stream().allMatch(row -> !row.getPrices().isEmpty()
+            && List.of("profi", "lidl").containsAll(row.getPrices().keySet())));
+
+        assertThrows(IllegalArgumentException.class, () -> compareService.compareStores("2025-05-25", List.of("kaufland")));
+        assertThrows(IllegalArgumentException.class, () -> compareService.compareStores("2024-01-01", null));
+    }
+}
@@ -1,20 +1,33 @@
 
 package com.example.pricecomparator.service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import com.example.pricecomparator.catalog.DiscountIndex;
+import com.example.pricecomparator.catalog.DiscountTimeline;
+import com.example.pricecomparator.catalog.ProductTable;
+import com.example.pricecomparator.config.CatalogProperties;
 import com.example.pricecomparator.dto.DiscountBestGlobalDTO;
 import com.example.pricecomparator.dto.PriceHistoryDTO;
+import com.example.pricecomparator.dto.PriceHistoryEntryDTO;
 import com.example.pricecomparator.models.Discount;
+import com.example.pricecomparator.models.Product;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DiscountServiceTest {
 
-    private final FileService fileService = new FileService();
-    private final DiscountService discountService = new DiscountService(fileService);
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CsvService csvService = new CsvService(fileService);
+    private final CatalogService catalogService = new CatalogService(fileService, csvService, new CatalogProperties(), new SimpleMeterRegistry());
+    private final DiscountService discountService = new DiscountService(csvService, catalogService);
 
     // Test loading discounts from valid CSV file
     @Test
@@ -43,6 +56,17 @@ public class DiscountServiceTest {
         }
     }
 
+    // Test a limit returns the same first discounts as the full sorted list
+    @Test
+    void testGetBestDiscountsWithLimit() {
+        List<Discount> all = discountService.getBestDiscounts("csv", "lidl", "2025-05-01");
+        List<Discount> top = discountService.getBestDiscounts("csv", "lidl", "2025-05-01", 3);
+
+        assertEquals(all.subList(0, Math.min(3, all.size())), top);
+        assertTrue(discountService.getBestDiscounts("csv", "lidl", "2025-05-01", 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> discountService.selectBestDiscounts(all, -1));
+    }
+
     // Test error on invalid date format
     @Test
     void testGetBestDiscountsInvalidDate() {
@@ -63,6 +87,54 @@ public class DiscountServiceTest {
         }
     }
 
+    // Test the interval tree gives, for any day, the same best discount per product as filtering every discount
+    @Test
+    void testGetGlobalTopDiscountsAsOf() {
+        Map<String, List<Discount>> files = catalogService.getSnapshot().getDiscountFiles();
+        for (LocalDate day = LocalDate.parse("2025-04-25"); day.isBefore(LocalDate.parse("2025-06-10")); day = day.plusDays(1)) {
+            long epochDay = day.toEpochDay();
+            Map<String, String> expected = new HashMap<>(); // productId -> "percentage|store"
+            Map<String, Double> best = new HashMap<>();
+            for (List<Discount> discounts : files.values()) {
+                for (Discount d : discounts) {
+                    boolean active = d.getFromDay() <= epochDay && epochDay < d.getToDay();
+                    if (active && d.getPercentageOfDiscount() > best.getOrDefault(d.getProductId(), -1.0)) {
+                        best.put(d.getProductId(), d.getPercentageOfDiscount());
+                        expected.put(d.getProductId(), d.getPercentageOfDiscount() + "|" + d.getStore());
+                    }
+                }
+            }
+
+            List<DiscountBestGlobalDTO> top = discountService.getGlobalTopDiscounts("csv", Integer.MAX_VALUE, day);
+            Map<String, String> actual = new HashMap<>();
+            top.forEach(dto -> actual.put(dto.getProductId(), dto.getPercentageOfDiscount() + "|" + dto.getStore()));
+            assertEquals(expected, actual, "active discounts on " + day);
+            assertEquals(expected.size(), top.size());
+            for (int i = 0; i < top.size() - 1; i++) {
+                assertTrue(top.get(i).getPercentageOfDiscount() >= top.get(i + 1).getPercentageOfDiscount());
+            }
+            assertTrue(top.stream().allMatch(dto -> dto.getSourceFile().startsWith("csv/") && dto.getSourceFile().contains("_discounts_")));
+        }
+
+        LocalDate day = LocalDate.parse("2025-05-03");
+        List<DiscountBestGlobalDTO> all = discountService.getGlobalTopDiscounts("csv", Integer.MAX_VALUE, day);
+        assertFalse(all.isEmpty());
+        assertEquals(all.subList(0, 2), discountService.getGlobalTopDiscounts("csv", 2, day));
+        assertThrows(IllegalArgumentException.class, () -> discountService.getGlobalTopDiscounts("csv", -1, day));
+    }
+
+    // Test a ranking asked for again and again stays cached while other days come and go
+    @Test
+    void testBestPerProductKeepsRecentlyUsedRanking() {
+        DiscountTimeline timeline = catalogService.getSnapshot().getDiscountTimeline();
+        long today = LocalDate.parse("2025-05-08").toEpochDay();
+        DiscountTimeline.Ranking ranking = timeline.bestPerProduct(today);
+        for (long day = today - 30; day < today; day++) {
+            timeline.bestPerProduct(day);
+            assertSame(ranking, timeline.bestPerProduct(today), "after asking for day " + day);
+        }
+    }
+
     // Test retrieving newly added discounts in the last 24 hours
     @Test
     void testGetNewDiscounts() {
@@ -101,4 +173,88 @@ public class DiscountServiceTest {
         assertNotNull(history);
         assertFalse(history.isEmpty());
     }
+
+    // Test the history (all products, and one product over a date range) matches a scan of the parsed discount
+    // and product files, entry for entry and in the same order
+    @Test
+    void testGetPriceHistoryMatchesFileScan() {
+        Map<String, ProductTable> productFiles = catalogService.getSnapshot().getProductFiles();
+        List<PriceHistoryDTO> expected = new ArrayList<>();
+        for (Map.Entry<String, List<Discount>> file : catalogService.getSnapshot().getDiscountFiles().entrySet()) {
+            String store = file.getKey().substring(0, file.getKey().indexOf('_'));
+            String date = file.getKey().split("_")[2].replace(".csv", "");
+            for (Discount d : file.getValue()) {
+                Double basePrice = basePrice(productFiles.get(store + "_" + date + ".csv"), d.getProductId());
+                if (basePrice != null) {
+                    double pct = d.getPercentageOfDiscount();
+                    expected.add(new PriceHistoryDTO(d.getProductName(), d.getBrand(), d.getProductCategory(), date,
+                        store, pct, basePrice, basePrice * (1 - pct / 100.0)));
+                }
+            }
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, discountService.getPriceHistory(null, null, null, null, null, null));
+        assertEquals(
+            expected.stream().filter(h -> h.getProductName().equals("lapte zuzu"))
+                .filter(h -> h.getFrom_date().compareTo("2025-05-02") >= 0 && h.getFrom_date().compareTo("2025-05-08") <= 0)
+                .toList(),
+            discountService.getPriceHistory("P001", null, null, null, "2025-05-02", "2025-05-08"));
+    }
+
+    // Test paging through the streamed history with cursors returns every entry once, in order,
+    // and that a cursor from an older catalog is rejected
+    @Test
+    void testStreamPriceHistoryResumesFromCursor() {
+        List<PriceHistoryDTO> all = discountService.getPriceHistory(null, null, null, null, null, null);
+
+        List<PriceHistoryDTO> paged = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            List<PriceHistoryEntryDTO> page = discountService.streamPriceHistory(null, null, null, null, null, null, cursor)
+                .limit(3).toList();
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(e -> paged.add(e.getEntry()));
+            cursor = page.get(page.size() - 1).getCursor();
+        }
+        assertEquals(all, paged);
+
+        String first = discountService.streamPriceHistory(null, null, null, null, null, null, null).findFirst().orElseThrow().getCursor();
+        assertThrows(IllegalArgumentException.class, () -> discountService.streamPriceHistory(null, null, null, null, null, null, "abc"));
+        catalogService.removeFile("lidl_discounts_2025-05-20.csv");
+        assertThrows(IllegalStateException.class, () -> discountService.streamPriceHistory(null, null, null, null, null, null, first));
+    }
+
+    // Test discounted price lookup through the discount index on a day inside and outside the promotion
+    @Test
+    void testGetDiscountedPriceUsesIndexForGivenDay() {
+        Product product = new Product("P001", "lapte zuzu", "lactate", "Zuzu", 1, "l", 9.90, "ron", "lidl");
+        DiscountIndex index = catalogService.getSnapshot().getDiscountIndex();
+
+        // lidl_discounts_2025-05-01.csv: P001 -10% from 2025-05-01 to 2025-05-07
+        long during = LocalDate.parse("2025-05-03").toEpochDay();
+        long before = LocalDate.parse("2025-04-20").toEpochDay();
+
+        assertEquals(9.90 * 0.9, discountService.getDiscountedPrice(product, index, during), 1e-9);
+        assertEquals(9.90, discountService.getDiscountedPrice(product, index, before), 1e-9);
+
+        // the index matches store and productId case-insensitively
+        assertNotNull(index.findActive("LIDL", "p001", during));
+        assertNull(index.findActive("profi", "P001", LocalDate.parse("2025-04-20").toEpochDay()));
+    }
+
+    // Price of the first row of the product file with the productId, or null if the file or the product is missing
+    private static Double basePrice(ProductTable products, String productId) {
+        if (products == null) {
+            return null;
+        }
+        for (int row = 0; row < products.size(); row++) {
+            if (products.productId(row).equalsIgnoreCase(productId)) {
+                return products.price(row);
+            }
+        }
+        return null;
+    }
 }
@@ -1,19 +1,25 @@
 package com.example.pricecomparator.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import com.example.pricecomparator.config.CatalogProperties;
 import com.example.pricecomparator.dto.ProductWithValueDTO;
 import com.example.pricecomparator.models.Product;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ProductServiceTest {
 
-    private final FileService fileService = new FileService();
-    private final DiscountService discountService = new DiscountService(fileService);
-    private final ProductService productService = new ProductService(fileService, discountService);
+    private final FileService fileService = new FileService(new CatalogProperties());
+    private final CsvService csvService = new CsvService(fileService);
+    private final CatalogService catalogService = new CatalogService(fileService, csvService, new CatalogProperties(), new SimpleMeterRegistry());
+    private final DiscountService discountService = new DiscountService(csvService, catalogService);
+    private final ProductService productService = new ProductService(catalogService, csvService, discountService);
 
 
     // Test getBestValueProductsByCategory with known category
@@ -71,7 +77,7 @@ public class ProductServiceTest {
         assertFalse(substitutes.isEmpty());
 
         // Get original product brand
-        Product original = productService.loadAllProductsFromCsvDirectory().stream()
+        Product original = productService.getAllProducts().stream()
             .filter(p -> p.getProductId().equalsIgnoreCase(productId)) // <-- corect
             .findFirst()
             .orElseThrow();
@@ -85,6 +91,39 @@ public class ProductServiceTest {
     }
 
 
+    // Test the index-based searches return exactly what a full scan and sort of the catalog returns
+    @Test
+    void testIndexedSearchesMatchFullScan() {
+        List<Product> all = productService.getAllProducts();
+
+        for (String category : List.of("lactate", "panificație", "legume și fructe")) {
+            List<Product> expected = all.stream()
+                .filter(p -> p.getProductCategory().equalsIgnoreCase(category))
+                .sorted(Comparator.comparingDouble(Product::getPricePerBaseUnit))
+                .limit(4)
+                .collect(Collectors.toList());
+            assertEquals(expected, productService.getBestValueProductsByCategory(category, 4));
+        }
+
+        for (String productId : List.of("P001", "P004", "P010", "P020")) {
+            Product original = all.stream().filter(p -> p.getProductId().equalsIgnoreCase(productId)).findFirst().orElseThrow();
+            for (boolean sameBrand : List.of(false, true)) {
+                List<Double> expected = all.stream()
+                    .filter(p -> !p.getProductId().equalsIgnoreCase(productId))
+                    .filter(p -> p.getProductCategory().equalsIgnoreCase(original.getProductCategory()))
+                    .filter(p -> !sameBrand || p.getBrand().equalsIgnoreCase(original.getBrand()))
+                    .map(productService::getDiscountedPricePerUnit)
+                    .sorted()
+                    .limit(3)
+                    .collect(Collectors.toList());
+                List<Double> actual = productService.getProductSubstitutes(productId, 3, sameBrand).stream()
+                    .map(ProductWithValueDTO::getValuePerUnit)
+                    .collect(Collectors.toList());
+                assertEquals(expected, actual, productId + " sameBrand=" + sameBrand);
+            }
+        }
+    }
+
     // Test getProductSubstitutes with unknown productId
     // Should throw RuntimeException
     @Test
@@ -95,4 +134,15 @@ public class ProductServiceTest {
 
         assertTrue(ex.getMessage().contains("Product not found"));
     }
+
+    // Test getProductSubstitutes with a negative top
+    // Should be rejected before the product is looked up
+    @Test
+    void testGetProductSubstitutes_negativeTop_throwsException() {
+        Exception ex = assertThrows(IllegalArgumentException.class, () -> {
+            productService.getProductSubstitutes("INVALID_ID", -1, false);
+        });
+
+        assertTrue(ex.getMessage().contains("top must not be negative"));
+    }
 }
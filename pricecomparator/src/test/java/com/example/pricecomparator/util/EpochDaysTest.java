@@ -0,0 +1,39 @@
+package com.example.pricecomparator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EpochDaysTest {
+
+    @Test
+    void testMatchesLocalDateOnEveryDay() {
+        for (LocalDate day = LocalDate.of(1899, 12, 1); day.getYear() < 2101; day = day.plusDays(1)) {
+            assertEquals(day.toEpochDay(), EpochDays.parse(day.toString()), day.toString());
+            assertEquals(day.toEpochDay(), EpochDays.of(day.getYear(), day.getMonthValue(), day.getDayOfMonth()));
+        }
+    }
+
+    @Test
+    void testDatesMatchSimpleDateFormat() throws Exception {
+        // the API keeps returning what the discount files were parsed into before
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
+        for (String text : new String[] {"2025-05-01", "2025-03-30", "2025-10-26", "2024-02-29"}) {
+            int day = EpochDays.parse(text);
+            assertEquals(formatter.parse(text), EpochDays.toDate(day));
+            assertEquals(day, EpochDays.of(formatter.parse(text)));
+        }
+    }
+
+    @Test
+    void testRejectsOtherFormatsAndImpossibleDates() {
+        for (String text : new String[] {"", "2025-5-1", "2025-05-01T00", "2025/05/01", "2025-0a-01",
+                                         "2025-13-01", "2025-00-10", "2025-04-31", "2025-02-29", "1900-02-29"}) {
+            assertThrows(IllegalArgumentException.class, () -> EpochDays.parse(text), text);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.pricecomparator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SemicolonTokenizerTest {
+
+    private static SemicolonTokenizer tokenizer(String content) {
+        return new SemicolonTokenizer(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testSplitsTrimmedFieldsAndLines() {
+        SemicolonTokenizer tokenizer = tokenizer("P001; lapte zuzu ;lactate\r\nP002;iaurt;;\n");
+
+        assertTrue(tokenizer.nextLine());
+        assertEquals(3, tokenizer.fieldCount());
+        assertEquals("lapte zuzu", tokenizer.string(1));
+        assertEquals("lactate", tokenizer.string(2));
+
+        // trailing empty fields are dropped like String.split does
+        assertTrue(tokenizer.nextLine());
+        assertEquals(2, tokenizer.fieldCount());
+        assertEquals("P002;iaurt;;", tokenizer.line());
+
+        assertFalse(tokenizer.nextLine());
+    }
+
+    @Test
+    void testParsesNumbersLikeDoubleParseDouble() {
+        SemicolonTokenizer tokenizer = tokenizer("9.90;0.4;-3;12;1e2;0.1");
+        tokenizer.nextLine();
+
+        assertEquals(9.90, tokenizer.number(0));
+        assertEquals(0.4, tokenizer.number(1));
+        assertEquals(-3.0, tokenizer.number(2));
+        assertEquals(12.0, tokenizer.number(3));
+        assertEquals(100.0, tokenizer.number(4));
+        assertEquals(Double.parseDouble("0.1"), tokenizer.number(5));
+    }
+
+    @Test
+    void testRejectsInvalidNumbers() {
+        SemicolonTokenizer tokenizer = tokenizer("abc;;1.2.3");
+        tokenizer.nextLine();
+
+        assertThrows(NumberFormatException.class, () -> tokenizer.number(0));
+        assertThrows(NumberFormatException.class, () -> tokenizer.number(1));
+        assertThrows(NumberFormatException.class, () -> tokenizer.number(2));
+    }
+
+    @Test
+    void testPoolsRepeatedValues() {
+        SemicolonTokenizer tokenizer = tokenizer("Lactate;KG\nlactate;kg\n");
+        StringPool pool = StringPool.lowerCase(StringPool.newSharedMap());
+
+        tokenizer.nextLine();
+        String category = tokenizer.string(0, pool);
+        String unit = tokenizer.string(1, pool);
+        tokenizer.nextLine();
+
+        // different bytes, same lowercased value: still one instance
+        assertEquals("lactate", category);
+        assertSame(category, tokenizer.string(0, pool));
+        assertSame(unit, tokenizer.string(1, pool));
+    }
+
+    @Test
+    void testParsesDatesAsEpochDays() {
+        SemicolonTokenizer tokenizer = tokenizer(" 2025-05-01 ;2024-02-29;1970-01-01;2025-5-1;2025-02-29;2025/05/01");
+        tokenizer.nextLine();
+
+        assertEquals(LocalDate.of(2025, 5, 1).toEpochDay(), tokenizer.epochDay(0));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), tokenizer.epochDay(1));
+        assertEquals(0, tokenizer.epochDay(2));
+        // SimpleDateFormat was lenient about these; the fixed format is not
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.epochDay(3));
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.epochDay(4));
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.epochDay(5));
+    }
+}
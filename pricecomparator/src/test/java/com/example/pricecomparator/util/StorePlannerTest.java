@@ -0,0 +1,127 @@
+package com.example.pricecomparator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorePlannerTest {
+
+    private static final double NOT_SOLD = Double.POSITIVE_INFINITY;
+
+    @Test
+    void testMatchesExhaustiveSearch() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int items = 1 + random.nextInt(12);
+            int stores = 1 + random.nextInt(8);
+            double[][] costs = randomCosts(random, items, stores, 0.3);
+            int maxStores = 1 + random.nextInt(stores);
+            double storeCost = random.nextInt(4) * 2.5;
+
+            StorePlanner.Plan plan = StorePlanner.plan(costs, stores, maxStores, storeCost);
+            double[] expected = exhaustive(costs, stores, maxStores, storeCost);
+
+            assertEquals((int) expected[0], plan.getMissing());
+            assertEquals(expected[1], plan.getTotalCost(), 1e-9);
+            assertTrue(plan.getStores().length <= maxStores);
+            for (int i = 0; i < items; i++) {
+                int store = plan.storeOf(i);
+                if (store >= 0) {
+                    // every item is bought in the cheapest chosen store
+                    for (int chosen : plan.getStores()) {
+                        assertTrue(costs[i][store] <= costs[i][chosen]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testStoreCostKeepsBasketInOneStore() {
+        double[][] costs = {
+            {10, 9},
+            {10, 11},
+        };
+
+        // free to split: each item where it is cheapest
+        StorePlanner.Plan split = StorePlanner.plan(costs, 2, 2, 0);
+        assertArrayEquals(new int[] {0, 1}, split.getStores());
+        assertEquals(19, split.getTotalCost(), 1e-9);
+
+        // a second store costs more than the 1 it saves
+        StorePlanner.Plan single = StorePlanner.plan(costs, 2, 2, 5);
+        assertArrayEquals(new int[] {0}, single.getStores());
+        assertEquals(20, single.getItemsCost(), 1e-9);
+        assertEquals(25, single.getTotalCost(), 1e-9);
+    }
+
+    @Test
+    void testLeavesOutFewestItemsWhenNoPlanSellsEverything() {
+        double[][] costs = {
+            {1, NOT_SOLD, NOT_SOLD},
+            {NOT_SOLD, 1, NOT_SOLD},
+            {NOT_SOLD, 2, 5},
+            {NOT_SOLD, NOT_SOLD, NOT_SOLD},
+        };
+
+        StorePlanner.Plan plan = StorePlanner.plan(costs, 3, 1, 0);
+        assertArrayEquals(new int[] {1}, plan.getStores());
+        assertEquals(2, plan.getMissing());
+        assertEquals(-1, plan.storeOf(0));
+        assertEquals(1, plan.storeOf(2));
+        assertEquals(-1, plan.storeOf(3));
+    }
+
+    @Test
+    void testRejectsInvalidLimits() {
+        double[][] costs = {{1}};
+        assertThrows(IllegalArgumentException.class, () -> StorePlanner.plan(costs, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> StorePlanner.plan(costs, 1, 1, -1));
+        assertThrows(IllegalArgumentException.class, () -> StorePlanner.plan(costs, 2, 1, 0));
+    }
+
+    static double[][] randomCosts(Random random, int items, int stores, double notSoldShare) {
+        double[][] costs = new double[items][stores];
+        for (int i = 0; i < items; i++) {
+            for (int s = 0; s < stores; s++) {
+                costs[i][s] = random.nextDouble() < notSoldShare ? NOT_SOLD : 1 + random.nextInt(2000) / 100.0;
+            }
+        }
+        return costs;
+    }
+
+    // {missing items, total cost} of the best plan over every subset of at most maxStores stores
+    private static double[] exhaustive(double[][] costs, int stores, int maxStores, double storeCost) {
+        double[] best = {Integer.MAX_VALUE, 0};
+        for (int subset = 0; subset < 1 << stores; subset++) {
+            if (Integer.bitCount(subset) > maxStores) {
+                continue;
+            }
+            int missing = 0;
+            double cost = Integer.bitCount(subset) * storeCost;
+            for (double[] row : costs) {
+                double cheapest = NOT_SOLD;
+                for (int s = 0; s < stores; s++) {
+                    if ((subset & 1 << s) != 0) {
+                        cheapest = Math.min(cheapest, row[s]);
+                    }
+                }
+                if (cheapest == NOT_SOLD) {
+                    missing++;
+                } else {
+                    cost += cheapest;
+                }
+            }
+            if (missing < best[0] || (missing == best[0] && cost < best[1] - 1e-9)) {
+                best[0] = missing;
+                best[1] = cost;
+            }
+        }
+        return best;
+    }
+}
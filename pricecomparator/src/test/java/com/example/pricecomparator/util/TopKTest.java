@@ -0,0 +1,58 @@
+package com.example.pricecomparator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopKTest {
+
+    // sorts by the number only, so equal numbers with different labels show whether ties stay in input order
+    private static final Comparator<String> BY_NUMBER = Comparator.comparingInt(s -> Integer.parseInt(s.split(":")[0]));
+
+    @Test
+    void testMatchesStableSortAndLimit() {
+        Random random = new Random(42);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(random.nextInt(50) + ":" + i);
+        }
+
+        for (int k : new int[] {0, 1, 5, 49, 500, 1000}) {
+            List<String> expected = items.stream().sorted(BY_NUMBER).limit(k).toList();
+            assertEquals(expected, TopK.select(items, k, BY_NUMBER));
+            List<String> highest = items.stream().sorted(BY_NUMBER.reversed()).limit(k).toList();
+            assertEquals(highest, TopK.select(items, k, BY_NUMBER.reversed()));
+        }
+    }
+
+    @Test
+    void testOfferKeepsTheBestItems() {
+        TopK<String> top = new TopK<>(2, BY_NUMBER);
+
+        assertNull(top.worst());
+        assertTrue(top.offer("5:a"));
+        assertTrue(top.offer("3:b"));
+        assertTrue(top.isFull());
+        assertEquals("5:a", top.worst());
+
+        // an equal item offered later loses the tie, a better one replaces the worst
+        assertFalse(top.offer("5:c"));
+        assertTrue(top.offer("1:d"));
+        assertEquals(List.of("1:d", "3:b"), top.toList());
+    }
+
+    @Test
+    void testRejectsNegativeLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new TopK<String>(-1, BY_NUMBER));
+        assertThrows(IllegalArgumentException.class, () -> TopK.select(List.of("1:a"), -1, BY_NUMBER));
+    }
+}